@@ -0,0 +1,66 @@
+package com.sparrowlogic.networkdiagram.bench;
+
+import com.sparrowlogic.networkdiagram.model.InfrastructureComponents;
+import com.sparrowlogic.networkdiagram.service.DiagramRenderCache;
+import com.sparrowlogic.networkdiagram.service.InventoryIndexes;
+import com.sparrowlogic.networkdiagram.service.MermaidDiagramService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Diagram generation on a single thread with the render cache disabled, so every invocation pays
+// for the full index, layout and text. Run with -prof gc for allocation rates.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DiagramBenchmark {
+
+    // 50000 groups at 10 rules each is about 500k rules
+    @Param({"10", "1000", "50000"})
+    public int securityGroups;
+
+    @Param({"10"})
+    public int rulesPerGroup;
+
+    private InfrastructureComponents components;
+    private MermaidDiagramService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var instances = Math.min(securityGroups * 2, 100_000);
+        components = new InfrastructureGenerator(42).generate(securityGroups, rulesPerGroup, instances, instances / 20);
+        service = new MermaidDiagramService(new DiagramRenderCache(0), new InventoryIndexes(8), new SimpleMeterRegistry(), 1, 3, 25);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    @Benchmark
+    public String generateDiagram() {
+        return service.generateDiagram(components);
+    }
+
+    // What a page view does: every section, then the report ETag over them
+    @Benchmark
+    public String assembleSections() {
+        return MermaidDiagramService.reportHash(service.generateSections(components));
+    }
+}
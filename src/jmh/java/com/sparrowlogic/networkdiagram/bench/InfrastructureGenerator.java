@@ -0,0 +1,96 @@
+package com.sparrowlogic.networkdiagram.bench;
+
+import com.sparrowlogic.networkdiagram.model.CompactRuleList;
+import com.sparrowlogic.networkdiagram.model.InfrastructureComponents;
+import com.sparrowlogic.networkdiagram.model.RuleDirection;
+import com.sparrowlogic.networkdiagram.model.RuleSourcePool;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+
+// Builds a synthetic inventory shaped like a large real account. The same seed and sizes always
+// produce the same inventory, so benchmark runs are comparable. Rule sources are mostly references
+// to other security groups and private ranges, with a tail of single external hosts and a few
+// world-open rules; instances carry one to three groups and about two in three sit in an ASG.
+public final class InfrastructureGenerator {
+
+    private static final int[] COMMON_PORTS = {22, 80, 443, 3306, 5432, 6379, 8080, 8443, 9090, 27017};
+    private static final String[] INSTANCE_TYPES = {"t3.micro", "t3.large", "m6i.xlarge", "c6g.2xlarge", "r6i.4xlarge"};
+
+    private final Random random;
+
+    public InfrastructureGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    public InfrastructureComponents generate(int securityGroups, int rulesPerGroup, int instances, int autoScalingGroups) {
+        // Rules of one inventory share a pool, as they do when crawled
+        var pool = new RuleSourcePool();
+        var groups = new ArrayList<InfrastructureComponents.SecurityGroup>(securityGroups);
+        for (int g = 0; g < securityGroups; g++) {
+            var rules = CompactRuleList.builder(pool);
+            // Rule counts vary around the mean: a few groups are much larger than the rest
+            var count = Math.max(1, (int) Math.round(rulesPerGroup * (0.25 + random.nextExponential() * 0.75)));
+            for (int r = 0; r < count; r++) {
+                var port = COMMON_PORTS[random.nextInt(COMMON_PORTS.length)];
+                var range = random.nextInt(20) == 0 ? random.nextInt(1000) : 0;
+                var direction = random.nextInt(4) == 0 ? RuleDirection.EGRESS : RuleDirection.INGRESS;
+                rules.add(random.nextInt(10) == 0 ? "udp" : "tcp", port, port + range, source(securityGroups), direction);
+            }
+            groups.add(new InfrastructureComponents.SecurityGroup(groupId(g), "sg-name-" + g, rules.build()));
+        }
+
+        var instanceList = new ArrayList<InfrastructureComponents.Instance>(instances);
+        for (int i = 0; i < instances; i++) {
+            var sgs = new LinkedHashSet<String>();
+            var sgCount = 1 + random.nextInt(3);
+            while (sgs.size() < Math.min(sgCount, securityGroups)) {
+                sgs.add(groupId(random.nextInt(securityGroups)));
+            }
+            instanceList.add(new InfrastructureComponents.Instance(instanceId(i),
+                INSTANCE_TYPES[random.nextInt(INSTANCE_TYPES.length)], List.copyOf(sgs)));
+        }
+
+        var asgList = new ArrayList<InfrastructureComponents.AutoScalingGroup>(autoScalingGroups);
+        var inAsgs = autoScalingGroups == 0 ? 0 : instances * 2 / 3;
+        var next = 0;
+        for (int a = 0; a < autoScalingGroups; a++) {
+            var end = (int) ((long) inAsgs * (a + 1) / autoScalingGroups);
+            var ids = new ArrayList<String>(end - next);
+            for (; next < end; next++) {
+                ids.add(instanceId(next));
+            }
+            // Security groups are filled in by correlation, as in a live crawl
+            asgList.add(new InfrastructureComponents.AutoScalingGroup("asg-" + a, ids, List.of()));
+        }
+
+        return new InfrastructureComponents(groups, List.of(), instanceList, asgList, "vpc-bench", List.of());
+    }
+
+    private String source(int securityGroups) {
+        var roll = random.nextInt(100);
+        if (roll < 55) {
+            return groupId(random.nextInt(securityGroups));
+        }
+        if (roll < 80) {
+            return "10." + random.nextInt(256) + ".0.0/16";
+        }
+        if (roll < 96) {
+            return "203.0." + random.nextInt(256) + "." + random.nextInt(256) + "/32";
+        }
+        if (roll < 98) {
+            return "2001:db8::" + Integer.toHexString(random.nextInt(65536)) + "/128";
+        }
+        return random.nextBoolean() ? "0.0.0.0/0" : "::/0";
+    }
+
+    private static String groupId(int index) {
+        return String.format("sg-%017x", index);
+    }
+
+    private static String instanceId(int index) {
+        return String.format("i-%017x", index);
+    }
+}
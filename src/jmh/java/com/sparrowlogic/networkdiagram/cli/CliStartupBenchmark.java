@@ -0,0 +1,35 @@
+package com.sparrowlogic.networkdiagram.cli;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Cold start of the CLI context: every fork is a fresh JVM that starts the context once, which is
+// what each CI invocation pays before it makes its first AWS call. Compare runs with
+// -jvmArgsAppend "-Dspring.aot.enabled=true -XX:AOTCache=target/cli/diagram-cli.aot" after mvn -Pcli package.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class CliStartupBenchmark {
+
+    private final DiagramCli.Options options =
+        DiagramCli.Options.parse(new String[] {"--region", "us-east-1", "--output", "target"});
+
+    @Benchmark
+    public boolean startAndClose() {
+        try (var context = DiagramCli.start(options)) {
+            return context.isActive();
+        }
+    }
+}
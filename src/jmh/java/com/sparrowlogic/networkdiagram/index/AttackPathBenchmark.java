@@ -0,0 +1,50 @@
+package com.sparrowlogic.networkdiagram.index;
+
+import com.sparrowlogic.networkdiagram.bench.InfrastructureGenerator;
+import com.sparrowlogic.networkdiagram.model.InfrastructureComponents;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Building the security group graph once per inventory, and one multi-hop query from the whole internet
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AttackPathBenchmark {
+
+    @Param({"1000", "10000", "50000"})
+    public int securityGroups;
+
+    private InfrastructureComponents components;
+    private AttackPathIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        components = new InfrastructureGenerator(42).generate(securityGroups, 10, securityGroups, securityGroups / 20);
+        index = AttackPathIndex.of(components);
+    }
+
+    @Benchmark
+    public AttackPathIndex build() {
+        return AttackPathIndex.of(components);
+    }
+
+    @Benchmark
+    public AttackPathIndex.Exposure pathsFromInternet() {
+        return index.pathsFrom("0.0.0.0/0", "all", ReachabilityIndex.ANY_PORT);
+    }
+}
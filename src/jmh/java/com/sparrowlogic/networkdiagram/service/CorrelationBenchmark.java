@@ -0,0 +1,44 @@
+package com.sparrowlogic.networkdiagram.service;
+
+import com.sparrowlogic.networkdiagram.bench.InfrastructureGenerator;
+import com.sparrowlogic.networkdiagram.model.InfrastructureComponents;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Lives in the service package to reach the package-private correlation step of the crawl
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CorrelationBenchmark {
+
+    @Param({"100", "5000", "50000"})
+    public int instances;
+
+    private InfrastructureComponents components;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        components = new InfrastructureGenerator(42).generate(Math.max(10, instances / 10), 1, instances, Math.max(1, instances / 20));
+    }
+
+    @Benchmark
+    public List<InfrastructureComponents.AutoScalingGroup> correlateSecurityGroups() {
+        return AwsInfrastructureService.correlateSecurityGroups(components.autoScalingGroups(), components.instances());
+    }
+}
@@ -0,0 +1,176 @@
+package com.sparrowlogic.networkdiagram.aws;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.exception.AbortedException;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// One token bucket per (profile, region, service, operation), shared by every request and every client
+// set so that concurrent crawls of the same account draw from the same budget. Rates follow AIMD:
+// each successful attempt nudges the rate up by roughly `increase` calls/s per second, and a throttled
+// attempt halves it (by `decrease-factor`) and empties the bucket. Buckets are dropped, gauge included,
+// when the client registry closes the client set of their (profile, region).
+@Component
+public class AdaptiveRateLimiter {
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final double initialRate;
+    private final double minRate;
+    private final double maxRate;
+    private final double increase;
+    private final double decreaseFactor;
+
+    private final Map<LimiterKey, Limited> buckets = new ConcurrentHashMap<>();
+
+    public AdaptiveRateLimiter(MeterRegistry meterRegistry,
+                               @Value("${aws.rate-limit.enabled:true}") boolean enabled,
+                               @Value("${aws.rate-limit.initial-rate:10}") double initialRate,
+                               @Value("${aws.rate-limit.min-rate:0.5}") double minRate,
+                               @Value("${aws.rate-limit.max-rate:50}") double maxRate,
+                               @Value("${aws.rate-limit.increase:1}") double increase,
+                               @Value("${aws.rate-limit.decrease-factor:0.5}") double decreaseFactor) {
+        if (minRate <= 0 || minRate > initialRate || initialRate > maxRate) {
+            throw new IllegalArgumentException("aws.rate-limit rates must satisfy 0 < min-rate <= initial-rate <= max-rate");
+        }
+        if (decreaseFactor <= 0 || decreaseFactor >= 1) {
+            throw new IllegalArgumentException("aws.rate-limit.decrease-factor must be between 0 and 1");
+        }
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.initialRate = initialRate;
+        this.minRate = minRate;
+        this.maxRate = maxRate;
+        this.increase = increase;
+        this.decreaseFactor = decreaseFactor;
+    }
+
+    // Blocks until the call may be sent and returns the time it was let through, which onThrottle
+    // uses to tell a fresh throttle from the tail of a burst that was already answered
+    long acquire(LimiterKey key) {
+        var now = System.nanoTime();
+        if (!enabled) {
+            return now;
+        }
+        var wait = bucket(key).reserve(now);
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw AbortedException.create("Interrupted while waiting to call " + key.operation());
+            }
+        }
+        return now + wait;
+    }
+
+    void onSuccess(LimiterKey key) {
+        if (enabled) {
+            bucket(key).onSuccess();
+        }
+    }
+
+    void onThrottle(LimiterKey key, long sentAtNanos) {
+        if (enabled) {
+            bucket(key).onThrottle(sentAtNanos, System.nanoTime());
+        }
+    }
+
+    public double rate(String profile, String region, String service, String operation) {
+        var limited = buckets.get(new LimiterKey(profile, region, service, operation));
+        return limited != null ? limited.bucket().rate() : initialRate;
+    }
+
+    // Drops every bucket of one (profile, region) along with its gauge
+    void forget(String profile, String region) {
+        buckets.keySet().stream()
+            .filter(key -> Objects.equals(key.profile(), profile) && Objects.equals(key.region(), region))
+            .toList()
+            .forEach(key -> buckets.computeIfPresent(key, (k, limited) -> {
+                meterRegistry.remove(limited.gauge());
+                return null;
+            }));
+    }
+
+    private Bucket bucket(LimiterKey key) {
+        return buckets.computeIfAbsent(key, k -> {
+            var bucket = new Bucket(initialRate, minRate, maxRate, increase, decreaseFactor, System.nanoTime());
+            var gauge = Gauge.builder("aws.api.rate", bucket, Bucket::rate)
+                .description("Current client-side call rate allowed by the adaptive limiter")
+                .baseUnit("calls/s")
+                .tags("profile", MetricTags.profile(k.profile()), "region", MetricTags.region(k.region()),
+                    "service", k.service(), "operation", k.operation())
+                .register(meterRegistry);
+            return new Limited(bucket, gauge);
+        }).bucket();
+    }
+
+    record LimiterKey(String profile, String region, String service, String operation) {}
+
+    private record Limited(Bucket bucket, Gauge gauge) {}
+
+    // Holds at most one second's worth of tokens. Reservations may drive the balance negative, which
+    // queues callers in arrival order without anyone having to hold the lock while waiting.
+    static final class Bucket {
+
+        private final double minRate;
+        private final double maxRate;
+        private final double increase;
+        private final double decreaseFactor;
+
+        private double rate;
+        private double tokens;
+        private long refilledAt;
+        private long lastDecreaseAt;
+
+        Bucket(double initialRate, double minRate, double maxRate, double increase, double decreaseFactor, long now) {
+            this.minRate = minRate;
+            this.maxRate = maxRate;
+            this.increase = increase;
+            this.decreaseFactor = decreaseFactor;
+            this.rate = initialRate;
+            this.tokens = Math.max(1, initialRate);
+            this.refilledAt = now;
+            this.lastDecreaseAt = Long.MIN_VALUE;
+        }
+
+        // Nanoseconds the caller has to wait before sending
+        synchronized long reserve(long now) {
+            refill(now);
+            tokens -= 1;
+            return tokens >= 0 ? 0 : (long) (-tokens / rate * 1e9);
+        }
+
+        // Additive increase scaled by 1/rate, so a saturated bucket grows by `increase` calls/s per second
+        synchronized void onSuccess() {
+            rate = Math.min(maxRate, rate + increase / rate);
+        }
+
+        // Attempts already in flight when the rate was last cut are answering the old rate, not this one
+        synchronized boolean onThrottle(long sentAt, long now) {
+            if (sentAt < lastDecreaseAt) {
+                return false;
+            }
+            refill(now);
+            rate = Math.max(minRate, rate * decreaseFactor);
+            tokens = Math.min(tokens, 0);
+            lastDecreaseAt = now;
+            return true;
+        }
+
+        synchronized double rate() {
+            return rate;
+        }
+
+        private void refill(long now) {
+            tokens = Math.min(Math.max(1, rate), tokens + (now - refilledAt) / 1e9 * rate);
+            refilledAt = now;
+        }
+    }
+}
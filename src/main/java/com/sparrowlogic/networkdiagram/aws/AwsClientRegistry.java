@@ -0,0 +1,136 @@
+package com.sparrowlogic.networkdiagram.aws;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.auth.credentials.ProfileCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class AwsClientRegistry {
+
+    private final MeterRegistry meterRegistry;
+    private final AdaptiveRateLimiter rateLimiter;
+    private final int maxEntries;
+    private final long idleTimeoutNanos;
+    private final int maxConnections;
+    private final Duration retryBaseDelay;
+    private final Duration retryMaxBackoff;
+
+    // Access-ordered so the eldest entry is always the least recently used (profile, region)
+    private final LinkedHashMap<ClientKey, AwsClients> clients = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, ProfileCredentialsProvider> credentialsByProfile = new ConcurrentHashMap<>();
+    private boolean closed;
+
+    public AwsClientRegistry(MeterRegistry meterRegistry, AdaptiveRateLimiter rateLimiter,
+                             @Value("${aws.clients.max-entries:16}") int maxEntries,
+                             @Value("${aws.clients.idle-timeout:PT10M}") Duration idleTimeout,
+                             @Value("${aws.clients.max-connections:50}") int maxConnections,
+                             @Value("${aws.retry.base-delay:PT0.2S}") Duration retryBaseDelay,
+                             @Value("${aws.retry.max-backoff:PT20S}") Duration retryMaxBackoff) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("aws.clients.max-entries must be at least 1");
+        }
+        this.meterRegistry = meterRegistry;
+        this.rateLimiter = rateLimiter;
+        this.maxEntries = maxEntries;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.maxConnections = maxConnections;
+        this.retryBaseDelay = retryBaseDelay;
+        this.retryMaxBackoff = retryMaxBackoff;
+    }
+
+    public AwsClients.Lease acquire(String profile, String region) {
+        var key = new ClientKey(profile, region);
+        var evicted = new ArrayList<AwsClients>();
+        AwsClients.Lease lease;
+
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("AWS client registry has been shut down");
+            }
+            evictIdle(evicted);
+
+            var entry = clients.get(key);
+            if (entry == null) {
+                var limiting = new RateLimitingInterceptor(rateLimiter, profile, region);
+                var metrics = new AwsMetricPublisher(meterRegistry, MetricTags.profile(profile), MetricTags.region(region));
+                entry = AwsClients.create(credentialsFor(profile), Region.of(region), maxConnections, config -> config
+                    .addMetricPublisher(metrics)
+                    .addExecutionInterceptor(limiting)
+                    .retryPolicy(limiting.retryPolicy(retryBaseDelay, retryMaxBackoff)), () -> forgetLimits(key));
+                clients.put(key, entry);
+                evictOverflow(evicted);
+            }
+            lease = entry.lease();
+        }
+
+        // Closing can block on the connection pool, so do it outside the lock
+        evicted.forEach(AwsClients::retire);
+        return lease;
+    }
+
+    public synchronized int size() {
+        return clients.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        List<AwsClients> remaining;
+        synchronized (this) {
+            closed = true;
+            remaining = new ArrayList<>(clients.values());
+            clients.clear();
+        }
+        remaining.forEach(AwsClients::retire);
+        credentialsByProfile.values().forEach(ProfileCredentialsProvider::close);
+        credentialsByProfile.clear();
+    }
+
+    // Limiter buckets and their gauges live as long as the client set of their (profile, region), so
+    // both stay bounded by max-entries. A retired set can close after a new one for the same key was
+    // created, in which case the buckets are still in use and are kept.
+    private synchronized void forgetLimits(ClientKey key) {
+        if (!clients.containsKey(key)) {
+            rateLimiter.forget(key.profile(), key.region());
+        }
+    }
+
+    private void evictIdle(List<AwsClients> evicted) {
+        var now = System.nanoTime();
+        var it = clients.values().iterator();
+        while (it.hasNext()) {
+            var entry = it.next();
+            if (entry.isIdle(now, idleTimeoutNanos)) {
+                it.remove();
+                evicted.add(entry);
+            }
+        }
+    }
+
+    private void evictOverflow(List<AwsClients> evicted) {
+        var it = clients.values().iterator();
+        while (clients.size() > maxEntries && it.hasNext()) {
+            evicted.add(it.next());
+            it.remove();
+        }
+    }
+
+    // The profile provider reads the profile files once and keeps the resolved provider, which caches
+    // static keys and refreshes session/assume-role credentials itself before they expire
+    private ProfileCredentialsProvider credentialsFor(String profile) {
+        return credentialsByProfile.computeIfAbsent(profile != null ? profile : "", name -> name.isEmpty() ?
+            ProfileCredentialsProvider.create() :
+            ProfileCredentialsProvider.create(name));
+    }
+
+    record ClientKey(String profile, String region) {}
+}
@@ -0,0 +1,133 @@
+package com.sparrowlogic.networkdiagram.aws;
+
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.autoscaling.AutoScalingClient;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.elasticloadbalancingv2.ElasticLoadBalancingV2Client;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+public final class AwsClients {
+
+    private final SdkHttpClient httpClient;
+    private final Ec2Client ec2;
+    private final ElasticLoadBalancingV2Client elb;
+    private final AutoScalingClient autoScaling;
+    private final Runnable onClose;
+
+    private final AtomicInteger leases = new AtomicInteger();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile boolean retired;
+    private volatile long lastUsedNanos = System.nanoTime();
+
+    private AwsClients(SdkHttpClient httpClient, Ec2Client ec2, ElasticLoadBalancingV2Client elb, AutoScalingClient autoScaling,
+                       Runnable onClose) {
+        this.httpClient = httpClient;
+        this.ec2 = ec2;
+        this.elb = elb;
+        this.autoScaling = autoScaling;
+        this.onClose = onClose;
+    }
+
+    // onClose runs once, after the clients and their connection pool are closed
+    static AwsClients create(AwsCredentialsProvider credentialsProvider, Region region, int maxConnections,
+                             Consumer<ClientOverrideConfiguration.Builder> overrides, Runnable onClose) {
+        // One connection pool shared by all three service clients; the SDK leaves closing it to us
+        var httpClient = ApacheHttpClient.builder()
+            .maxConnections(maxConnections)
+            .build();
+
+        var ec2 = Ec2Client.builder()
+            .httpClient(httpClient)
+            .credentialsProvider(credentialsProvider)
+            .region(region)
+            .overrideConfiguration(overrides)
+            .build();
+        var elb = ElasticLoadBalancingV2Client.builder()
+            .httpClient(httpClient)
+            .credentialsProvider(credentialsProvider)
+            .region(region)
+            .overrideConfiguration(overrides)
+            .build();
+        var autoScaling = AutoScalingClient.builder()
+            .httpClient(httpClient)
+            .credentialsProvider(credentialsProvider)
+            .region(region)
+            .overrideConfiguration(overrides)
+            .build();
+
+        return new AwsClients(httpClient, ec2, elb, autoScaling, onClose);
+    }
+
+    Lease lease() {
+        leases.incrementAndGet();
+        lastUsedNanos = System.nanoTime();
+        return new Lease();
+    }
+
+    boolean isIdle(long nowNanos, long idleNanos) {
+        return leases.get() == 0 && nowNanos - lastUsedNanos >= idleNanos;
+    }
+
+    boolean isClosed() {
+        return closed.get();
+    }
+
+    // Called once the registry has dropped this entry; the clients close as soon as the last lease is released
+    void retire() {
+        retired = true;
+        if (leases.get() == 0) {
+            close();
+        }
+    }
+
+    private void release() {
+        lastUsedNanos = System.nanoTime();
+        if (leases.decrementAndGet() == 0 && retired) {
+            close();
+        }
+    }
+
+    private void close() {
+        if (closed.compareAndSet(false, true)) {
+            ec2.close();
+            elb.close();
+            autoScaling.close();
+            httpClient.close();
+            onClose.run();
+        }
+    }
+
+    public final class Lease implements AutoCloseable {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Lease() {
+        }
+
+        public Ec2Client ec2() {
+            return ec2;
+        }
+
+        public ElasticLoadBalancingV2Client elb() {
+            return elb;
+        }
+
+        public AutoScalingClient autoScaling() {
+            return autoScaling;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                release();
+            }
+        }
+    }
+}
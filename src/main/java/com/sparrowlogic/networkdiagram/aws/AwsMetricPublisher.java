@@ -0,0 +1,72 @@
+package com.sparrowlogic.networkdiagram.aws;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import software.amazon.awssdk.core.metrics.CoreMetric;
+import software.amazon.awssdk.metrics.MetricCollection;
+import software.amazon.awssdk.metrics.MetricPublisher;
+import software.amazon.awssdk.metrics.SdkMetric;
+
+import java.time.Duration;
+
+// Turns the SDK's per-call metric collections into Micrometer meters. Every paginator page is its
+// own API call, so the call count per operation is also the number of pages fetched. One publisher
+// is attached to each (profile, region) client set, which is where the profile and region tags come from;
+// the registry passes them through MetricTags first.
+final class AwsMetricPublisher implements MetricPublisher {
+
+    private final MeterRegistry registry;
+    private final Tags tags;
+
+    AwsMetricPublisher(MeterRegistry registry, String profile, String region) {
+        this.registry = registry;
+        this.tags = Tags.of("profile", profile != null ? profile : "default", "region", region);
+    }
+
+    @Override
+    public void publish(MetricCollection metrics) {
+        var callTags = tags.and(
+            "service", first(metrics, CoreMetric.SERVICE_ID, "unknown"),
+            "operation", first(metrics, CoreMetric.OPERATION_NAME, "unknown"));
+        var successful = first(metrics, CoreMetric.API_CALL_SUCCESSFUL, false);
+
+        Timer.builder("aws.api.calls")
+            .description("AWS API call latency including retries; the count is the number of pages fetched")
+            .tags(callTags.and("outcome", successful ? "success" : "failure"))
+            .register(registry)
+            .record(first(metrics, CoreMetric.API_CALL_DURATION, Duration.ZERO));
+
+        int retries = first(metrics, CoreMetric.RETRY_COUNT, 0);
+        if (retries > 0) {
+            Counter.builder("aws.api.retries")
+                .description("Retried AWS API call attempts")
+                .tags(callTags)
+                .register(registry)
+                .increment(retries);
+        }
+
+        // Error types are reported per attempt, on the child collections
+        var throttled = metrics.children().stream()
+            .flatMap(attempt -> attempt.metricValues(CoreMetric.ERROR_TYPE).stream())
+            .filter("Throttling"::equals)
+            .count();
+        if (throttled > 0) {
+            Counter.builder("aws.api.throttled")
+                .description("AWS API call attempts rejected by throttling")
+                .tags(callTags)
+                .register(registry)
+                .increment(throttled);
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private static <T> T first(MetricCollection metrics, SdkMetric<T> metric, T fallback) {
+        var values = metrics.metricValues(metric);
+        return values.isEmpty() || values.get(0) == null ? fallback : values.get(0);
+    }
+}
@@ -0,0 +1,48 @@
+package com.sparrowlogic.networkdiagram.aws;
+
+import software.amazon.awssdk.profiles.ProfileFile;
+import software.amazon.awssdk.regions.Region;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Profile and region come straight from request parameters, and every distinct tag value is a new
+// time series. Regions the SDK does not know and profiles missing from the AWS config files are
+// tagged "other", so the number of series stays bounded by what the machine is set up to reach.
+public final class MetricTags {
+
+    static final String OTHER = "other";
+
+    private static final Set<String> REGIONS = Region.regions().stream()
+        .map(Region::id)
+        .collect(Collectors.toUnmodifiableSet());
+
+    private MetricTags() {
+    }
+
+    public static String region(String region) {
+        return region != null && REGIONS.contains(region) ? region : OTHER;
+    }
+
+    // Re-reads the profile files, which is cheap next to what it guards: it only runs when a client
+    // set or a limiter bucket is created
+    public static String profile(String profile) {
+        return profile(profile, configuredProfiles());
+    }
+
+    static String profile(String profile, Set<String> configured) {
+        if (profile == null) {
+            return "default";
+        }
+        return configured.contains(profile) ? profile : OTHER;
+    }
+
+    private static Set<String> configuredProfiles() {
+        try {
+            return ProfileFile.defaultProfileFile().profiles().keySet();
+        } catch (RuntimeException e) {
+            // Unreadable or missing config files: nothing is configured
+            return Set.of();
+        }
+    }
+}
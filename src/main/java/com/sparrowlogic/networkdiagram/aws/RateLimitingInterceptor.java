@@ -0,0 +1,72 @@
+package com.sparrowlogic.networkdiagram.aws;
+
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.core.retry.RetryMode;
+import software.amazon.awssdk.core.retry.RetryPolicyContext;
+import software.amazon.awssdk.core.retry.RetryUtils;
+import software.amazon.awssdk.core.retry.backoff.FullJitterBackoffStrategy;
+import software.amazon.awssdk.core.retry.conditions.RetryCondition;
+
+import java.time.Duration;
+
+// Connects the SDK to the shared limiter for one (profile, region) client set. beforeTransmission runs
+// once per attempt, retries included, so every request on the wire holds a token. Throttling is only
+// visible once the SDK has parsed the error, which is why it is picked up in the retry condition.
+final class RateLimitingInterceptor implements ExecutionInterceptor, RetryCondition {
+
+    private static final ExecutionAttribute<Long> SENT_AT = new ExecutionAttribute<>("RateLimiterSentAt");
+
+    private final AdaptiveRateLimiter limiter;
+    private final String profile;
+    private final String region;
+    private final RetryCondition delegate = RetryCondition.defaultRetryCondition();
+
+    RateLimitingInterceptor(AdaptiveRateLimiter limiter, String profile, String region) {
+        this.limiter = limiter;
+        this.profile = profile;
+        this.region = region;
+    }
+
+    // Standard retry mode keeps its retry quota, so a throttled account stops retrying altogether
+    // instead of piling on. Full jitter spreads the retries of concurrent crawls apart.
+    RetryPolicy retryPolicy(Duration baseDelay, Duration maxBackoff) {
+        var backoff = FullJitterBackoffStrategy.builder().baseDelay(baseDelay).maxBackoffTime(maxBackoff).build();
+        return RetryPolicy.builder(RetryMode.STANDARD)
+            .retryCondition(this)
+            .backoffStrategy(backoff)
+            .throttlingBackoffStrategy(backoff)
+            .build();
+    }
+
+    @Override
+    public void beforeTransmission(Context.BeforeTransmission context, ExecutionAttributes executionAttributes) {
+        executionAttributes.putAttribute(SENT_AT, limiter.acquire(key(executionAttributes)));
+    }
+
+    @Override
+    public void afterTransmission(Context.AfterTransmission context, ExecutionAttributes executionAttributes) {
+        if (context.httpResponse().isSuccessful()) {
+            limiter.onSuccess(key(executionAttributes));
+        }
+    }
+
+    @Override
+    public boolean shouldRetry(RetryPolicyContext context) {
+        if (context.exception() != null && RetryUtils.isThrottlingException(context.exception())) {
+            var sentAt = context.executionAttributes().getAttribute(SENT_AT);
+            limiter.onThrottle(key(context.executionAttributes()), sentAt != null ? sentAt : System.nanoTime());
+        }
+        return delegate.shouldRetry(context);
+    }
+
+    private AdaptiveRateLimiter.LimiterKey key(ExecutionAttributes attributes) {
+        return new AdaptiveRateLimiter.LimiterKey(profile, region,
+            attributes.getAttribute(SdkExecutionAttribute.SERVICE_NAME),
+            attributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME));
+    }
+}
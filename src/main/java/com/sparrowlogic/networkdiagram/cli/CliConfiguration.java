@@ -0,0 +1,26 @@
+package com.sparrowlogic.networkdiagram.cli;
+
+import com.sparrowlogic.networkdiagram.aws.AdaptiveRateLimiter;
+import com.sparrowlogic.networkdiagram.aws.AwsClientRegistry;
+import com.sparrowlogic.networkdiagram.service.AwsInfrastructureService;
+import com.sparrowlogic.networkdiagram.service.DiagramRenderCache;
+import com.sparrowlogic.networkdiagram.service.InventoryIndexes;
+import com.sparrowlogic.networkdiagram.service.MermaidDiagramService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+// Only the beans a batch run needs: no component scan, no auto-configuration, no web server.
+// Properties still come from application.properties and -D system properties.
+@Configuration(proxyBeanMethods = false)
+@Import({AdaptiveRateLimiter.class, AwsClientRegistry.class, AwsInfrastructureService.class,
+    DiagramRenderCache.class, InventoryIndexes.class, MermaidDiagramService.class})
+public class CliConfiguration {
+
+    @Bean
+    MeterRegistry meterRegistry() {
+        return new SimpleMeterRegistry();
+    }
+}
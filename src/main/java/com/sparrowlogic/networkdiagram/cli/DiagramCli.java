@@ -0,0 +1,203 @@
+package com.sparrowlogic.networkdiagram.cli;
+
+import com.sparrowlogic.networkdiagram.model.DiagramSection;
+import com.sparrowlogic.networkdiagram.service.AwsInfrastructureService;
+import com.sparrowlogic.networkdiagram.service.InfrastructureSource;
+import com.sparrowlogic.networkdiagram.service.JsonDumpInfrastructureSource;
+import com.sparrowlogic.networkdiagram.service.MermaidDiagramService;
+import org.springframework.boot.Banner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Command-line entry point for CI: crawls one or more VPCs and writes their diagram sections to
+// files or stdout, without starting the web application. See the README for the AOT and CDS setup
+// that keeps per-invocation startup low.
+public final class DiagramCli {
+
+    static final String USAGE = """
+        Usage: DiagramCli --region REGION [--profile PROFILE] [--vpc-id VPC ...] [--format markdown|mermaid|svg]
+                          [--output DIR] [--detail] [--dump DIR]
+
+          --region    AWS region to crawl (required)
+          --profile   AWS profile; the default credential chain when omitted
+          --vpc-id    VPC to draw; repeat or comma-separate for several, omit for every VPC in the region
+          --format    markdown (default): one document per VPC with a Mermaid block per section
+                      mermaid, svg: one file per section; both need --output
+          --output    directory to write to, as DIR/VPC.md or DIR/VPC/NNN-CIDR.(mmd|svg); stdout when omitted
+          --detail    draw every node and port range instead of the reduced view
+          --dump      read exported describe-* JSON from DIR/PROFILE/REGION instead of calling AWS
+        """;
+
+    private DiagramCli() {
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    // 0 on success, 1 when any VPC failed, 2 on a usage error
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.print(USAGE);
+            return 2;
+        }
+        if (options.help()) {
+            out.print(USAGE);
+            return 0;
+        }
+
+        try (var context = start(options)) {
+            // Chosen here rather than through inventory.source, whose condition AOT processing has already fixed
+            InfrastructureSource source = options.dump() != null ?
+                new JsonDumpInfrastructureSource(options.dump()) :
+                context.getBean(AwsInfrastructureService.class);
+            var mermaidService = context.getBean(MermaidDiagramService.class);
+            var vpcIds = options.vpcIds().isEmpty() ? source.vpcIds(options.profile(), options.region()) : options.vpcIds();
+            var failures = 0;
+            for (var vpcId : vpcIds) {
+                try {
+                    var components = source.getInfrastructure(options.profile(), options.region(), vpcId);
+                    write(vpcId, mermaidService.generateSections(components, options.detail()), options, out);
+                } catch (RuntimeException e) {
+                    err.println("Failed to draw " + vpcId + ": " + e.getMessage());
+                    failures++;
+                }
+            }
+            return failures == 0 ? 0 : 1;
+        } catch (SpringApplication.AbandonedRunException e) {
+            // Spring AOT processing runs main() only to capture the context; let it have it
+            throw e;
+        } catch (RuntimeException e) {
+            err.println(e.getMessage());
+            return 1;
+        }
+    }
+
+    static ConfigurableApplicationContext start(Options options) {
+        // Logs go to the console, so keep it quiet when the diagrams are written there
+        return new SpringApplicationBuilder(CliConfiguration.class)
+            .web(WebApplicationType.NONE)
+            .bannerMode(Banner.Mode.OFF)
+            .logStartupInfo(false)
+            .properties(Map.of("logging.threshold.console", options.output() == null ? "off" : "warn"))
+            .run();
+    }
+
+    static void write(String vpcId, List<DiagramSection> sections, Options options, PrintStream out) {
+        try {
+            switch (options.format()) {
+                case "markdown" -> {
+                    var document = markdown(vpcId, sections);
+                    if (options.output() == null) {
+                        out.print(document);
+                    } else {
+                        Files.createDirectories(options.output());
+                        Files.writeString(options.output().resolve(vpcId + ".md"), document, StandardCharsets.UTF_8);
+                    }
+                }
+                case "mermaid", "svg" -> {
+                    var directory = options.output().resolve(vpcId);
+                    Files.createDirectories(directory);
+                    var svg = options.format().equals("svg");
+                    for (int i = 0; i < sections.size(); i++) {
+                        var section = sections.get(i);
+                        var name = String.format("%03d-%s.%s", i + 1, section.cidr().replaceAll("[^A-Za-z0-9.-]", "_"),
+                            svg ? "svg" : "mmd");
+                        Files.writeString(directory.resolve(name), svg ? section.svg() : section.text(), StandardCharsets.UTF_8);
+                    }
+                }
+                default -> throw new IllegalStateException("Unknown format " + options.format());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write diagrams for " + vpcId, e);
+        }
+    }
+
+    static String markdown(String vpcId, List<DiagramSection> sections) {
+        var document = new StringBuilder("# ").append(vpcId).append("\n\n");
+        if (sections.isEmpty()) {
+            document.append("No external exposure.\n\n");
+        }
+        sections.forEach(section -> document.append("## ").append(section.title()).append("\n\n```mermaid\n")
+            .append(section.text()).append(section.text().endsWith("\n") ? "" : "\n").append("```\n\n"));
+        return document.toString();
+    }
+
+    record Options(String profile, String region, List<String> vpcIds, String format, Path output, Path dump,
+                   boolean detail, boolean help) {
+
+        static Options parse(String[] args) {
+            String profile = null;
+            String region = null;
+            var vpcIds = new ArrayList<String>();
+            var format = "markdown";
+            Path output = null;
+            Path dump = null;
+            var detail = false;
+            for (int i = 0; i < args.length; i++) {
+                var arg = args[i];
+                String value = null;
+                var equals = arg.indexOf('=');
+                if (arg.startsWith("--") && equals > 0) {
+                    value = arg.substring(equals + 1);
+                    arg = arg.substring(0, equals);
+                }
+                switch (arg) {
+                    case "--help", "-h" -> {
+                        return new Options(null, null, List.of(), format, null, null, false, true);
+                    }
+                    case "--detail" -> detail = true;
+                    case "--profile", "--region", "--vpc-id", "--format", "--output", "--dump" -> {
+                        if (value == null) {
+                            if (i + 1 >= args.length) {
+                                throw new IllegalArgumentException(arg + " needs a value");
+                            }
+                            value = args[++i];
+                        }
+                        switch (arg) {
+                            case "--profile" -> profile = value;
+                            case "--region" -> region = value;
+                            case "--vpc-id" -> {
+                                for (var vpcId : value.split(",")) {
+                                    if (!vpcId.isBlank()) {
+                                        vpcIds.add(vpcId.trim());
+                                    }
+                                }
+                            }
+                            case "--format" -> format = value;
+                            case "--dump" -> dump = Path.of(value);
+                            default -> output = Path.of(value);
+                        }
+                    }
+                    default -> throw new IllegalArgumentException("Unknown option " + arg);
+                }
+            }
+            if (region == null) {
+                throw new IllegalArgumentException("--region is required");
+            }
+            if (!List.of("markdown", "mermaid", "svg").contains(format)) {
+                throw new IllegalArgumentException("Unknown format " + format);
+            }
+            if (output == null && !format.equals("markdown")) {
+                throw new IllegalArgumentException("--format " + format + " writes one file per section and needs --output");
+            }
+            return new Options(profile, region, List.copyOf(vpcIds), format, output, dump, detail, false);
+        }
+    }
+}
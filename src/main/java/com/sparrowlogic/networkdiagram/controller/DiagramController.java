@@ -1,24 +1,71 @@
 package com.sparrowlogic.networkdiagram.controller;
 
-import com.sparrowlogic.networkdiagram.service.AwsInfrastructureService;
+import com.sparrowlogic.networkdiagram.aws.MetricTags;
+import com.sparrowlogic.networkdiagram.model.DiagramSection;
+import com.sparrowlogic.networkdiagram.model.InfrastructureComponents;
+import com.sparrowlogic.networkdiagram.model.InventoryKey;
+import com.sparrowlogic.networkdiagram.service.InfrastructureCache;
 import com.sparrowlogic.networkdiagram.service.MermaidDiagramService;
-import org.commonmark.parser.Parser;
-import org.commonmark.renderer.html.HtmlRenderer;
+import com.sparrowlogic.networkdiagram.snapshot.SnapshotStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
 
 @Controller
 public class DiagramController {
+
+    private static final long STREAM_TIMEOUT_MILLIS = 15 * 60 * 1000L;
     
-    private final AwsInfrastructureService awsService;
+    private final InfrastructureCache infrastructureCache;
     private final MermaidDiagramService mermaidService;
+    private final SnapshotStore snapshotStore;
+    private final MeterRegistry meterRegistry;
+    // "svg" draws sections on the server; "mermaid" leaves layout to mermaid.js in the browser
+    private final String renderer;
+    // Sections listed per results page; each is only fetched once it scrolls into view
+    private final int pageSize;
+    private final ExecutorService streamExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    // Each stream may start a full crawl, so only this many run at once; the rest are turned away
+    private final Semaphore streamPermits;
     
-    public DiagramController(AwsInfrastructureService awsService, MermaidDiagramService mermaidService) {
-        this.awsService = awsService;
+    public DiagramController(InfrastructureCache infrastructureCache, MermaidDiagramService mermaidService,
+                             SnapshotStore snapshotStore, MeterRegistry meterRegistry,
+                             @Value("${diagram.renderer:svg}") String renderer,
+                             @Value("${diagram.page-size:25}") int pageSize,
+                             @Value("${diagram.stream.max-concurrent:8}") int maxConcurrentStreams) {
+        this.infrastructureCache = infrastructureCache;
         this.mermaidService = mermaidService;
+        this.snapshotStore = snapshotStore;
+        this.meterRegistry = meterRegistry;
+        this.renderer = renderer;
+        this.pageSize = Math.max(1, pageSize);
+        this.streamPermits = new Semaphore(Math.max(1, maxConcurrentStreams));
     }
 
     @GetMapping("/")
@@ -26,48 +73,223 @@ public class DiagramController {
         return "form";
     }
 
-    @PostMapping("/generate")
-    public String generateDiagram(@RequestParam String profile, @RequestParam String region, @RequestParam String vpcId, Model model) {
+    // The page only lists one page of section titles; the browser fetches each section's text (and SVG)
+    // from /diagram/section as it scrolls into view. GET makes the page cacheable: a reload of an
+    // unchanged page is answered with 304.
+    @RequestMapping(path = "/generate", method = {RequestMethod.GET, RequestMethod.POST})
+    public String generateDiagram(@RequestParam String profile, @RequestParam String region, @RequestParam String vpcId,
+                                  @RequestParam(defaultValue = "false") boolean refresh,
+                                  @RequestParam(required = false) Instant snapshot,
+                                  @RequestParam(defaultValue = "false") boolean stream,
+                                  @RequestParam(defaultValue = "false") boolean detail,
+                                  @RequestParam(defaultValue = "1") int page,
+                                  WebRequest webRequest, Model model) {
+        model.addAttribute("renderer", renderer);
+        model.addAttribute("profile", profile);
+        model.addAttribute("region", region);
+        model.addAttribute("vpcId", vpcId);
+        model.addAttribute("detail", detail);
+        model.addAttribute("snapshot", snapshot);
+
+        if (stream) {
+            // Render the page shell straight away; the browser pulls the sections from the event stream
+            var streamUrl = UriComponentsBuilder.fromPath("/generate/stream")
+                .queryParam("profile", profile)
+                .queryParam("region", region)
+                .queryParam("vpcId", vpcId)
+                .queryParam("refresh", refresh)
+                .queryParam("detail", detail)
+                .queryParamIfPresent("snapshot", Optional.ofNullable(snapshot))
+                .encode()
+                .toUriString();
+            model.addAttribute("streamUrl", streamUrl);
+            model.addAttribute("diagram", "");
+            model.addAttribute("markdown", "");
+            return "index";
+        }
+
+        var sample = Timer.start(meterRegistry);
+        var outcome = "failure";
         try {
-            var infrastructure = awsService.getInfrastructure(profile, region, vpcId);
-            var diagramOutput = mermaidService.generateDiagram(infrastructure);
-            
-            // Parse the output to separate load balancer sections
-            var sections = new java.util.ArrayList<java.util.Map<String, String>>();
-            var lines = diagramOutput.split("\n");
-            var currentSection = new java.util.HashMap<String, String>();
-            var currentText = new StringBuilder();
-            
-            for (var line : lines) {
-                if (line.startsWith("=== ") && line.endsWith(" ===")) {
-                    // Save previous section if exists
-                    if (!currentSection.isEmpty()) {
-                        currentSection.put("text", currentText.toString().trim());
-                        sections.add(currentSection);
-                    }
-                    // Start new section
-                    currentSection = new java.util.HashMap<>();
-                    currentSection.put("title", line.replace("===", "").trim());
-                    currentText = new StringBuilder();
-                } else if (!line.trim().isEmpty()) {
-                    currentText.append(line).append("\n");
-                }
-            }
-            
-            // Add last section
-            if (!currentSection.isEmpty()) {
-                currentSection.put("text", currentText.toString().trim());
-                sections.add(currentSection);
+            var infrastructure = infrastructureCache.get(profile, region, vpcId, refresh, snapshot);
+            var cidrs = mermaidService.sectionCidrs(infrastructure);
+            var pages = Math.max(1, (cidrs.size() + pageSize - 1) / pageSize);
+            var current = Math.min(Math.max(page, 1), pages);
+            var pageCidrs = cidrs.subList((current - 1) * pageSize, Math.min(current * pageSize, cidrs.size()));
+            // Sections carry their own ETags, so the page only changes with the list it shows
+            var etag = UUID.nameUUIDFromBytes((String.join("\n", pageCidrs) + "\n" + current + "/" + pages + "/" + renderer)
+                .getBytes(StandardCharsets.UTF_8)).toString();
+            if (webRequest.checkNotModified(etag)) {
+                outcome = "not-modified";
+                return null;
             }
-            
-            model.addAttribute("sections", sections);
+
+            model.addAttribute("cidrs", pageCidrs);
+            model.addAttribute("page", current);
+            model.addAttribute("pages", pages);
+            model.addAttribute("total", cidrs.size());
+            model.addAttribute("firstIndex", (current - 1) * pageSize);
             model.addAttribute("diagram", "");
             model.addAttribute("markdown", "");
             
+            outcome = "success";
             return "index";
         } catch (Exception e) {
             model.addAttribute("error", "Error loading AWS infrastructure: " + e.getMessage());
             return "error";
+        } finally {
+            recordRequest(sample, "page", region, outcome);
+        }
+    }
+
+    // Mermaid text of one section, revalidated by ETag so unchanged diagrams cost a 304
+    @GetMapping(path = "/diagram/section", produces = MediaType.TEXT_PLAIN_VALUE)
+    @ResponseBody
+    public ResponseEntity<String> section(@RequestParam String profile, @RequestParam String region,
+                                          @RequestParam String vpcId, @RequestParam String cidr,
+                                          @RequestParam(defaultValue = "false") boolean refresh,
+                                          @RequestParam(required = false) Instant snapshot,
+                                          @RequestParam(defaultValue = "false") boolean detail,
+                                          WebRequest webRequest) {
+        return sectionResponse("section", profile, region, vpcId, cidr, refresh, snapshot, detail, webRequest,
+            DiagramSection::text);
+    }
+
+    // The same section laid out on the server, for viewing or saving as an image
+    @GetMapping(path = "/diagram/section.svg", produces = "image/svg+xml")
+    @ResponseBody
+    public ResponseEntity<String> sectionSvg(@RequestParam String profile, @RequestParam String region,
+                                             @RequestParam String vpcId, @RequestParam String cidr,
+                                             @RequestParam(defaultValue = "false") boolean refresh,
+                                             @RequestParam(required = false) Instant snapshot,
+                                             @RequestParam(defaultValue = "false") boolean detail,
+                                             WebRequest webRequest) {
+        return sectionResponse("section-svg", profile, region, vpcId, cidr, refresh, snapshot, detail, webRequest,
+            DiagramSection::svg);
+    }
+
+    // Server-sent events: one "section" event per diagram as soon as it is built, then "done" (or "failed").
+    // Not "error": EventSource fires its own error event when the connection drops.
+    @GetMapping(path = "/generate/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public SseEmitter streamDiagram(@RequestParam String profile, @RequestParam String region, @RequestParam String vpcId,
+                                    @RequestParam(defaultValue = "false") boolean refresh,
+                                    @RequestParam(required = false) Instant snapshot,
+                                    @RequestParam(defaultValue = "false") boolean detail) {
+        var emitter = new SseEmitter(STREAM_TIMEOUT_MILLIS);
+        if (!streamPermits.tryAcquire()) {
+            try {
+                send(emitter, "failed", "Too many diagrams are being generated; try again shortly");
+                emitter.complete();
+            } catch (ClientAbortedException aborted) {
+                emitter.complete();
+            }
+            recordRequest(Timer.start(meterRegistry), "stream", region, "rejected");
+            return emitter;
+        }
+        streamExecutor.execute(() -> {
+            var sample = Timer.start(meterRegistry);
+            var outcome = "failure";
+            try {
+                var infrastructure = infrastructureCache.get(profile, region, vpcId, refresh, snapshot);
+                mermaidService.generateSections(infrastructure, detail, section -> send(emitter, "section", section));
+                send(emitter, "done", "");
+                emitter.complete();
+                outcome = "success";
+            } catch (ClientAbortedException e) {
+                outcome = "aborted";
+                emitter.complete();
+            } catch (Exception e) {
+                try {
+                    send(emitter, "failed", "Error loading AWS infrastructure: " + e.getMessage());
+                    emitter.complete();
+                } catch (ClientAbortedException aborted) {
+                    emitter.complete();
+                }
+            } finally {
+                streamPermits.release();
+                recordRequest(sample, "stream", region, outcome);
+            }
+        });
+        return emitter;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        streamExecutor.shutdownNow();
+    }
+
+    @GetMapping("/snapshots")
+    @ResponseBody
+    public List<Instant> listSnapshots(@RequestParam String profile, @RequestParam String region, @RequestParam String vpcId) {
+        return snapshotStore.list(new InventoryKey(profile, region, vpcId));
+    }
+
+    @GetMapping("/cache/stats")
+    @ResponseBody
+    public InfrastructureCache.CacheStats cacheStats() {
+        return infrastructureCache.stats();
+    }
+
+    private ResponseEntity<String> sectionResponse(String endpoint, String profile, String region, String vpcId, String cidr,
+                                                   boolean refresh, Instant snapshot, boolean detail, WebRequest webRequest,
+                                                   Function<DiagramSection, String> body) {
+        var sample = Timer.start(meterRegistry);
+        var outcome = "failure";
+        try {
+            var infrastructure = infrastructureCache.get(profile, region, vpcId, refresh, snapshot);
+            // Answer If-None-Match from the remembered hash before anything is rendered
+            var hash = mermaidService.sectionHash(infrastructure, cidr, detail);
+            if (hash.isPresent() && webRequest.checkNotModified(hash.get())) {
+                outcome = "not-modified";
+                return null;
+            }
+            var response = mermaidService.generateSection(infrastructure, cidr, detail)
+                .map(section -> ResponseEntity.ok()
+                    .eTag(section.hash())
+                    // Lets the results page offer "Show details" without fetching the section twice
+                    .header("X-Diagram-Reduced", Boolean.toString(section.reduced()))
+                    .cacheControl(CacheControl.noCache())
+                    .body(body.apply(section)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+            outcome = response.getStatusCode().is2xxSuccessful() ? "success" : "not-found";
+            return response;
+        } catch (IllegalArgumentException e) {
+            // No snapshot at that time, or a malformed parameter; the page shows the message in place
+            outcome = "not-found";
+            return sectionError(HttpStatus.NOT_FOUND, e.getMessage());
+        } catch (Exception e) {
+            return sectionError(HttpStatus.BAD_GATEWAY, "Error loading AWS infrastructure: " + e.getMessage());
+        } finally {
+            recordRequest(sample, endpoint, region, outcome);
+        }
+    }
+
+    // Plain text whichever endpoint failed, so the lazy-loading page can show it instead of a Whitelabel page
+    private static ResponseEntity<String> sectionError(HttpStatus status, String message) {
+        return ResponseEntity.status(status).contentType(MediaType.TEXT_PLAIN).body(message);
+    }
+
+    // Inventory load included, so slow accounts and slow rendering both show up here
+    private void recordRequest(Timer.Sample sample, String endpoint, String region, String outcome) {
+        sample.stop(Timer.builder("diagram.request")
+            .description("End-to-end time to serve a diagram request")
+            .tags("endpoint", endpoint, "region", MetricTags.region(region), "outcome", outcome)
+            .register(meterRegistry));
+    }
+
+    private static void send(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            // The browser went away; stop generating
+            throw new ClientAbortedException(e);
+        }
+    }
+
+    private static final class ClientAbortedException extends RuntimeException {
+        ClientAbortedException(Throwable cause) {
+            super(cause);
         }
     }
 }
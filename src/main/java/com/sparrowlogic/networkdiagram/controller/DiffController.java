@@ -0,0 +1,57 @@
+package com.sparrowlogic.networkdiagram.controller;
+
+import com.sparrowlogic.networkdiagram.model.InventoryDiff;
+import com.sparrowlogic.networkdiagram.service.DiffService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.time.Instant;
+import java.util.Map;
+
+// "What changed in exposure" between a snapshot and a later snapshot or the current inventory
+@Controller
+public class DiffController {
+
+    private final DiffService diffService;
+
+    public DiffController(DiffService diffService) {
+        this.diffService = diffService;
+    }
+
+    @GetMapping("/diff")
+    public String diffPage(@RequestParam String profile, @RequestParam String region, @RequestParam String vpcId,
+                           @RequestParam Instant from, @RequestParam(required = false) Instant to,
+                           @RequestParam(defaultValue = "false") boolean detail, Model model) {
+        model.addAttribute("profile", profile);
+        model.addAttribute("region", region);
+        model.addAttribute("vpcId", vpcId);
+        model.addAttribute("detail", detail);
+        try {
+            model.addAttribute("diff", diffService.diff(profile, region, vpcId, from, to, detail));
+            return "diff";
+        } catch (Exception e) {
+            model.addAttribute("error", "Error comparing inventories: " + e.getMessage());
+            return "error";
+        }
+    }
+
+    @GetMapping("/api/diff")
+    @ResponseBody
+    public InventoryDiff diff(@RequestParam String profile, @RequestParam String region, @RequestParam String vpcId,
+                              @RequestParam Instant from, @RequestParam(required = false) Instant to,
+                              @RequestParam(defaultValue = "false") boolean detail) {
+        return diffService.diff(profile, region, vpcId, from, to, detail);
+    }
+
+    // The page handles its own errors, so this only answers the JSON endpoint
+    @ExceptionHandler(IllegalArgumentException.class)
+    @ResponseBody
+    public ResponseEntity<Map<String, String>> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    }
+}
@@ -0,0 +1,132 @@
+package com.sparrowlogic.networkdiagram.controller;
+
+import com.sparrowlogic.networkdiagram.model.DiagramSection;
+import com.sparrowlogic.networkdiagram.model.InfrastructureComponents;
+import com.sparrowlogic.networkdiagram.model.InventoryKey;
+import com.sparrowlogic.networkdiagram.service.AwsInfrastructureService;
+import com.sparrowlogic.networkdiagram.service.InfrastructureCache;
+import com.sparrowlogic.networkdiagram.service.JobService;
+import com.sparrowlogic.networkdiagram.service.MermaidDiagramService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Diagram generation as background jobs: submitting returns at once, and the crawl and render run on
+// the job executor however long they take. Clients poll GET /api/jobs/{id} or follow its events.
+@RestController
+public class JobController {
+
+    private static final long EVENTS_TIMEOUT_MILLIS = 60 * 60 * 1000L;
+
+    private final JobService jobService;
+    private final InfrastructureCache infrastructureCache;
+    private final AwsInfrastructureService awsService;
+    private final MermaidDiagramService mermaidService;
+
+    public JobController(JobService jobService, InfrastructureCache infrastructureCache, AwsInfrastructureService awsService,
+                         MermaidDiagramService mermaidService) {
+        this.jobService = jobService;
+        this.infrastructureCache = infrastructureCache;
+        this.awsService = awsService;
+        this.mermaidService = mermaidService;
+    }
+
+    // hash is the same value /generate sends as its ETag
+    public record DiagramResult(String hash, List<DiagramSection> sections) {}
+
+    @PostMapping("/api/jobs/diagram")
+    public ResponseEntity<JobService.Status> submitDiagram(@RequestParam(required = false) String profile,
+                                                           @RequestParam String region,
+                                                           @RequestParam String vpcId,
+                                                           @RequestParam(defaultValue = "false") boolean refresh,
+                                                           @RequestParam(required = false) Instant snapshot,
+                                                           @RequestParam(defaultValue = "false") boolean detail) {
+        var status = jobService.submit("diagram", progress -> {
+            // Subscribed before loading so that a crawl shared with another request is followed too
+            var unsubscribe = awsService.onProgress(new InventoryKey(profile, region, vpcId),
+                message -> progress.report("crawl", message));
+            InfrastructureComponents infrastructure;
+            try {
+                infrastructure = infrastructureCache.get(profile, region, vpcId, refresh, snapshot);
+            } finally {
+                unsubscribe.run();
+            }
+            var sections = new ArrayList<DiagramSection>();
+            mermaidService.generateSections(infrastructure, detail, section -> {
+                sections.add(section);
+                progress.report("render", "Rendered " + section.title());
+            });
+            return new DiagramResult(MermaidDiagramService.reportHash(sections), sections);
+        });
+        return accepted(status);
+    }
+
+    @GetMapping("/api/jobs/{id}")
+    public ResponseEntity<JobService.Status> status(@PathVariable String id) {
+        return ResponseEntity.of(jobService.status(id));
+    }
+
+    @DeleteMapping("/api/jobs/{id}")
+    public ResponseEntity<Void> cancel(@PathVariable String id) {
+        return jobService.cancel(id) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+
+    // Replays past events (or those after Last-Event-ID on reconnect), streams new ones as "progress"
+    // events, and ends with a "status" event holding the finished job
+    @GetMapping(value = "/api/jobs/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> events(@PathVariable String id,
+                                             @RequestHeader(value = "Last-Event-ID", defaultValue = "0") long lastEventId) {
+        var emitter = new SseEmitter(EVENTS_TIMEOUT_MILLIS);
+        Consumer<JobService.Event> listener = event -> {
+            try {
+                if (event != null) {
+                    emitter.send(SseEmitter.event().id(Long.toString(event.sequence())).name("progress")
+                        .data(event, MediaType.APPLICATION_JSON));
+                } else {
+                    emitter.send(SseEmitter.event().name("status")
+                        .data(jobService.status(id).orElse(null), MediaType.APPLICATION_JSON));
+                    emitter.complete();
+                }
+            } catch (IOException | IllegalStateException e) {
+                throw new IllegalStateException("Client disconnected", e);
+            }
+        };
+        if (!jobService.subscribe(id, lastEventId, listener)) {
+            return ResponseEntity.notFound().build();
+        }
+        emitter.onTimeout(() -> jobService.unsubscribe(id, listener));
+        emitter.onError(error -> jobService.unsubscribe(id, listener));
+        return ResponseEntity.ok(emitter);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    }
+
+    @ExceptionHandler(JobService.JobRejectedException.class)
+    public ResponseEntity<Map<String, String>> rejected(JobService.JobRejectedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+    }
+
+    static ResponseEntity<JobService.Status> accepted(JobService.Status status) {
+        return ResponseEntity.accepted().location(URI.create("/api/jobs/" + status.id())).body(status);
+    }
+}
@@ -0,0 +1,46 @@
+package com.sparrowlogic.networkdiagram.controller;
+
+import com.sparrowlogic.networkdiagram.index.AttackPathIndex;
+import com.sparrowlogic.networkdiagram.index.ReachabilityIndex;
+import com.sparrowlogic.networkdiagram.service.ReachabilityService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+public class ReachabilityController {
+
+    private final ReachabilityService reachabilityService;
+
+    public ReachabilityController(ReachabilityService reachabilityService) {
+        this.reachabilityService = reachabilityService;
+    }
+
+    // source may be repeated to answer many queries against one index in a single call
+    @GetMapping("/api/reachability")
+    public List<ReachabilityIndex.Reachability> reachability(@RequestParam String profile, @RequestParam String region,
+                                                             @RequestParam String vpcId, @RequestParam List<String> source,
+                                                             @RequestParam(defaultValue = "tcp") String protocol,
+                                                             @RequestParam(defaultValue = "-1") int port) {
+        return reachabilityService.reachableFrom(profile, region, vpcId, source, protocol, port);
+    }
+
+    // Multi-hop paths through security group references; without source, from every external CIDR in the rules
+    @GetMapping("/api/reachability/paths")
+    public List<AttackPathIndex.Exposure> paths(@RequestParam String profile, @RequestParam String region,
+                                                @RequestParam String vpcId, @RequestParam(required = false) List<String> source,
+                                                @RequestParam(defaultValue = "all") String protocol,
+                                                @RequestParam(defaultValue = "-1") int port) {
+        return reachabilityService.attackPaths(profile, region, vpcId, source, protocol, port);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    }
+}
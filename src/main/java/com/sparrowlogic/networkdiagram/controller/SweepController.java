@@ -0,0 +1,51 @@
+package com.sparrowlogic.networkdiagram.controller;
+
+import com.sparrowlogic.networkdiagram.service.JobService;
+import com.sparrowlogic.networkdiagram.service.SweepService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+public class SweepController {
+
+    private final SweepService sweepService;
+    private final JobService jobService;
+
+    public SweepController(SweepService sweepService, JobService jobService) {
+        this.sweepService = sweepService;
+        this.jobService = jobService;
+    }
+
+    // Leave regions empty to sweep every region enabled for each profile
+    public record SweepRequest(List<String> profiles, List<String> regions, boolean refresh) {}
+
+    // Runs as a job; follow it through /api/jobs/{id}, where the finished job holds the SweepReport
+    @PostMapping("/api/sweep")
+    public ResponseEntity<JobService.Status> sweep(@RequestBody SweepRequest request) {
+        if (request.profiles() == null || request.profiles().isEmpty()) {
+            throw new IllegalArgumentException("At least one profile is required");
+        }
+        var status = jobService.submit("sweep", progress ->
+            sweepService.sweep(request.profiles(), request.regions(), request.refresh(), update ->
+                progress.report("sweep", "[" + update.regionsDone() + "/" + update.regionsTotal() + " regions, "
+                    + update.vpcsDone() + " VPCs, " + update.failures() + " failures] " + update.message())));
+        return JobController.accepted(status);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    }
+
+    @ExceptionHandler(JobService.JobRejectedException.class)
+    public ResponseEntity<Map<String, String>> rejected(JobService.JobRejectedException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+    }
+}
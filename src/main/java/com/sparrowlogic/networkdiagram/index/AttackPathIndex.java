@@ -0,0 +1,251 @@
+package com.sparrowlogic.networkdiagram.index;
+
+import com.sparrowlogic.networkdiagram.model.Cidr;
+import com.sparrowlogic.networkdiagram.model.CompactRuleList;
+import com.sparrowlogic.networkdiagram.model.InfrastructureComponents;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+// Follows security group references transitively: an ingress rule in B naming sg-A is an edge A -> B,
+// so internet -> web -> app -> db paths show up even though only web is open to the internet. Groups
+// are numbered 0..n-1 and edges are held in flat CSR arrays; each query is a breadth-first search with
+// BitSet frontiers, linear in groups plus edges, and returns one shortest path to every reachable group.
+public final class AttackPathIndex {
+
+    // Egress to these ranges (or to anything containing them) is taken to reach other groups' members,
+    // whose private addresses the inventory does not record
+    private static final List<Cidr> PRIVATE_RANGES = Stream.of("10.0.0.0/8", "172.16.0.0/12", "192.168.0.0/16",
+        "100.64.0.0/10", "fc00::/7").map(Cidr::parse).toList();
+
+    private final List<InfrastructureComponents.SecurityGroup> groups;
+    private final List<String> externalCidrs;
+    private final List<List<String>> instanceIds;
+    private final List<List<String>> autoScalingGroups;
+
+    // Edges leaving group g are targets[offsets[g]] .. targets[offsets[g + 1] - 1]
+    private final int[] offsets;
+    private final int[] targets;
+    private final PortSet[] edgePorts;
+
+    // Ingress rules with an address source, looked up by prefix containment
+    private final CidrTrie entries = new CidrTrie();
+    private final List<PortSet> entryPorts = new ArrayList<>();
+    private int[] entryGroup = new int[64];
+
+    private AttackPathIndex(InfrastructureComponents components) {
+        groups = components.securityGroups();
+        var count = groups.size();
+        var indexById = new HashMap<String, Integer>();
+        for (int g = 0; g < count; g++) {
+            indexById.putIfAbsent(groups.get(g).id(), g);
+        }
+
+        // Keyed by edge(from, to)
+        var ingress = new HashMap<Long, PortSet>();
+        var egressToGroup = new HashMap<Long, PortSet>();
+        var egressToPrivate = new PortSet[count];
+        Arrays.fill(egressToPrivate, PortSet.EMPTY);
+        var external = new HashMap<String, Cidr>();
+
+        for (int g = 0; g < count; g++) {
+            var rules = groups.get(g).rules();
+            var compact = rules instanceof CompactRuleList list ? list : null;
+            for (int r = 0; r < rules.size(); r++) {
+                var rule = rules.get(r);
+                var ports = PortSet.of(ReachabilityIndex.protocolNumber(rule.protocol()), rule.fromPort(), rule.toPort());
+                if (ports.isEmpty()) {
+                    continue;
+                }
+                var ingressRule = "ingress".equals(rule.direction());
+                if (rule.source().startsWith("sg-")) {
+                    var other = indexById.get(rule.source());
+                    if (other != null && other != g) {
+                        if (ingressRule) {
+                            ingress.merge(edge(other, g, count), ports, PortSet::union);
+                        } else {
+                            egressToGroup.merge(edge(g, other, count), ports, PortSet::union);
+                        }
+                    }
+                    continue;
+                }
+                var source = compact != null ? compact.pool().cidr(compact.sourceId(r)) : Cidr.parse(rule.source());
+                if (source == null) {
+                    continue;
+                }
+                if (ingressRule) {
+                    entries.insert(source, addEntry(g, ports));
+                    if (ExposureIndex.isExternalCidr(rule.source())) {
+                        external.put(rule.source(), source);
+                    }
+                } else if (reachesPrivateRange(source)) {
+                    egressToPrivate[g] = egressToPrivate[g].union(ports);
+                }
+            }
+        }
+
+        // Same order as Cidr.compareText, without parsing every string again on each comparison
+        externalCidrs = external.entrySet().stream()
+            .sorted(Map.Entry.<String, Cidr>comparingByValue(Cidr.ORDER).thenComparing(Map.Entry.comparingByKey()))
+            .map(Map.Entry::getKey)
+            .toList();
+
+        // A hop needs both the target's ingress and the source's egress, so it carries their intersection.
+        // Sorting the keys orders each group's edges by target, which keeps the chosen paths stable.
+        var keys = ingress.keySet().stream().mapToLong(Long::longValue).sorted().toArray();
+        var edgeTargets = new int[keys.length];
+        var ports = new PortSet[keys.length];
+        offsets = new int[count + 1];
+        var edgeCount = 0;
+        for (var key : keys) {
+            var from = (int) (key / count);
+            var allowed = ingress.get(key).intersect(egressToPrivate[from].union(egressToGroup.getOrDefault(key, PortSet.EMPTY)));
+            if (!allowed.isEmpty()) {
+                edgeTargets[edgeCount] = (int) (key % count);
+                ports[edgeCount++] = allowed;
+                offsets[from + 1]++;
+            }
+        }
+        for (int g = 0; g < count; g++) {
+            offsets[g + 1] += offsets[g];
+        }
+        targets = Arrays.copyOf(edgeTargets, edgeCount);
+        edgePorts = Arrays.copyOf(ports, edgeCount);
+
+        var instancesBySg = new HashMap<String, List<String>>();
+        components.instances().forEach(instance -> instance.securityGroups().forEach(sgId ->
+            instancesBySg.computeIfAbsent(sgId, id -> new ArrayList<>()).add(instance.id())));
+        var asgsBySg = new HashMap<String, List<String>>();
+        components.autoScalingGroups().forEach(asg -> asg.securityGroups().forEach(sgId ->
+            asgsBySg.computeIfAbsent(sgId, id -> new ArrayList<>()).add(asg.name())));
+        instanceIds = groups.stream().map(sg -> List.copyOf(instancesBySg.getOrDefault(sg.id(), List.of()))).toList();
+        autoScalingGroups = groups.stream().map(sg -> List.copyOf(asgsBySg.getOrDefault(sg.id(), List.of()))).toList();
+    }
+
+    public static AttackPathIndex of(InfrastructureComponents components) {
+        return new AttackPathIndex(components);
+    }
+
+    // Paths from every external CIDR any ingress rule names (0.0.0.0/0, ::/0, /32 and /128 hosts)
+    public List<Exposure> fromExternalCidrs(String protocol, int port) {
+        return externalCidrs.stream().map(cidr -> pathsFrom(cidr, protocol, port)).toList();
+    }
+
+    // protocol and port restrict every hop, including the first, to traffic they allow; "all" and
+    // ANY_PORT follow any hop. Paths come out by hop count, then in security group order.
+    public Exposure pathsFrom(String addressOrPrefix, String protocol, int port) {
+        var source = Cidr.parse(addressOrPrefix);
+        if (source == null) {
+            throw new IllegalArgumentException("Not an IPv4/IPv6 address or prefix: " + addressOrPrefix);
+        }
+        var queryProtocol = ReachabilityIndex.protocolNumber(protocol);
+        if (queryProtocol < ReachabilityIndex.ALL_PROTOCOLS) {
+            throw new IllegalArgumentException("Unknown protocol: " + protocol);
+        }
+
+        var count = groups.size();
+        var firstHop = new PortSet[count];
+        var entered = new BitSet(count);
+        entries.forEachCovering(source, entry -> {
+            var ports = entryPorts.get(entry);
+            if (ports.allows(queryProtocol, port)) {
+                var g = entryGroup[entry];
+                firstHop[g] = firstHop[g] == null ? ports : firstHop[g].union(ports);
+                entered.set(g);
+            }
+        });
+
+        var reached = (BitSet) entered.clone();
+        var viaEdge = new int[count];
+        var parent = new int[count];
+        var order = new ArrayList<Integer>();
+        entered.stream().forEach(order::add);
+        var frontier = entered;
+        while (!frontier.isEmpty()) {
+            var next = new BitSet(count);
+            for (int g = frontier.nextSetBit(0); g >= 0; g = frontier.nextSetBit(g + 1)) {
+                for (int e = offsets[g]; e < offsets[g + 1]; e++) {
+                    var target = targets[e];
+                    if (!reached.get(target) && edgePorts[e].allows(queryProtocol, port)) {
+                        reached.set(target);
+                        next.set(target);
+                        parent[target] = g;
+                        viaEdge[target] = e;
+                    }
+                }
+            }
+            next.stream().forEach(order::add);
+            frontier = next;
+        }
+
+        var paths = new ArrayList<AttackPath>(order.size());
+        for (var g : order) {
+            paths.add(path(addressOrPrefix, g, firstHop, parent, viaEdge));
+        }
+        return new Exposure(addressOrPrefix, protocol, port, paths);
+    }
+
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    // Walks parent links back to a group the source reaches directly
+    private AttackPath path(String source, int target, PortSet[] firstHop, int[] parent, int[] viaEdge) {
+        var reversed = new ArrayList<Hop>();
+        var ports = PortSet.of(ReachabilityIndex.ALL_PROTOCOLS, 0, 0);
+        var node = target;
+        while (firstHop[node] == null) {
+            var edgePortSet = edgePorts[viaEdge[node]];
+            reversed.add(new Hop(groups.get(parent[node]).id(), groups.get(node).id(), edgePortSet.labels()));
+            ports = ports.intersect(edgePortSet);
+            node = parent[node];
+        }
+        reversed.add(new Hop(source, groups.get(node).id(), firstHop[node].labels()));
+        ports = ports.intersect(firstHop[node]);
+
+        var hops = reversed.reversed();
+        var group = groups.get(target);
+        return new AttackPath(group.id(), group.name(), hops.size(), hops, ports.labels(),
+            instanceIds.get(target), autoScalingGroups.get(target));
+    }
+
+    private int addEntry(int group, PortSet ports) {
+        var entry = entryPorts.size();
+        if (entry == entryGroup.length) {
+            entryGroup = Arrays.copyOf(entryGroup, entry * 2);
+        }
+        entryGroup[entry] = group;
+        entryPorts.add(ports);
+        return entry;
+    }
+
+    // from * count + to rather than from << 32 | to: Long.hashCode folds the halves together with XOR,
+    // which would send every pair with the same from ^ to into one bucket
+    private static long edge(int from, int to, int count) {
+        return (long) from * count + to;
+    }
+
+    private static boolean reachesPrivateRange(Cidr destination) {
+        for (var range : PRIVATE_RANGES) {
+            if (range.contains(destination) || destination.contains(range)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // from is the query source for the first hop and a security group id after that; ports are the
+    // traffic the hop allows, i.e. the target's ingress intersected with the source's egress
+    public record Hop(String from, String to, List<String> ports) {}
+
+    // ports is what every hop of the path allows, so it may be empty even though each hop is open
+    public record AttackPath(String securityGroupId, String securityGroupName, int hops, List<Hop> path,
+                             List<String> ports, List<String> instanceIds, List<String> autoScalingGroups) {}
+
+    public record Exposure(String source, String protocol, int port, List<AttackPath> paths) {}
+}
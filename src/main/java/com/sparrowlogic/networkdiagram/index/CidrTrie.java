@@ -0,0 +1,88 @@
+package com.sparrowlogic.networkdiagram.index;
+
+import com.sparrowlogic.networkdiagram.model.Cidr;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+// Binary trie over IPv4 and IPv6 prefixes mapping each prefix to a set of int values. A lookup walks
+// at most 32 or 128 nodes, visiting every stored prefix that contains the query on the way down.
+// Nodes and values live in flat int arrays; value lists are singly linked through postingNext.
+public final class CidrTrie {
+
+    private static final int NONE = -1;
+
+    private int[] zero = new int[64];
+    private int[] one = new int[64];
+    private int[] firstPosting = new int[64];
+    private int nodeCount;
+
+    private int[] postingValue = new int[64];
+    private int[] postingNext = new int[64];
+    private int postingCount;
+
+    private final int ipv4Root;
+    private final int ipv6Root;
+
+    public CidrTrie() {
+        ipv4Root = newNode();
+        ipv6Root = newNode();
+    }
+
+    public void insert(Cidr prefix, int value) {
+        var node = prefix.family() == Cidr.IPV4 ? ipv4Root : ipv6Root;
+        for (int depth = 0; depth < prefix.length(); depth++) {
+            var bit = prefix.bit(depth);
+            var child = bit == 0 ? zero[node] : one[node];
+            if (child == NONE) {
+                // Allocate first: newNode may replace the child arrays
+                child = newNode();
+                if (bit == 0) {
+                    zero[node] = child;
+                } else {
+                    one[node] = child;
+                }
+            }
+            node = child;
+        }
+
+        if (postingCount == postingValue.length) {
+            postingValue = Arrays.copyOf(postingValue, postingCount * 2);
+            postingNext = Arrays.copyOf(postingNext, postingCount * 2);
+        }
+        postingValue[postingCount] = value;
+        postingNext[postingCount] = firstPosting[node];
+        firstPosting[node] = postingCount++;
+    }
+
+    // Calls the consumer with the value of every stored prefix that contains the query, shortest prefix first
+    public void forEachCovering(Cidr query, IntConsumer consumer) {
+        var node = query.family() == Cidr.IPV4 ? ipv4Root : ipv6Root;
+        for (int depth = 0; node != NONE; depth++) {
+            for (int p = firstPosting[node]; p != NONE; p = postingNext[p]) {
+                consumer.accept(postingValue[p]);
+            }
+            if (depth == query.length()) {
+                break;
+            }
+            node = query.bit(depth) == 0 ? zero[node] : one[node];
+        }
+    }
+
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    private int newNode() {
+        if (nodeCount == zero.length) {
+            var capacity = nodeCount * 2;
+            zero = Arrays.copyOf(zero, capacity);
+            one = Arrays.copyOf(one, capacity);
+            firstPosting = Arrays.copyOf(firstPosting, capacity);
+        }
+        zero[nodeCount] = NONE;
+        one[nodeCount] = NONE;
+        firstPosting[nodeCount] = NONE;
+        return nodeCount++;
+    }
+}
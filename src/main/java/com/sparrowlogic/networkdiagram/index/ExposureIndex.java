@@ -0,0 +1,116 @@
+package com.sparrowlogic.networkdiagram.index;
+
+import com.sparrowlogic.networkdiagram.model.Cidr;
+import com.sparrowlogic.networkdiagram.model.InfrastructureComponents;
+import com.sparrowlogic.networkdiagram.model.SecurityGroupRule;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Lookup tables built once per InfrastructureComponents so that each diagram only touches the
+// resources it draws, instead of rescanning every rule, instance and ASG per CIDR
+public final class ExposureIndex {
+
+    private final Map<String, InfrastructureComponents.SecurityGroup> securityGroupsById = new HashMap<>();
+    private final Map<String, Map<String, List<SecurityGroupRule>>> ingressBySource = new HashMap<>();
+    private final Map<String, List<InfrastructureComponents.AutoScalingGroup>> autoScalingGroupsBySg = new HashMap<>();
+    private final Map<String, List<InfrastructureComponents.Instance>> standaloneInstancesBySg = new HashMap<>();
+    private final Map<String, InfrastructureComponents.Instance> instancesById = new HashMap<>();
+    private final Map<String, List<InfrastructureComponents.LoadBalancer>> loadBalancersByTarget = new HashMap<>();
+    private final Set<String> externalCidrs;
+
+    private ExposureIndex(InfrastructureComponents components) {
+        var cidrs = new HashSet<String>();
+        components.securityGroups().forEach(sg -> {
+            securityGroupsById.put(sg.id(), sg);
+            sg.rules().forEach(rule -> {
+                if (isExternalCidr(rule.source())) {
+                    cidrs.add(rule.source());
+                }
+                if (!rule.source().startsWith("sg-") && "ingress".equals(rule.direction())) {
+                    ingressBySource
+                        .computeIfAbsent(rule.source(), source -> new LinkedHashMap<>())
+                        .computeIfAbsent(sg.id(), id -> new ArrayList<>())
+                        .add(rule);
+                }
+            });
+        });
+
+        // Sorted so that reports come out in the same order however AWS happened to list the rules
+        var sorted = new ArrayList<>(cidrs);
+        sorted.sort(Cidr::compareText);
+        externalCidrs = Collections.unmodifiableSet(new LinkedHashSet<>(sorted));
+
+        var asgInstanceIds = new HashSet<String>();
+        components.autoScalingGroups().forEach(asg -> {
+            asgInstanceIds.addAll(asg.instanceIds());
+            asg.securityGroups().forEach(sgId ->
+                autoScalingGroupsBySg.computeIfAbsent(sgId, id -> new ArrayList<>()).add(asg));
+        });
+
+        components.instances().forEach(instance -> {
+            instancesById.put(instance.id(), instance);
+            if (!asgInstanceIds.contains(instance.id())) {
+                instance.securityGroups().forEach(sgId ->
+                    standaloneInstancesBySg.computeIfAbsent(sgId, id -> new ArrayList<>()).add(instance));
+            }
+        });
+
+        components.loadBalancers().forEach(lb -> new LinkedHashSet<>(lb.targetInstanceIds()).forEach(instanceId ->
+            loadBalancersByTarget.computeIfAbsent(instanceId, id -> new ArrayList<>()).add(lb)));
+    }
+
+    public static ExposureIndex of(InfrastructureComponents components) {
+        return new ExposureIndex(components);
+    }
+
+    // 0.0.0.0/0, ::/0 and single hosts (/32, /128) referenced by any rule, in address order
+    public Set<String> externalCidrs() {
+        return externalCidrs;
+    }
+
+    // Whether this CIDR has a section, in constant time
+    public boolean isExposed(String cidr) {
+        return externalCidrs.contains(cidr);
+    }
+
+    // Security group id -> ingress rules allowing this exact CIDR, in security group order
+    public Map<String, List<SecurityGroupRule>> ingressFrom(String cidr) {
+        return ingressBySource.getOrDefault(cidr, Map.of());
+    }
+
+    public InfrastructureComponents.SecurityGroup securityGroup(String id) {
+        return securityGroupsById.get(id);
+    }
+
+    public InfrastructureComponents.Instance instance(String id) {
+        return instancesById.get(id);
+    }
+
+    public List<InfrastructureComponents.AutoScalingGroup> autoScalingGroupsFor(String sgId) {
+        return autoScalingGroupsBySg.getOrDefault(sgId, List.of());
+    }
+
+    // Instances using this security group that are not part of an Auto Scaling group
+    public List<InfrastructureComponents.Instance> standaloneInstancesFor(String sgId) {
+        return standaloneInstancesBySg.getOrDefault(sgId, List.of());
+    }
+
+    // Load balancers with this instance registered in one of their instance target groups, in listing order
+    public List<InfrastructureComponents.LoadBalancer> loadBalancersFor(String instanceId) {
+        return loadBalancersByTarget.getOrDefault(instanceId, List.of());
+    }
+
+    static boolean isExternalCidr(String source) {
+        return !source.startsWith("sg-") &&
+            ("0.0.0.0/0".equals(source) || "::/0".equals(source) ||
+             source.contains("/32") || source.contains("/128"));
+    }
+}
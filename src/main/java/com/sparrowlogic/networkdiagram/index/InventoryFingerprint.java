@@ -0,0 +1,292 @@
+package com.sparrowlogic.networkdiagram.index;
+
+import com.sparrowlogic.networkdiagram.model.InfrastructureComponents;
+import com.sparrowlogic.networkdiagram.model.InventoryDiff;
+import com.sparrowlogic.networkdiagram.model.SecurityGroupRule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Per-resource content hashes of one inventory, grouped into a fixed number of buckets by resource id.
+// Each bucket also carries the sum of its members' hashes, so two fingerprints are compared bucket by
+// bucket and only buckets whose sums differ are opened: diffing costs the bucket count plus the
+// resources that share a bucket with a change, however large the account. Built once per inventory.
+public final class InventoryFingerprint {
+
+    static final int BUCKET_BITS = 12;
+    static final int BUCKETS = 1 << BUCKET_BITS;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final Comparator<Entry> ENTRY_ORDER = Comparator.comparing(Entry::kind).thenComparing(Entry::id);
+
+    private final Map<String, InfrastructureComponents.SecurityGroup> securityGroups = new HashMap<>();
+    private final Map<String, InfrastructureComponents.Instance> instances = new HashMap<>();
+    private final Map<String, InfrastructureComponents.AutoScalingGroup> autoScalingGroups = new HashMap<>();
+    private final Map<String, InfrastructureComponents.AutoScalingGroup> autoScalingGroupsByInstance = new HashMap<>();
+    private final Map<String, InfrastructureComponents.LoadBalancer> loadBalancers = new HashMap<>();
+
+    // Bucket b is entries[bucketStart[b]] .. entries[bucketStart[b + 1] - 1], sorted by kind then id
+    private final Entry[] entries;
+    private final int[] bucketStart = new int[BUCKETS + 1];
+    private final long[] bucketSums = new long[BUCKETS];
+
+    private record Entry(InventoryDiff.Kind kind, String id, long hash) {}
+
+    private InventoryFingerprint(InfrastructureComponents components) {
+        var all = new ArrayList<Entry>();
+        components.securityGroups().forEach(sg -> {
+            securityGroups.put(sg.id(), sg);
+            all.add(new Entry(InventoryDiff.Kind.SECURITY_GROUP, sg.id(), hash(sg)));
+        });
+        components.instances().forEach(instance -> {
+            instances.put(instance.id(), instance);
+            all.add(new Entry(InventoryDiff.Kind.INSTANCE, instance.id(), hash(instance)));
+        });
+        components.autoScalingGroups().forEach(asg -> {
+            autoScalingGroups.put(asg.name(), asg);
+            asg.instanceIds().forEach(instanceId -> autoScalingGroupsByInstance.put(instanceId, asg));
+            all.add(new Entry(InventoryDiff.Kind.AUTO_SCALING_GROUP, asg.name(), hash(asg)));
+        });
+        components.loadBalancers().forEach(lb -> {
+            loadBalancers.put(lb.id(), lb);
+            all.add(new Entry(InventoryDiff.Kind.LOAD_BALANCER, lb.id(), hash(lb)));
+        });
+
+        // Counting sort by bucket, then a small sort inside each bucket
+        var buckets = new int[all.size()];
+        for (int i = 0; i < buckets.length; i++) {
+            var entry = all.get(i);
+            buckets[i] = bucket(entry);
+            bucketStart[buckets[i] + 1]++;
+            bucketSums[buckets[i]] += entry.hash();
+        }
+        for (int b = 0; b < BUCKETS; b++) {
+            bucketStart[b + 1] += bucketStart[b];
+        }
+        entries = new Entry[all.size()];
+        var next = Arrays.copyOf(bucketStart, BUCKETS);
+        for (int i = 0; i < buckets.length; i++) {
+            entries[next[buckets[i]]++] = all.get(i);
+        }
+        for (int b = 0; b < BUCKETS; b++) {
+            Arrays.sort(entries, bucketStart[b], bucketStart[b + 1], ENTRY_ORDER);
+        }
+    }
+
+    public static InventoryFingerprint of(InfrastructureComponents components) {
+        return new InventoryFingerprint(components);
+    }
+
+    // Added, removed and changed resources, ordered by kind then id. A 64-bit hash collision could
+    // hide a change; at these inventory sizes that is far less likely than a crawl racing an update.
+    public static List<InventoryDiff.Change> diff(InventoryFingerprint before, InventoryFingerprint after) {
+        var changes = new ArrayList<InventoryDiff.Change>();
+        for (int b = 0; b < BUCKETS; b++) {
+            var i = before.bucketStart[b];
+            var iEnd = before.bucketStart[b + 1];
+            var j = after.bucketStart[b];
+            var jEnd = after.bucketStart[b + 1];
+            if (before.bucketSums[b] == after.bucketSums[b] && iEnd - i == jEnd - j) {
+                continue;
+            }
+            while (i < iEnd || j < jEnd) {
+                var order = i == iEnd ? 1 : j == jEnd ? -1 : ENTRY_ORDER.compare(before.entries[i], after.entries[j]);
+                if (order < 0) {
+                    changes.add(change(before, after, before.entries[i++], InventoryDiff.Type.REMOVED));
+                } else if (order > 0) {
+                    changes.add(change(before, after, after.entries[j++], InventoryDiff.Type.ADDED));
+                } else {
+                    if (before.entries[i].hash() != after.entries[j].hash()) {
+                        changes.add(change(before, after, after.entries[j], InventoryDiff.Type.CHANGED));
+                    }
+                    i++;
+                    j++;
+                }
+            }
+        }
+        changes.sort(Comparator.comparing(InventoryDiff.Change::kind).thenComparing(InventoryDiff.Change::id));
+        return changes;
+    }
+
+    // External CIDRs whose section may draw differently: the sources of added or removed rules (every
+    // source of a renamed group), and the ingress sources of every group a changed instance, ASG or
+    // load balancer target uses on either side. May name CIDRs that exist on one side only.
+    public static Set<String> affectedCidrs(InventoryFingerprint before, InventoryFingerprint after,
+                                            List<InventoryDiff.Change> changes) {
+        var cidrs = new HashSet<String>();
+        var groupIds = new LinkedHashSet<String>();
+        for (var change : changes) {
+            switch (change.kind()) {
+                case SECURITY_GROUP -> {
+                    var old = before.securityGroups.get(change.id());
+                    var current = after.securityGroups.get(change.id());
+                    if (old != null && current != null && !old.name().equals(current.name())) {
+                        groupIds.add(change.id());
+                    }
+                    var rules = ruleChanges(old, current);
+                    rules.get(0).forEach(rule -> addExternal(cidrs, rule));
+                    rules.get(1).forEach(rule -> addExternal(cidrs, rule));
+                }
+                case INSTANCE -> {
+                    addGroups(groupIds, before.instances.get(change.id()));
+                    addGroups(groupIds, after.instances.get(change.id()));
+                }
+                case AUTO_SCALING_GROUP -> {
+                    var old = before.autoScalingGroups.get(change.id());
+                    var current = after.autoScalingGroups.get(change.id());
+                    if (old != null) {
+                        groupIds.addAll(old.securityGroups());
+                    }
+                    if (current != null) {
+                        groupIds.addAll(current.securityGroups());
+                    }
+                }
+                case LOAD_BALANCER -> {
+                    before.addTargetGroups(groupIds, before.loadBalancers.get(change.id()));
+                    after.addTargetGroups(groupIds, after.loadBalancers.get(change.id()));
+                }
+            }
+        }
+        for (var sgId : groupIds) {
+            for (var side : List.of(before, after)) {
+                var sg = side.securityGroups.get(sgId);
+                if (sg != null) {
+                    sg.rules().stream().filter(rule -> "ingress".equals(rule.direction())).forEach(rule -> addExternal(cidrs, rule));
+                }
+            }
+        }
+        return cidrs;
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    private static InventoryDiff.Change change(InventoryFingerprint before, InventoryFingerprint after,
+                                               Entry entry, InventoryDiff.Type type) {
+        if (entry.kind() != InventoryDiff.Kind.SECURITY_GROUP) {
+            return new InventoryDiff.Change(entry.kind(), entry.id(), type, List.of(), List.of());
+        }
+        var rules = ruleChanges(before.securityGroups.get(entry.id()), after.securityGroups.get(entry.id()));
+        return new InventoryDiff.Change(entry.kind(), entry.id(), type,
+            rules.get(0).stream().map(InventoryFingerprint::label).toList(),
+            rules.get(1).stream().map(InventoryFingerprint::label).toList());
+    }
+
+    // [rules only the newer group has, rules only the older group has]; either group may be null
+    private static List<List<SecurityGroupRule>> ruleChanges(InfrastructureComponents.SecurityGroup before,
+                                                             InfrastructureComponents.SecurityGroup after) {
+        var old = before != null ? new LinkedHashSet<>(before.rules()) : new LinkedHashSet<SecurityGroupRule>();
+        var current = after != null ? new LinkedHashSet<>(after.rules()) : new LinkedHashSet<SecurityGroupRule>();
+        var added = current.stream().filter(rule -> !old.contains(rule)).toList();
+        var removed = old.stream().filter(rule -> !current.contains(rule)).toList();
+        return List.of(added, removed);
+    }
+
+    private static void addGroups(Set<String> groupIds, InfrastructureComponents.Instance instance) {
+        if (instance != null) {
+            groupIds.addAll(instance.securityGroups());
+        }
+    }
+
+    // A target is drawn through its ASG when it has one, otherwise as a standalone instance
+    private void addTargetGroups(Set<String> groupIds, InfrastructureComponents.LoadBalancer lb) {
+        if (lb == null) {
+            return;
+        }
+        for (var instanceId : lb.targetInstanceIds()) {
+            var asg = autoScalingGroupsByInstance.get(instanceId);
+            if (asg != null) {
+                groupIds.addAll(asg.securityGroups());
+            } else {
+                addGroups(groupIds, instances.get(instanceId));
+            }
+        }
+    }
+
+    private static void addExternal(Set<String> cidrs, SecurityGroupRule rule) {
+        if (ExposureIndex.isExternalCidr(rule.source())) {
+            cidrs.add(rule.source());
+        }
+    }
+
+    private static String label(SecurityGroupRule rule) {
+        var ports = rule.fromPort() == rule.toPort() ? Integer.toString(rule.fromPort()) : rule.fromPort() + "-" + rule.toPort();
+        return rule.direction() + " " + rule.protocol() + " " + ports + " " + rule.source();
+    }
+
+    private static int bucket(Entry entry) {
+        return (int) (mix(fold(fold(FNV_OFFSET, entry.kind().ordinal()), entry.id())) >>> (64 - BUCKET_BITS));
+    }
+
+    // Rules, group memberships, instance lists and load balancer targets are summed rather than chained, so the order AWS
+    // happens to list them in does not count as a change
+    private static long hash(InfrastructureComponents.SecurityGroup sg) {
+        var h = fold(fold(FNV_OFFSET, sg.id()), sg.name());
+        var rules = 0L;
+        for (var rule : sg.rules()) {
+            var r = fold(FNV_OFFSET, rule.direction());
+            r = fold(r, rule.protocol());
+            r = fold(r, rule.fromPort());
+            r = fold(r, rule.toPort());
+            rules += mix(fold(r, rule.source()));
+        }
+        return mix(fold(h, rules));
+    }
+
+    private static long hash(InfrastructureComponents.Instance instance) {
+        var h = fold(fold(FNV_OFFSET, instance.id()), instance.type());
+        return mix(fold(h, sum(instance.securityGroups())));
+    }
+
+    private static long hash(InfrastructureComponents.AutoScalingGroup asg) {
+        var h = fold(FNV_OFFSET, asg.name());
+        h = fold(h, sum(asg.instanceIds()));
+        return mix(fold(h, sum(asg.securityGroups())));
+    }
+
+    private static long hash(InfrastructureComponents.LoadBalancer lb) {
+        var h = fold(fold(fold(FNV_OFFSET, lb.id()), lb.name()), lb.type());
+        return mix(fold(h, sum(lb.targetInstanceIds())));
+    }
+
+    private static long sum(List<String> values) {
+        var sum = 0L;
+        for (var value : values) {
+            sum += mix(fold(FNV_OFFSET, value));
+        }
+        return sum;
+    }
+
+    // FNV-1a over the chars, then a terminator so that ("ab", "c") and ("a", "bc") differ
+    private static long fold(long h, String value) {
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                h = (h ^ value.charAt(i)) * FNV_PRIME;
+            }
+        }
+        return (h ^ 0x10000) * FNV_PRIME;
+    }
+
+    private static long fold(long h, long value) {
+        return (h ^ value) * FNV_PRIME;
+    }
+
+    // MurmurHash3's finalizer, so that sums of hashes do not cancel out in the low bits
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe53f85d7L;
+        return h ^ (h >>> 33);
+    }
+}
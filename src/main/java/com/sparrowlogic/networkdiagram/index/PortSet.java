@@ -0,0 +1,179 @@
+package com.sparrowlogic.networkdiagram.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// An immutable set of (protocol, port range) pairs kept sorted and merged, so union and intersection
+// are linear merges. Each range is packed into one long: protocol in the high bits, then the first and
+// last port. Ports only mean something for TCP and UDP; any other protocol is held as a whole.
+final class PortSet {
+
+    static final PortSet EMPTY = new PortSet(new long[0]);
+
+    private static final int MAX_PORT = 65535;
+    private static final long ALL = pack(0xFF, 0, MAX_PORT);
+
+    private final long[] ranges;
+
+    private PortSet(long[] ranges) {
+        this.ranges = ranges;
+    }
+
+    // protocol as returned by ReachabilityIndex.protocolNumber; unknown protocols give the empty set
+    static PortSet of(int protocol, int fromPort, int toPort) {
+        if (protocol == ReachabilityIndex.ALL_PROTOCOLS) {
+            return new PortSet(new long[] {ALL});
+        }
+        if (protocol < 0 || protocol > 0xFE) {
+            return EMPTY;
+        }
+        if (!hasPorts(protocol) || fromPort < 0 || toPort < 0) {
+            return new PortSet(new long[] {pack(protocol, 0, MAX_PORT)});
+        }
+        var from = Math.min(fromPort, MAX_PORT);
+        var to = Math.min(toPort, MAX_PORT);
+        return from <= to ? new PortSet(new long[] {pack(protocol, from, to)}) : EMPTY;
+    }
+
+    boolean isEmpty() {
+        return ranges.length == 0;
+    }
+
+    PortSet union(PortSet other) {
+        if (other.isEmpty()) {
+            return this;
+        }
+        if (isEmpty()) {
+            return other;
+        }
+        var combined = Arrays.copyOf(ranges, ranges.length + other.ranges.length);
+        System.arraycopy(other.ranges, 0, combined, ranges.length, other.ranges.length);
+        return normalize(combined, combined.length);
+    }
+
+    PortSet intersect(PortSet other) {
+        if (isEmpty() || other.isEmpty()) {
+            return EMPTY;
+        }
+        if (isAll()) {
+            return other;
+        }
+        if (other.isAll()) {
+            return this;
+        }
+        // Both sides are sorted by protocol and first port, so this is a two-pointer sweep
+        var result = new long[ranges.length + other.ranges.length];
+        var count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < ranges.length && j < other.ranges.length) {
+            var a = ranges[i];
+            var b = other.ranges[j];
+            if (protocol(a) != protocol(b)) {
+                if (protocol(a) < protocol(b)) {
+                    i++;
+                } else {
+                    j++;
+                }
+                continue;
+            }
+            var from = Math.max(from(a), from(b));
+            var to = Math.min(to(a), to(b));
+            if (from <= to) {
+                result[count++] = pack(protocol(a), from, to);
+            }
+            if (to(a) < to(b)) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return count == 0 ? EMPTY : new PortSet(Arrays.copyOf(result, count));
+    }
+
+    // ANY_PORT ignores the port; ALL_PROTOCOLS matches any non-empty set
+    boolean allows(int protocol, int port) {
+        if (isEmpty()) {
+            return false;
+        }
+        if (protocol == ReachabilityIndex.ALL_PROTOCOLS || isAll()) {
+            return true;
+        }
+        for (var range : ranges) {
+            if (protocol(range) == protocol && (port == ReachabilityIndex.ANY_PORT || (from(range) <= port && port <= to(range)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // "all", "tcp/443", "tcp/8000-8080", "icmp"
+    List<String> labels() {
+        if (isAll()) {
+            return List.of("all");
+        }
+        var labels = new ArrayList<String>(ranges.length);
+        for (var range : ranges) {
+            var protocol = protocol(range);
+            var name = switch (protocol) {
+                case 6 -> "tcp";
+                case 17 -> "udp";
+                case 1 -> "icmp";
+                case 58 -> "icmpv6";
+                default -> Integer.toString(protocol);
+            };
+            if (!hasPorts(protocol)) {
+                labels.add(name);
+            } else if (from(range) == to(range)) {
+                labels.add(name + "/" + from(range));
+            } else {
+                labels.add(name + "/" + from(range) + "-" + to(range));
+            }
+        }
+        return labels;
+    }
+
+    private boolean isAll() {
+        return ranges.length == 1 && ranges[0] == ALL;
+    }
+
+    // Sorts by protocol then first port and joins ranges that overlap or touch; "all" absorbs everything
+    private static PortSet normalize(long[] ranges, int length) {
+        Arrays.sort(ranges, 0, length);
+        if (ranges[length - 1] == ALL) {
+            return new PortSet(new long[] {ALL});
+        }
+        var count = 0;
+        for (int i = 0; i < length; i++) {
+            var range = ranges[i];
+            if (count > 0 && protocol(ranges[count - 1]) == protocol(range) && from(range) <= to(ranges[count - 1]) + 1) {
+                var last = ranges[count - 1];
+                ranges[count - 1] = pack(protocol(last), from(last), Math.max(to(last), to(range)));
+            } else {
+                ranges[count++] = range;
+            }
+        }
+        return new PortSet(Arrays.copyOf(ranges, count));
+    }
+
+    private static boolean hasPorts(int protocol) {
+        return protocol == 6 || protocol == 17;
+    }
+
+    private static long pack(int protocol, int from, int to) {
+        return ((long) protocol << 34) | ((long) from << 17) | to;
+    }
+
+    private static int protocol(long range) {
+        return (int) (range >>> 34);
+    }
+
+    private static int from(long range) {
+        return (int) (range >>> 17) & 0x1FFFF;
+    }
+
+    private static int to(long range) {
+        return (int) range & 0x1FFFF;
+    }
+}
@@ -0,0 +1,192 @@
+package com.sparrowlogic.networkdiagram.index;
+
+import com.sparrowlogic.networkdiagram.model.Cidr;
+import com.sparrowlogic.networkdiagram.model.CompactRuleList;
+import com.sparrowlogic.networkdiagram.model.InfrastructureComponents;
+import com.sparrowlogic.networkdiagram.model.SecurityGroupRule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Answers "which security groups, instances and ASGs can this address or prefix reach on this
+// port/protocol" by prefix containment rather than string equality: a rule for 203.0.113.0/24 or
+// 0.0.0.0/0 matches a query for 203.0.113.7. A prefix query only matches rules covering the whole
+// prefix; narrower rules inside it are not reported. Built once per inventory; each query walks one
+// trie path.
+public final class ReachabilityIndex {
+
+    public static final int ALL_PROTOCOLS = -1;
+    public static final int ANY_PORT = -1;
+
+    private static final int UNKNOWN_PROTOCOL = -2;
+
+    private final CidrTrie trie = new CidrTrie();
+    private final List<InfrastructureComponents.SecurityGroup> groups;
+    private final Map<String, List<String>> instanceIdsBySg = new HashMap<>();
+    private final Map<String, List<String>> autoScalingGroupsBySg = new HashMap<>();
+
+    // One slot per indexed ingress rule
+    private int[] ruleGroup = new int[64];
+    private int[] ruleIndex = new int[64];
+    private int[] ruleProtocol = new int[64];
+    private int[] ruleFrom = new int[64];
+    private int[] ruleTo = new int[64];
+    private int ruleCount;
+
+    private ReachabilityIndex(InfrastructureComponents components) {
+        groups = components.securityGroups();
+        for (int g = 0; g < groups.size(); g++) {
+            var rules = groups.get(g).rules();
+            var compact = rules instanceof CompactRuleList list ? list : null;
+            for (int r = 0; r < rules.size(); r++) {
+                var rule = rules.get(r);
+                if (!"ingress".equals(rule.direction())) {
+                    continue;
+                }
+                // Compact lists already carry the parsed prefix of every source
+                var source = compact != null ? compact.pool().cidr(compact.sourceId(r)) : Cidr.parse(rule.source());
+                // A rule whose protocol is not recognised allows nothing, as in PortSet
+                var protocol = protocolNumber(rule.protocol());
+                if (source != null && protocol != UNKNOWN_PROTOCOL) {
+                    trie.insert(source, addRule(g, r, protocol, rule));
+                }
+            }
+        }
+
+        components.instances().forEach(instance -> instance.securityGroups().forEach(sgId ->
+            instanceIdsBySg.computeIfAbsent(sgId, id -> new ArrayList<>()).add(instance.id())));
+        components.autoScalingGroups().forEach(asg -> asg.securityGroups().forEach(sgId ->
+            autoScalingGroupsBySg.computeIfAbsent(sgId, id -> new ArrayList<>()).add(asg.name())));
+    }
+
+    public static ReachabilityIndex of(InfrastructureComponents components) {
+        return new ReachabilityIndex(components);
+    }
+
+    // protocol is "tcp", "udp", "icmp", "icmpv6", a protocol number, or "-1"/"all"; port is ANY_PORT to ignore ports.
+    // Anything else is rejected rather than silently matching nothing.
+    public Reachability reachableFrom(String addressOrPrefix, String protocol, int port) {
+        var source = Cidr.parse(addressOrPrefix);
+        if (source == null) {
+            throw new IllegalArgumentException("Not an IPv4/IPv6 address or prefix: " + addressOrPrefix);
+        }
+        var queryProtocol = protocolNumber(protocol);
+        if (queryProtocol == UNKNOWN_PROTOCOL) {
+            throw new IllegalArgumentException("Unknown protocol: " + protocol);
+        }
+
+        // Only the rules on the query's trie path are touched; sorting puts them back in rule order
+        var matched = new Matched();
+        trie.forEachCovering(source, rule -> {
+            if (matches(rule, queryProtocol, port)) {
+                matched.add(rule);
+            }
+        });
+        var matchedRules = matched.sorted();
+
+        var matches = new ArrayList<Match>(matchedRules.length);
+        var securityGroupIds = new LinkedHashSet<String>();
+        for (var rule : matchedRules) {
+            var group = groups.get(ruleGroup[rule]);
+            matches.add(new Match(group.id(), group.rules().get(ruleIndex[rule])));
+            securityGroupIds.add(group.id());
+        }
+
+        var instanceIds = new LinkedHashSet<String>();
+        var autoScalingGroups = new LinkedHashSet<String>();
+        securityGroupIds.forEach(sgId -> {
+            instanceIds.addAll(instanceIdsBySg.getOrDefault(sgId, List.of()));
+            autoScalingGroups.addAll(autoScalingGroupsBySg.getOrDefault(sgId, List.of()));
+        });
+
+        return new Reachability(addressOrPrefix, protocol, port, matches, List.copyOf(securityGroupIds),
+            List.copyOf(instanceIds), List.copyOf(autoScalingGroups));
+    }
+
+    public int indexedRuleCount() {
+        return ruleCount;
+    }
+
+    private boolean matches(int rule, int queryProtocol, int port) {
+        var protocol = ruleProtocol[rule];
+        if (protocol == ALL_PROTOCOLS || queryProtocol == ALL_PROTOCOLS) {
+            return true;
+        }
+        if (protocol != queryProtocol) {
+            return false;
+        }
+        // Ports only mean something for TCP and UDP; for ICMP they hold type/code
+        if (port == ANY_PORT || (protocol != 6 && protocol != 17)) {
+            return true;
+        }
+        return ruleFrom[rule] <= port && port <= ruleTo[rule];
+    }
+
+    private int addRule(int group, int index, int protocol, SecurityGroupRule rule) {
+        if (ruleCount == ruleGroup.length) {
+            var capacity = ruleCount * 2;
+            ruleGroup = Arrays.copyOf(ruleGroup, capacity);
+            ruleIndex = Arrays.copyOf(ruleIndex, capacity);
+            ruleProtocol = Arrays.copyOf(ruleProtocol, capacity);
+            ruleFrom = Arrays.copyOf(ruleFrom, capacity);
+            ruleTo = Arrays.copyOf(ruleTo, capacity);
+        }
+        ruleGroup[ruleCount] = group;
+        ruleIndex[ruleCount] = index;
+        ruleProtocol[ruleCount] = protocol;
+        ruleFrom[ruleCount] = rule.fromPort();
+        ruleTo[ruleCount] = rule.toPort();
+        return ruleCount++;
+    }
+
+    static int protocolNumber(String protocol) {
+        if (protocol == null) {
+            return UNKNOWN_PROTOCOL;
+        }
+        return switch (protocol.toLowerCase(Locale.ROOT)) {
+            case "-1", "all" -> ALL_PROTOCOLS;
+            case "tcp" -> 6;
+            case "udp" -> 17;
+            case "icmp" -> 1;
+            case "icmpv6" -> 58;
+            default -> {
+                try {
+                    var number = Integer.parseInt(protocol);
+                    yield number >= 0 && number <= 255 ? number : UNKNOWN_PROTOCOL;
+                } catch (NumberFormatException e) {
+                    yield UNKNOWN_PROTOCOL;
+                }
+            }
+        };
+    }
+
+    // Rule ids collected on one trie path; a handful per query
+    private static final class Matched {
+        private int[] rules = new int[8];
+        private int count;
+
+        void add(int rule) {
+            if (count == rules.length) {
+                rules = Arrays.copyOf(rules, count * 2);
+            }
+            rules[count++] = rule;
+        }
+
+        int[] sorted() {
+            var result = Arrays.copyOf(rules, count);
+            Arrays.sort(result);
+            return result;
+        }
+    }
+
+    public record Match(String securityGroupId, SecurityGroupRule rule) {}
+
+    public record Reachability(String source, String protocol, int port, List<Match> rules,
+                               List<String> securityGroupIds, List<String> instanceIds,
+                               List<String> autoScalingGroups) {}
+}
@@ -0,0 +1,142 @@
+package com.sparrowlogic.networkdiagram.model;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Comparator;
+
+// An IPv4 or IPv6 prefix held as a 128-bit value (hi, lo) plus a prefix length. IPv4 addresses
+// occupy the low 32 bits of lo. Host bits below the prefix length are cleared.
+public record Cidr(int family, long hi, long lo, int length) {
+
+    public static final int IPV4 = 4;
+    public static final int IPV6 = 6;
+
+    // IPv4 before IPv6, then by address as an unsigned number, then shorter prefixes first
+    public static final Comparator<Cidr> ORDER = Comparator.comparingInt(Cidr::family)
+        .thenComparing(Cidr::hi, Long::compareUnsigned)
+        .thenComparing(Cidr::lo, Long::compareUnsigned)
+        .thenComparingInt(Cidr::length);
+
+    public int maxLength() {
+        return family == IPV4 ? 32 : 128;
+    }
+
+    // Bit i of the address counting from the most significant bit, 0 <= i < maxLength()
+    public int bit(int i) {
+        if (family == IPV4) {
+            return (int) (lo >>> (31 - i)) & 1;
+        }
+        return i < 64 ? (int) (hi >>> (63 - i)) & 1 : (int) (lo >>> (127 - i)) & 1;
+    }
+
+    public boolean contains(Cidr other) {
+        if (family != other.family || length > other.length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (bit(i) != other.bit(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Parses "a.b.c.d/n", "x:y::z/n" or a bare address (treated as a single host); null if not an IP prefix
+    public static Cidr parse(String value) {
+        if (value == null || value.isEmpty() || !value.chars().allMatch(Cidr::isPrefixChar)) {
+            return null;
+        }
+        var slash = value.indexOf('/');
+        var address = slash < 0 ? value : value.substring(0, slash);
+        var bytes = address.indexOf(':') >= 0 ? parseIpv6(address) : parseIpv4(address);
+        if (bytes == null) {
+            return null;
+        }
+
+        var family = bytes.length == 4 ? IPV4 : IPV6;
+        var maxLength = bytes.length * 8;
+        int length;
+        try {
+            length = slash < 0 ? maxLength : Integer.parseInt(value.substring(slash + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (length < 0 || length > maxLength) {
+            return null;
+        }
+
+        long hi = 0;
+        long lo = 0;
+        if (family == IPV4) {
+            for (var b : bytes) {
+                lo = (lo << 8) | (b & 0xFF);
+            }
+            lo = length == 0 ? 0 : lo & (0xFFFFFFFFL << (32 - length)) & 0xFFFFFFFFL;
+        } else {
+            for (int i = 0; i < 8; i++) {
+                hi = (hi << 8) | (bytes[i] & 0xFF);
+                lo = (lo << 8) | (bytes[i + 8] & 0xFF);
+            }
+            hi = length >= 64 ? hi : length == 0 ? 0 : hi & (-1L << (64 - length));
+            lo = length <= 64 ? 0 : length == 128 ? lo : lo & (-1L << (128 - length));
+        }
+        return new Cidr(family, hi, lo, length);
+    }
+
+    // Orders prefix strings numerically; anything that does not parse sorts after them by its text
+    public static int compareText(String left, String right) {
+        var a = parse(left);
+        var b = parse(right);
+        if (a != null && b != null) {
+            var order = ORDER.compare(a, b);
+            if (order != 0) {
+                return order;
+            }
+        } else if (a != null || b != null) {
+            return a != null ? -1 : 1;
+        }
+        return left.compareTo(right);
+    }
+
+    private static byte[] parseIpv4(String address) {
+        var parts = address.split("\\.", -1);
+        if (parts.length != 4) {
+            return null;
+        }
+        var bytes = new byte[4];
+        for (int i = 0; i < 4; i++) {
+            if (parts[i].isEmpty() || parts[i].length() > 3 || !parts[i].chars().allMatch(Character::isDigit)) {
+                return null;
+            }
+            var octet = Integer.parseInt(parts[i]);
+            if (octet > 255) {
+                return null;
+            }
+            bytes[i] = (byte) octet;
+        }
+        return bytes;
+    }
+
+    private static byte[] parseIpv6(String address) {
+        try {
+            // A string containing ':' is always parsed as a literal, so this never resolves names
+            var bytes = InetAddress.getByName(address).getAddress();
+            if (bytes.length == 4) {
+                // IPv4-mapped form such as ::ffff:1.2.3.4
+                var mapped = new byte[16];
+                mapped[10] = (byte) 0xFF;
+                mapped[11] = (byte) 0xFF;
+                System.arraycopy(bytes, 0, mapped, 12, 4);
+                return mapped;
+            }
+            return bytes;
+        } catch (UnknownHostException e) {
+            return null;
+        }
+    }
+
+    private static boolean isPrefixChar(int c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F') ||
+            c == '.' || c == ':' || c == '/';
+    }
+}
@@ -0,0 +1,124 @@
+package com.sparrowlogic.networkdiagram.model;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+// Read-only rule storage for one security group: one fixed-width row per rule, holding the direction
+// byte, the protocol as a short and the source as an int index into a shared RuleSourcePool, and both
+// ports. A rule costs RULE_BYTES instead of a record and its strings. The rows may live on the heap or
+// in a memory-mapped snapshot, which is then read in place. get(i) materialises a SecurityGroupRule view
+// for callers that use the record API.
+public final class CompactRuleList extends AbstractList<SecurityGroupRule> implements RandomAccess {
+
+    // direction byte, protocol short, from port int, to port int, source int; big-endian
+    public static final int RULE_BYTES = 15;
+
+    private static final int PROTOCOL = 1;
+    private static final int FROM_PORT = 3;
+    private static final int TO_PORT = 7;
+    private static final int SOURCE = 11;
+
+    private static final RuleDirection[] DIRECTIONS = RuleDirection.values();
+
+    private final RuleSourcePool pool;
+    private final ByteBuffer rows;
+    private final int size;
+
+    private CompactRuleList(RuleSourcePool pool, ByteBuffer rows) {
+        this.pool = pool;
+        this.rows = rows;
+        this.size = rows.limit() / RULE_BYTES;
+    }
+
+    public static Builder builder(RuleSourcePool pool) {
+        return new Builder(pool);
+    }
+
+    // Rows laid out as above, with protocol and source ids already interned in pool. Only absolute
+    // reads are made, so the buffer may be shared; it must not change while the list is in use.
+    public static CompactRuleList view(RuleSourcePool pool, ByteBuffer rows) {
+        if (rows.remaining() % RULE_BYTES != 0) {
+            throw new IllegalArgumentException("Rule rows must be a multiple of " + RULE_BYTES + " bytes");
+        }
+        return new CompactRuleList(pool, rows.slice());
+    }
+
+    @Override
+    public SecurityGroupRule get(int index) {
+        return new SecurityGroupRule(
+            protocol(index),
+            fromPort(index),
+            toPort(index),
+            pool.source(sourceId(index)),
+            direction(index).label()
+        );
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public RuleSourcePool pool() {
+        return pool;
+    }
+
+    public RuleDirection direction(int index) {
+        return DIRECTIONS[rows.get(row(index))];
+    }
+
+    public String protocol(int index) {
+        return pool.protocol(rows.getShort(row(index) + PROTOCOL));
+    }
+
+    public int fromPort(int index) {
+        return rows.getInt(row(index) + FROM_PORT);
+    }
+
+    public int toPort(int index) {
+        return rows.getInt(row(index) + TO_PORT);
+    }
+
+    public int sourceId(int index) {
+        return rows.getInt(row(index) + SOURCE);
+    }
+
+    private int row(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return index * RULE_BYTES;
+    }
+
+    public static final class Builder {
+
+        private final RuleSourcePool pool;
+        private ByteBuffer rows = ByteBuffer.allocate(8 * RULE_BYTES);
+
+        private Builder(RuleSourcePool pool) {
+            this.pool = pool;
+        }
+
+        public Builder add(String protocol, int fromPort, int toPort, String source, RuleDirection direction) {
+            if (rows.remaining() < RULE_BYTES) {
+                rows = ByteBuffer.allocate(rows.capacity() * 2).put(rows.flip());
+            }
+            rows.put((byte) direction.ordinal())
+                .putShort(pool.internProtocol(protocol))
+                .putInt(fromPort)
+                .putInt(toPort)
+                .putInt(pool.internSource(source));
+            return this;
+        }
+
+        public Builder add(SecurityGroupRule rule) {
+            return add(rule.protocol(), rule.fromPort(), rule.toPort(), rule.source(), RuleDirection.of(rule.direction()));
+        }
+
+        public CompactRuleList build() {
+            var built = ByteBuffer.allocate(rows.position()).put(rows.duplicate().flip()).flip();
+            return new CompactRuleList(pool, built);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.sparrowlogic.networkdiagram.model;
+
+import java.util.List;
+
+// Renderer-neutral description of one diagram: the Mermaid text and the server-side SVG are both
+// written from this. Nodes are listed in drawing order; edge endpoints refer to node ids.
+public record DiagramGraph(String subject, List<Node> nodes, List<Edge> edges) {
+
+    public enum Kind {
+        CIDR("cidr", "#ff6666"),
+        SECURITY_GROUP("sg", "#99ccff"),
+        AUTO_SCALING_GROUP("asg", "#ffb3ff"),
+        INSTANCE("ec2", "#ff9999"),
+        LOAD_BALANCER("lb", "#99ff99");
+
+        private final String styleClass;
+        private final String fill;
+
+        Kind(String styleClass, String fill) {
+            this.styleClass = styleClass;
+            this.fill = fill;
+        }
+
+        public String styleClass() {
+            return styleClass;
+        }
+
+        public String fill() {
+            return fill;
+        }
+    }
+
+    public record Node(String id, String label, Kind kind) {}
+
+    // Port range carried by an edge drawn for a security group rule
+    public record Ports(String protocol, int fromPort, int toPort) {}
+
+    // ports is null for structural edges (security group or load balancer to ASG or instance)
+    public record Edge(String from, String to, Ports ports) {
+
+        public String label() {
+            return ports == null ? null : "Port " + ports.fromPort() + "-" + ports.toPort() + " (" + ports.protocol() + ")";
+        }
+    }
+
+    public boolean isEmpty() {
+        return nodes.isEmpty();
+    }
+}
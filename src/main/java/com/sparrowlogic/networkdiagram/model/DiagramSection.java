@@ -0,0 +1,6 @@
+package com.sparrowlogic.networkdiagram.model;
+
+// text is the Mermaid source and svg the same diagram laid out on the server. reduced is set when
+// ports, instances or fan-out were folded and the detailed view would show more. hash is a content
+// hash of the resources the section was drawn from; it doubles as the HTTP ETag.
+public record DiagramSection(String title, String cidr, String text, String svg, boolean reduced, String hash) {}
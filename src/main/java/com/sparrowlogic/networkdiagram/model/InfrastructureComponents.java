@@ -11,7 +11,11 @@ public record InfrastructureComponents(
     List<String> subnetIds
 ) {
     public record SecurityGroup(String id, String name, List<SecurityGroupRule> rules) {}
-    public record LoadBalancer(String id, String name, String type, List<String> targetGroups) {}
+    public record LoadBalancer(String id, String name, String type, List<String> targetGroups, List<String> targetInstanceIds) {
+        public LoadBalancer(String id, String name, String type, List<String> targetGroups) {
+            this(id, name, type, targetGroups, List.of());
+        }
+    }
     public record Instance(String id, String type, List<String> securityGroups) {}
     public record AutoScalingGroup(String name, List<String> instanceIds, List<String> securityGroups) {}
 }
@@ -0,0 +1,18 @@
+package com.sparrowlogic.networkdiagram.model;
+
+import java.time.Instant;
+import java.util.List;
+
+// What changed between two inventories of one VPC and which attack-surface sections that touches.
+// to is null when the newer side is the current inventory. sections holds the re-rendered sections
+// for addedCidrs and changedCidrs, in that order; every other section is unchanged.
+public record InventoryDiff(Instant from, Instant to, List<Change> changes, List<String> addedCidrs,
+                            List<String> removedCidrs, List<String> changedCidrs, List<DiagramSection> sections) {
+
+    public enum Kind { SECURITY_GROUP, INSTANCE, AUTO_SCALING_GROUP, LOAD_BALANCER }
+
+    public enum Type { ADDED, REMOVED, CHANGED }
+
+    // addedRules and removedRules are only filled in for security groups, as "ingress tcp 443 0.0.0.0/0"
+    public record Change(Kind kind, String id, Type type, List<String> addedRules, List<String> removedRules) {}
+}
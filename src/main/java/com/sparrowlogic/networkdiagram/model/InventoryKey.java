@@ -0,0 +1,3 @@
+package com.sparrowlogic.networkdiagram.model;
+
+public record InventoryKey(String profile, String region, String vpcId) {}
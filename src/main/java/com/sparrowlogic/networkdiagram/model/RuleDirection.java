@@ -0,0 +1,24 @@
+package com.sparrowlogic.networkdiagram.model;
+
+public enum RuleDirection {
+    INGRESS("ingress"),
+    EGRESS("egress");
+
+    private final String label;
+
+    RuleDirection(String label) {
+        this.label = label;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    public static RuleDirection of(String label) {
+        return switch (label) {
+            case "ingress" -> INGRESS;
+            case "egress" -> EGRESS;
+            default -> throw new IllegalArgumentException("Unknown rule direction: " + label);
+        };
+    }
+}
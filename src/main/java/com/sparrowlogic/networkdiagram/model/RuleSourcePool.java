@@ -0,0 +1,100 @@
+package com.sparrowlogic.networkdiagram.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Interns rule sources and protocols shared by every CompactRuleList of one inventory. Each distinct
+// source is stored once: its canonical string, plus the parsed prefix when it is an IPv4/IPv6 CIDR.
+// Not thread-safe while being filled; share it read-only once the rule lists are built.
+public final class RuleSourcePool {
+
+    public static final byte KIND_SECURITY_GROUP = 0;
+    public static final byte KIND_IPV4 = 1;
+    public static final byte KIND_IPV6 = 2;
+    public static final byte KIND_OTHER = 3;
+
+    private final Map<String, Integer> sourceIds = new HashMap<>();
+    private String[] sources = new String[64];
+    private byte[] kinds = new byte[64];
+    private long[] prefixHi = new long[64];
+    private long[] prefixLo = new long[64];
+    private byte[] prefixLengths = new byte[64];
+    private int sourceCount;
+
+    private final Map<String, Integer> protocolIds = new HashMap<>();
+    private String[] protocols = new String[8];
+    private int protocolCount;
+
+    public int internSource(String source) {
+        var existing = sourceIds.get(source);
+        if (existing != null) {
+            return existing;
+        }
+        if (sourceCount == sources.length) {
+            var capacity = sourceCount * 2;
+            sources = Arrays.copyOf(sources, capacity);
+            kinds = Arrays.copyOf(kinds, capacity);
+            prefixHi = Arrays.copyOf(prefixHi, capacity);
+            prefixLo = Arrays.copyOf(prefixLo, capacity);
+            prefixLengths = Arrays.copyOf(prefixLengths, capacity);
+        }
+        var id = sourceCount++;
+        sources[id] = source;
+        var cidr = source.startsWith("sg-") ? null : Cidr.parse(source);
+        if (source.startsWith("sg-")) {
+            kinds[id] = KIND_SECURITY_GROUP;
+        } else if (cidr == null) {
+            kinds[id] = KIND_OTHER;
+        } else {
+            kinds[id] = cidr.family() == Cidr.IPV4 ? KIND_IPV4 : KIND_IPV6;
+            prefixHi[id] = cidr.hi();
+            prefixLo[id] = cidr.lo();
+            prefixLengths[id] = (byte) cidr.length();
+        }
+        sourceIds.put(source, id);
+        return id;
+    }
+
+    public short internProtocol(String protocol) {
+        return protocolIds.computeIfAbsent(protocol, p -> {
+            if (protocolCount == protocols.length) {
+                protocols = Arrays.copyOf(protocols, protocolCount * 2);
+            }
+            if (protocolCount == Short.MAX_VALUE) {
+                throw new IllegalStateException("Too many distinct protocols");
+            }
+            protocols[protocolCount] = p;
+            return protocolCount++;
+        }).shortValue();
+    }
+
+    public int sourceCount() {
+        return sourceCount;
+    }
+
+    public String source(int id) {
+        return sources[id];
+    }
+
+    public byte kind(int id) {
+        return kinds[id];
+    }
+
+    // Parsed prefix of a CIDR source, or null for security group references and unparseable sources
+    public Cidr cidr(int id) {
+        var kind = kinds[id];
+        if (kind != KIND_IPV4 && kind != KIND_IPV6) {
+            return null;
+        }
+        return new Cidr(kind == KIND_IPV4 ? Cidr.IPV4 : Cidr.IPV6, prefixHi[id], prefixLo[id], prefixLengths[id] & 0xFF);
+    }
+
+    public int protocolCount() {
+        return protocolCount;
+    }
+
+    public String protocol(short id) {
+        return protocols[id];
+    }
+}
@@ -0,0 +1,25 @@
+package com.sparrowlogic.networkdiagram.model;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+// Result of crawling many (profile, region) pairs. Failures are reported next to the VPCs that did
+// load rather than failing the whole sweep.
+public record SweepReport(Instant startedAt, Duration elapsed, List<Vpc> vpcs, List<Exposure> exposures,
+                          List<Failure> failures) {
+
+    public record Vpc(String profile, String region, String vpcId, List<DiagramSection> sections) {
+        public String location() {
+            return profile + "/" + region + "/" + vpcId;
+        }
+    }
+
+    // One external CIDR and every VPC, as profile/region/vpcId, that lets it in
+    public record Exposure(String cidr, List<String> vpcs) {}
+
+    // vpcId is null when the whole region, or region discovery for the profile, failed
+    public record Failure(String profile, String region, String vpcId, String error) {}
+
+    public record Progress(int regionsTotal, int regionsDone, int vpcsDone, int failures, String message) {}
+}
@@ -0,0 +1,219 @@
+package com.sparrowlogic.networkdiagram.render;
+
+import com.sparrowlogic.networkdiagram.model.DiagramGraph;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+// Shrinks a graph before it is rendered so that wide exposures stay readable and cheap to lay out:
+// port ranges between the same two nodes are merged, instances wired identically are folded into
+// one count node, and nodes with too many targets keep the first few plus a "+N more" node.
+// Everything keeps input order, so the same graph always reduces to the same result.
+public final class GraphReducer {
+
+    // collapseMin: smallest group of identical instances folded into one node (below 2 disables).
+    // maxFanOut: most targets drawn from one node, including the "+N more" node (below 2 disables).
+    public record Limits(int collapseMin, int maxFanOut) {
+        public static final Limits NONE = new Limits(0, 0);
+    }
+
+    // reduced is set only when a step merged, folded or capped something; sorting ranges alone does not count
+    public record Reduction(DiagramGraph graph, boolean reduced) {}
+
+    private GraphReducer() {
+    }
+
+    public static Reduction reduce(DiagramGraph graph, Limits limits) {
+        var edges = mergePorts(graph.edges());
+        // mergePorts only ever joins or drops edges, so a shorter list means something was merged
+        var changed = edges.size() < graph.edges().size();
+        var reduced = new DiagramGraph(graph.subject(), graph.nodes(), edges);
+        // collapseSiblings and capFanOut hand back the same graph when they have nothing to do
+        if (limits.collapseMin() >= 2) {
+            var collapsed = collapseSiblings(reduced, limits.collapseMin());
+            changed |= collapsed != reduced;
+            reduced = collapsed;
+        }
+        if (limits.maxFanOut() >= 2) {
+            var capped = capFanOut(reduced, limits.maxFanOut());
+            changed |= capped != reduced;
+            reduced = capped;
+        }
+        return new Reduction(reduced, changed);
+    }
+
+    // Per (from, to): an all-traffic rule covers everything else; TCP and UDP ranges that overlap or
+    // touch are joined; anything else (ICMP type/code pairs, unknown protocols) is only de-duplicated
+    static List<DiagramGraph.Edge> mergePorts(List<DiagramGraph.Edge> edges) {
+        var byPair = new LinkedHashMap<List<String>, List<DiagramGraph.Edge>>();
+        edges.forEach(edge -> byPair.computeIfAbsent(List.of(edge.from(), edge.to()), pair -> new ArrayList<>()).add(edge));
+
+        var merged = new ArrayList<DiagramGraph.Edge>(edges.size());
+        byPair.forEach((pair, group) -> {
+            var from = pair.get(0);
+            var to = pair.get(1);
+            var byProtocol = new LinkedHashMap<String, List<DiagramGraph.Ports>>();
+            var structural = false;
+            for (var edge : group) {
+                if (edge.ports() == null) {
+                    structural = true;
+                } else {
+                    byProtocol.computeIfAbsent(edge.ports().protocol(), protocol -> new ArrayList<>()).add(edge.ports());
+                }
+            }
+            if (structural) {
+                merged.add(new DiagramGraph.Edge(from, to, null));
+            }
+
+            var allTraffic = byProtocol.get("-1");
+            if (allTraffic != null) {
+                merged.add(new DiagramGraph.Edge(from, to, allTraffic.get(0)));
+                return;
+            }
+            byProtocol.forEach((protocol, ranges) -> {
+                var output = isPortProtocol(protocol) ? joinRanges(ranges) : new ArrayList<>(new LinkedHashSet<>(ranges));
+                output.forEach(ports -> merged.add(new DiagramGraph.Edge(from, to, ports)));
+            });
+        });
+        return merged;
+    }
+
+    private static boolean isPortProtocol(String protocol) {
+        return switch (protocol.toLowerCase(Locale.ROOT)) {
+            case "tcp", "udp", "6", "17" -> true;
+            default -> false;
+        };
+    }
+
+    private static List<DiagramGraph.Ports> joinRanges(List<DiagramGraph.Ports> ranges) {
+        var sorted = new ArrayList<>(ranges);
+        sorted.sort(Comparator.comparingInt(DiagramGraph.Ports::fromPort).thenComparingInt(DiagramGraph.Ports::toPort));
+        var joined = new ArrayList<DiagramGraph.Ports>();
+        var current = sorted.get(0);
+        for (var next : sorted.subList(1, sorted.size())) {
+            if (next.fromPort() <= current.toPort() + 1) {
+                current = new DiagramGraph.Ports(current.protocol(), current.fromPort(), Math.max(current.toPort(), next.toPort()));
+            } else {
+                joined.add(current);
+                current = next;
+            }
+        }
+        joined.add(current);
+        return joined;
+    }
+
+    // Instances with exactly the same edges in and out draw identically, so a group of them becomes
+    // one node labelled with the count
+    static DiagramGraph collapseSiblings(DiagramGraph graph, int collapseMin) {
+        var incoming = new HashMap<String, List<DiagramGraph.Edge>>();
+        var outgoing = new HashMap<String, List<DiagramGraph.Edge>>();
+        graph.edges().forEach(edge -> {
+            outgoing.computeIfAbsent(edge.from(), id -> new ArrayList<>()).add(edge);
+            incoming.computeIfAbsent(edge.to(), id -> new ArrayList<>()).add(edge);
+        });
+
+        var groups = new LinkedHashMap<List<Set<String>>, List<DiagramGraph.Node>>();
+        graph.nodes().stream()
+            .filter(node -> node.kind() == DiagramGraph.Kind.INSTANCE)
+            .forEach(node -> {
+                var in = new HashSet<String>();
+                incoming.getOrDefault(node.id(), List.of()).forEach(edge -> in.add(edge.from() + " " + edge.ports()));
+                var out = new HashSet<String>();
+                outgoing.getOrDefault(node.id(), List.of()).forEach(edge -> out.add(edge.to() + " " + edge.ports()));
+                groups.computeIfAbsent(List.of(in, out), key -> new ArrayList<>()).add(node);
+            });
+
+        var replacement = new HashMap<String, DiagramGraph.Node>();
+        groups.values().stream()
+            .filter(members -> members.size() >= collapseMin)
+            .forEach(members -> {
+                var group = new DiagramGraph.Node("group_" + members.get(0).id(), members.size() + " instances",
+                    DiagramGraph.Kind.INSTANCE);
+                members.forEach(member -> replacement.put(member.id(), group));
+            });
+        if (replacement.isEmpty()) {
+            return graph;
+        }
+
+        var nodes = new LinkedHashSet<DiagramGraph.Node>();
+        graph.nodes().forEach(node -> nodes.add(replacement.getOrDefault(node.id(), node)));
+        var edges = new LinkedHashSet<DiagramGraph.Edge>();
+        graph.edges().forEach(edge -> edges.add(new DiagramGraph.Edge(
+            replacement.containsKey(edge.from()) ? replacement.get(edge.from()).id() : edge.from(),
+            replacement.containsKey(edge.to()) ? replacement.get(edge.to()).id() : edge.to(),
+            edge.ports())));
+        return new DiagramGraph(graph.subject(), new ArrayList<>(nodes), new ArrayList<>(edges));
+    }
+
+    // Keeps the first maxFanOut - 1 targets of each node and points the rest at one "+N more" node.
+    // Targets left with no incoming edge are dropped, along with anything only they led to.
+    static DiagramGraph capFanOut(DiagramGraph graph, int maxFanOut) {
+        var kinds = new HashMap<String, DiagramGraph.Kind>();
+        graph.nodes().forEach(node -> kinds.putIfAbsent(node.id(), node.kind()));
+        var targetsByNode = new HashMap<String, LinkedHashSet<String>>();
+        graph.edges().forEach(edge -> targetsByNode.computeIfAbsent(edge.from(), id -> new LinkedHashSet<>()).add(edge.to()));
+
+        var dropped = new HashMap<String, Set<String>>();
+        var overflowBySource = new LinkedHashMap<String, DiagramGraph.Node>();
+        for (var node : graph.nodes()) {
+            var targets = targetsByNode.getOrDefault(node.id(), new LinkedHashSet<>());
+            if (targets.size() <= maxFanOut) {
+                continue;
+            }
+            var rest = new ArrayList<>(targets).subList(maxFanOut - 1, targets.size());
+            dropped.put(node.id(), new HashSet<>(rest));
+            overflowBySource.put(node.id(), new DiagramGraph.Node(node.id() + "_more", "+" + rest.size() + " more", kinds.get(rest.get(0))));
+        }
+        if (overflowBySource.isEmpty()) {
+            return graph;
+        }
+
+        var edges = new ArrayList<DiagramGraph.Edge>(graph.edges().size());
+        graph.edges().forEach(edge -> {
+            if (!dropped.getOrDefault(edge.from(), Set.of()).contains(edge.to())) {
+                edges.add(edge);
+            }
+        });
+        overflowBySource.forEach((source, overflow) -> edges.add(new DiagramGraph.Edge(source, overflow.id(), null)));
+
+        var orphans = orphans(graph, edges);
+        var nodes = new ArrayList<DiagramGraph.Node>();
+        graph.nodes().forEach(node -> {
+            if (!orphans.contains(node.id())) {
+                nodes.add(node);
+            }
+        });
+        // Overflow nodes go after every other node so that each lands at the end of its layer
+        nodes.addAll(overflowBySource.values());
+        edges.removeIf(edge -> orphans.contains(edge.from()) || orphans.contains(edge.to()));
+        return new DiagramGraph(graph.subject(), nodes, edges);
+    }
+
+    // Nodes that had incoming edges in the original graph but none that survive, transitively
+    private static Set<String> orphans(DiagramGraph graph, List<DiagramGraph.Edge> edges) {
+        var hadIncoming = new HashSet<String>();
+        graph.edges().forEach(edge -> hadIncoming.add(edge.to()));
+        var orphans = new HashSet<String>();
+        var changed = true;
+        while (changed) {
+            changed = false;
+            var reached = new HashSet<String>();
+            edges.stream()
+                .filter(edge -> !orphans.contains(edge.from()))
+                .forEach(edge -> reached.add(edge.to()));
+            for (var id : hadIncoming) {
+                if (!reached.contains(id) && orphans.add(id)) {
+                    changed = true;
+                }
+            }
+        }
+        return orphans;
+    }
+}
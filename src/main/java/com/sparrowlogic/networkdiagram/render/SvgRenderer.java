@@ -0,0 +1,87 @@
+package com.sparrowlogic.networkdiagram.render;
+
+import com.sparrowlogic.networkdiagram.model.DiagramGraph;
+
+import java.util.List;
+import java.util.Locale;
+
+// Writes a laid-out DiagramGraph as a self-contained SVG document: no scripts, fonts or external
+// references, so it can be inlined in the page, served as an image or saved as a file.
+public final class SvgRenderer {
+
+    private static final double LINE_HEIGHT = 14;
+
+    private SvgRenderer() {
+    }
+
+    public static String render(DiagramGraph graph) {
+        if (graph.isEmpty()) {
+            return render(new DiagramGraph(graph.subject(),
+                List.of(new DiagramGraph.Node("none", "No exposure from " + graph.subject(), DiagramGraph.Kind.CIDR)),
+                List.of()));
+        }
+
+        var layout = LayeredLayout.of(graph);
+        var svg = new StringBuilder(256 + 200 * (layout.nodes().size() + layout.edges().size()));
+        svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(number(layout.width()))
+           .append("\" height=\"").append(number(layout.height()))
+           .append("\" viewBox=\"0 0 ").append(number(layout.width())).append(' ').append(number(layout.height()))
+           .append("\" font-family=\"sans-serif\" font-size=\"12\">\n");
+        svg.append("<defs><marker id=\"arrow\" viewBox=\"0 0 10 10\" refX=\"10\" refY=\"5\" markerWidth=\"8\" ")
+           .append("markerHeight=\"8\" orient=\"auto-start-reverse\"><path d=\"M0,0 L10,5 L0,10 z\" fill=\"#555\"/></marker></defs>\n");
+
+        // Edges first so that nodes are painted over their ends
+        for (var edge : layout.edges()) {
+            var midY = (edge.y1() + edge.y2()) / 2;
+            svg.append("<path d=\"M").append(number(edge.x1())).append(',').append(number(edge.y1()))
+               .append(" C").append(number(edge.x1())).append(',').append(number(midY))
+               .append(' ').append(number(edge.x2())).append(',').append(number(midY))
+               .append(' ').append(number(edge.x2())).append(',').append(number(edge.y2()))
+               .append("\" fill=\"none\" stroke=\"#555\" marker-end=\"url(#arrow)\"/>\n");
+            if (!edge.labels().isEmpty()) {
+                var labelX = (edge.x1() + edge.x2()) / 2;
+                var firstY = midY - (edge.labels().size() - 1) * LINE_HEIGHT / 2 + 4;
+                svg.append("<text x=\"").append(number(labelX)).append("\" y=\"").append(number(firstY))
+                   .append("\" text-anchor=\"middle\" fill=\"#333\" stroke=\"#fff\" stroke-width=\"3\" paint-order=\"stroke\">");
+                for (int i = 0; i < edge.labels().size(); i++) {
+                    svg.append("<tspan x=\"").append(number(labelX)).append("\" dy=\"").append(i == 0 ? "0" : number(LINE_HEIGHT))
+                       .append("\">").append(escape(edge.labels().get(i))).append("</tspan>");
+                }
+                svg.append("</text>\n");
+            }
+        }
+
+        for (var node : layout.nodes()) {
+            svg.append("<g class=\"").append(node.node().kind().styleClass()).append("\"><title>")
+               .append(escape(node.node().id())).append("</title>");
+            svg.append("<rect x=\"").append(number(node.x())).append("\" y=\"").append(number(node.y()))
+               .append("\" width=\"").append(number(node.width())).append("\" height=\"").append(number(node.height()))
+               .append("\" rx=\"4\" fill=\"").append(node.node().kind().fill()).append("\" stroke=\"#333\"/>");
+            svg.append("<text x=\"").append(number(node.centerX())).append("\" y=\"").append(number(node.y() + node.height() / 2 + 4))
+               .append("\" text-anchor=\"middle\">").append(escape(node.node().label())).append("</text></g>\n");
+        }
+
+        return svg.append("</svg>").toString();
+    }
+
+    // One decimal place is plenty for screen coordinates and keeps the document small
+    private static String number(double value) {
+        return value == Math.rint(value) ? Long.toString((long) value) : String.format(Locale.ROOT, "%.1f", value);
+    }
+
+    private static String escape(String text) {
+        var escaped = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            var c = text.charAt(i);
+            switch (c) {
+                case '&' -> escaped.append("&amp;");
+                case '<' -> escaped.append("&lt;");
+                case '>' -> escaped.append("&gt;");
+                case '"' -> escaped.append("&quot;");
+                case '\'' -> escaped.append("&#39;");
+                default -> escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+}
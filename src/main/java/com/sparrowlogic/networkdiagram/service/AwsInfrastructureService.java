@@ -1,146 +1,461 @@
 package com.sparrowlogic.networkdiagram.service;
 
+import com.sparrowlogic.networkdiagram.aws.AwsClientRegistry;
+import com.sparrowlogic.networkdiagram.aws.MetricTags;
+import com.sparrowlogic.networkdiagram.model.CompactRuleList;
 import com.sparrowlogic.networkdiagram.model.InfrastructureComponents;
-import com.sparrowlogic.networkdiagram.model.SecurityGroupRule;
+import com.sparrowlogic.networkdiagram.model.InventoryKey;
+import com.sparrowlogic.networkdiagram.model.RuleDirection;
+import com.sparrowlogic.networkdiagram.model.RuleSourcePool;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import software.amazon.awssdk.auth.credentials.ProfileCredentialsProvider;
 import software.amazon.awssdk.services.autoscaling.AutoScalingClient;
+import software.amazon.awssdk.services.autoscaling.model.AutoScalingGroup;
+import software.amazon.awssdk.services.autoscaling.model.AutoScalingInstanceDetails;
+import software.amazon.awssdk.services.autoscaling.model.DescribeAutoScalingGroupsRequest;
+import software.amazon.awssdk.services.autoscaling.model.DescribeAutoScalingInstancesRequest;
 import software.amazon.awssdk.services.ec2.Ec2Client;
 import software.amazon.awssdk.services.ec2.model.*;
 import software.amazon.awssdk.services.elasticloadbalancingv2.ElasticLoadBalancingV2Client;
+import software.amazon.awssdk.services.elasticloadbalancingv2.model.DescribeLoadBalancersRequest;
+import software.amazon.awssdk.services.elasticloadbalancingv2.model.DescribeTargetGroupsRequest;
+import software.amazon.awssdk.services.elasticloadbalancingv2.model.DescribeTargetHealthRequest;
+import software.amazon.awssdk.services.elasticloadbalancingv2.model.LoadBalancer;
+import software.amazon.awssdk.services.elasticloadbalancingv2.model.LoadBalancerNotFoundException;
+import software.amazon.awssdk.services.elasticloadbalancingv2.model.TargetTypeEnum;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
-public class AwsInfrastructureService {
+public class AwsInfrastructureService implements InfrastructureSource {
 
+    // Largest page sizes each API accepts, to keep the number of round trips down
+    private static final int EC2_PAGE_SIZE = 1000;
+    private static final int ELB_PAGE_SIZE = 400;
+    private static final int ASG_PAGE_SIZE = 100;
+    // Most names or instance IDs a single DescribeLoadBalancers or DescribeAutoScalingInstances call accepts
+    private static final int ELB_NAMES_PER_CALL = 20;
+    private static final int ASG_INSTANCES_PER_CALL = 50;
+
+    private final AwsClientRegistry clientRegistry;
+    private final MeterRegistry meterRegistry;
+    private final Duration callTimeout;
+    private final Semaphore permits;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ConcurrentHashMap<InventoryKey, List<Consumer<String>>> progressListeners = new ConcurrentHashMap<>();
+
+    public AwsInfrastructureService(AwsClientRegistry clientRegistry, MeterRegistry meterRegistry,
+                                    @Value("${aws.inventory.max-concurrency:8}") int maxConcurrency,
+                                    @Value("${aws.inventory.call-timeout:PT2M}") Duration callTimeout) {
+        this.clientRegistry = clientRegistry;
+        this.meterRegistry = meterRegistry;
+        this.callTimeout = callTimeout;
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    // Lets a caller follow a crawl it may not have started itself, such as one shared through the
+    // inventory cache. The listener hears one message per resource type fetched; run the returned
+    // action to stop listening.
+    public Runnable onProgress(InventoryKey key, Consumer<String> listener) {
+        progressListeners.compute(key, (k, listeners) -> {
+            var updated = listeners != null ? listeners : new CopyOnWriteArrayList<Consumer<String>>();
+            updated.add(listener);
+            return updated;
+        });
+        return () -> progressListeners.computeIfPresent(key, (k, listeners) -> {
+            listeners.remove(listener);
+            return listeners.isEmpty() ? null : listeners;
+        });
+    }
+
+    @Override
     public InfrastructureComponents getInfrastructure(String profile, String region, String vpcId) {
-        var credentialsProvider = profile != null ? 
-            ProfileCredentialsProvider.create(profile) : 
-            ProfileCredentialsProvider.create();
-            
-        var ec2Client = Ec2Client.builder()
-            .credentialsProvider(credentialsProvider)
-            .region(software.amazon.awssdk.regions.Region.of(region))
-            .build();
-        var elbClient = ElasticLoadBalancingV2Client.builder()
-            .credentialsProvider(credentialsProvider)
-            .region(software.amazon.awssdk.regions.Region.of(region))
-            .build();
+        var key = new InventoryKey(profile, region, vpcId);
+        var crawl = Timer.start(meterRegistry);
+        var outcome = "failure";
+        try (var clients = clientRegistry.acquire(profile, region);
+             var fanOut = new FanOut(executor, permits, callTimeout)) {
+            // Only the ASGs depend on another fetch, so everything else runs concurrently. Within a VPC they
+            // are looked up from its instances; region-wide there is nothing to narrow them by.
+            var securityGroups = fanOut.fork("security groups", reported(key, "security groups",
+                timed(region, "security-groups", () -> fetchSecurityGroups(clients.ec2(), vpcId))));
+            var loadBalancers = fanOut.fork("load balancers", reported(key, "load balancers",
+                timed(region, "load-balancers", () -> fetchLoadBalancers(clients.ec2(), clients.elb(), vpcId))));
+            var targetGroups = fanOut.fork("target groups", reported(key, "target groups",
+                timed(region, "target-groups", () -> fetchTargetGroups(clients.elb(), vpcId))));
+            var instances = fanOut.fork("instances", reported(key, "instances",
+                timed(region, "instances", () -> fetchInstances(clients.ec2(), vpcId))));
+            var autoScalingGroups = vpcId == null ? fanOut.fork("auto scaling groups", reported(key, "auto scaling groups",
+                timed(region, "auto-scaling-groups", () -> fetchAutoScalingGroups(clients.autoScaling())))) : null;
 
-        var asgClient = AutoScalingClient.builder()
-            .credentialsProvider(credentialsProvider)
-            .region(software.amazon.awssdk.regions.Region.of(region))
-            .build();
+            var instanceList = fanOut.join(instances);
+            List<InfrastructureComponents.AutoScalingGroup> asgList;
+            if (autoScalingGroups != null) {
+                asgList = fanOut.join(autoScalingGroups);
+            } else {
+                asgList = fetchAutoScalingGroups(fanOut, clients.autoScaling(), region, instanceList);
+                report(key, "Fetched " + asgList.size() + " auto scaling groups");
+            }
+            var correlatedGroups = Timer.builder("inventory.correlate")
+                .description("Time to attach instance security groups to their Auto Scaling groups")
+                .tag("region", MetricTags.region(region))
+                .register(meterRegistry)
+                .record(() -> correlateSecurityGroups(asgList, instanceList));
+            var loadBalancerList = attachTargets(fanOut, clients.elb(), region, fanOut.join(loadBalancers), fanOut.join(targetGroups));
+            report(key, "Fetched load balancer targets");
+
+            var components = new InfrastructureComponents(fanOut.join(securityGroups), loadBalancerList,
+                instanceList, correlatedGroups, vpcId, List.of());
+            outcome = "success";
+            return components;
+        } finally {
+            crawl.stop(Timer.builder("inventory.crawl")
+                .description("End-to-end time to crawl one VPC inventory")
+                .tags("region", MetricTags.region(region), "outcome", outcome)
+                .register(meterRegistry));
+        }
+    }
 
-        var sgFilter = vpcId != null ? 
-            DescribeSecurityGroupsRequest.builder().filters(Filter.builder().name("vpc-id").values(vpcId).build()).build() :
-            DescribeSecurityGroupsRequest.builder().build();
+    // Regions enabled for the account; DescribeRegions already leaves out opt-in regions that are not enabled
+    public List<String> enabledRegions(String profile, String discoveryRegion) {
+        try (var clients = clientRegistry.acquire(profile, discoveryRegion)) {
+            return clients.ec2().describeRegions(DescribeRegionsRequest.builder().build()).regions().stream()
+                .map(Region::regionName)
+                .sorted()
+                .toList();
+        }
+    }
 
-        var securityGroups = ec2Client.describeSecurityGroups(sgFilter).securityGroups().stream()
+    @Override
+    public List<String> vpcIds(String profile, String region) {
+        try (var clients = clientRegistry.acquire(profile, region)) {
+            return clients.ec2().describeVpcsPaginator(DescribeVpcsRequest.builder().maxResults(EC2_PAGE_SIZE).build())
+                .vpcs().stream()
+                .map(Vpc::vpcId)
+                .sorted()
+                .toList();
+        }
+    }
+
+    private <T extends List<?>> Callable<T> reported(InventoryKey key, String resource, Callable<T> fetch) {
+        return () -> {
+            var result = fetch.call();
+            report(key, "Fetched " + result.size() + " " + resource);
+            return result;
+        };
+    }
+
+    // A listener that throws only loses its own message
+    private void report(InventoryKey key, String message) {
+        var listeners = progressListeners.get(key);
+        if (listeners == null) {
+            return;
+        }
+        for (var listener : listeners) {
+            try {
+                listener.accept(message);
+            } catch (RuntimeException ignored) {
+                // Not the crawl's problem
+            }
+        }
+    }
+
+    // Times one resource type's fetch, all pages included, tagged by region and resource type
+    private <T> Callable<T> timed(String region, String resource, Callable<T> fetch) {
+        return () -> {
+            var sample = Timer.start(meterRegistry);
+            var outcome = "failure";
+            try {
+                var result = fetch.call();
+                outcome = "success";
+                return result;
+            } finally {
+                sample.stop(Timer.builder("inventory.fetch")
+                    .description("Time to fetch every page of one resource type")
+                    .tags("region", MetricTags.region(region), "resource", resource, "outcome", outcome)
+                    .register(meterRegistry));
+            }
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Every describe call goes through the SDK paginators; each page is mapped to records as it
+    // arrives so only the mapped model is retained, never the raw SDK responses
+    private List<InfrastructureComponents.SecurityGroup> fetchSecurityGroups(Ec2Client ec2Client, String vpcId) {
+        var sgRequest = DescribeSecurityGroupsRequest.builder().maxResults(EC2_PAGE_SIZE);
+        if (vpcId != null) {
+            sgRequest.filters(Filter.builder().name("vpc-id").values(vpcId).build());
+        }
+
+        // One pool per crawl so every group shares the interned sources and protocols
+        var rulePool = new RuleSourcePool();
+        return ec2Client.describeSecurityGroupsPaginator(sgRequest.build()).securityGroups().stream()
             .map(sg -> {
-                var allRules = new java.util.ArrayList<SecurityGroupRule>();
-                
-                // Process ingress rules - handle multiple sources per rule
-                sg.ipPermissions().forEach(rule -> {
-                    // Handle CIDR blocks
-                    rule.ipRanges().forEach(ipRange -> {
-                        allRules.add(new SecurityGroupRule(
-                            rule.ipProtocol(),
-                            rule.fromPort() != null ? rule.fromPort() : 0,
-                            rule.toPort() != null ? rule.toPort() : 0,
-                            ipRange.cidrIp(),
-                            "ingress"
-                        ));
-                    });
-                    
-                    // Handle security group references
-                    rule.userIdGroupPairs().forEach(sgPair -> {
-                        allRules.add(new SecurityGroupRule(
-                            rule.ipProtocol(),
-                            rule.fromPort() != null ? rule.fromPort() : 0,
-                            rule.toPort() != null ? rule.toPort() : 0,
-                            sgPair.groupId(),
-                            "ingress"
-                        ));
-                    });
-                });
-                
-                // Process egress rules - handle multiple destinations per rule
-                sg.ipPermissionsEgress().forEach(rule -> {
-                    // Handle CIDR blocks
-                    rule.ipRanges().forEach(ipRange -> {
-                        allRules.add(new SecurityGroupRule(
-                            rule.ipProtocol(),
-                            rule.fromPort() != null ? rule.fromPort() : 0,
-                            rule.toPort() != null ? rule.toPort() : 0,
-                            ipRange.cidrIp(),
-                            "egress"
-                        ));
-                    });
-                    
-                    // Handle security group references
-                    rule.userIdGroupPairs().forEach(sgPair -> {
-                        allRules.add(new SecurityGroupRule(
-                            rule.ipProtocol(),
-                            rule.fromPort() != null ? rule.fromPort() : 0,
-                            rule.toPort() != null ? rule.toPort() : 0,
-                            sgPair.groupId(),
-                            "egress"
-                        ));
-                    });
-                });
-                
-                return new InfrastructureComponents.SecurityGroup(sg.groupId(), sg.groupName(), allRules);
+                var allRules = CompactRuleList.builder(rulePool);
+                sg.ipPermissions().forEach(rule -> addRules(allRules, rule, RuleDirection.INGRESS));
+                sg.ipPermissionsEgress().forEach(rule -> addRules(allRules, rule, RuleDirection.EGRESS));
+                return new InfrastructureComponents.SecurityGroup(sg.groupId(), sg.groupName(), allRules.build());
             }).toList();
+    }
 
-        var loadBalancers = elbClient.describeLoadBalancers().loadBalancers().stream()
+    // Target groups and targets are attached later by attachTargets. DescribeLoadBalancers cannot filter
+    // by VPC, so within a VPC the load balancers are named by their network interfaces there and only
+    // those are described.
+    private List<InfrastructureComponents.LoadBalancer> fetchLoadBalancers(Ec2Client ec2Client, ElasticLoadBalancingV2Client elbClient,
+                                                                           String vpcId) {
+        Stream<LoadBalancer> described;
+        if (vpcId == null) {
+            described = elbClient.describeLoadBalancersPaginator(
+                DescribeLoadBalancersRequest.builder().pageSize(ELB_PAGE_SIZE).build()).loadBalancers().stream();
+        } else {
+            var names = loadBalancerNamesInVpc(ec2Client, vpcId);
+            described = batches(names, ELB_NAMES_PER_CALL).stream()
+                .flatMap(batch -> describeLoadBalancers(elbClient, batch).stream());
+        }
+        return described
+            // A name may also belong to a load balancer in another VPC that has no interface in this one
             .filter(lb -> vpcId == null || lb.vpcId().equals(vpcId))
+            .map(lb -> new InfrastructureComponents.LoadBalancer(
+                lb.loadBalancerArn(),
+                lb.loadBalancerName(),
+                lb.type().toString(),
+                List.of()
+            )).toList();
+    }
+
+    // A load balancer deleted after its interfaces were listed fails the whole call for its batch, so
+    // that batch is retried one name at a time and the missing names are skipped
+    static List<LoadBalancer> describeLoadBalancers(ElasticLoadBalancingV2Client elbClient, List<String> names) {
+        try {
+            return elbClient.describeLoadBalancers(DescribeLoadBalancersRequest.builder().names(names).build()).loadBalancers();
+        } catch (LoadBalancerNotFoundException e) {
+            var found = new ArrayList<LoadBalancer>(names.size());
+            for (var name : names) {
+                try {
+                    found.addAll(elbClient.describeLoadBalancers(DescribeLoadBalancersRequest.builder().names(name).build())
+                        .loadBalancers());
+                } catch (LoadBalancerNotFoundException missing) {
+                    // Gone since its interfaces were listed
+                }
+            }
+            return found;
+        }
+    }
+
+    private List<String> loadBalancerNamesInVpc(Ec2Client ec2Client, String vpcId) {
+        var request = DescribeNetworkInterfacesRequest.builder()
+            .maxResults(EC2_PAGE_SIZE)
+            .filters(
+                Filter.builder().name("vpc-id").values(vpcId).build(),
+                Filter.builder().name("description").values("ELB app/*", "ELB net/*", "ELB gwy/*").build())
+            .build();
+        return ec2Client.describeNetworkInterfacesPaginator(request).networkInterfaces().stream()
+            .map(eni -> loadBalancerName(eni.description()))
+            .filter(Objects::nonNull)
+            .distinct()
+            .sorted()
+            .toList();
+    }
+
+    // "ELB app/my-alb/50dc6c495c0c9188" -> "my-alb"; classic load balancers are not in the v2 API
+    static String loadBalancerName(String interfaceDescription) {
+        if (interfaceDescription == null || !interfaceDescription.startsWith("ELB ")) {
+            return null;
+        }
+        var parts = interfaceDescription.substring(4).split("/");
+        return parts.length == 3 ? parts[1] : null;
+    }
+
+    // One region-wide sweep instead of a DescribeTargetGroups call per load balancer; target groups in
+    // other VPCs are dropped as each page arrives
+    private List<TargetGroupAttachment> fetchTargetGroups(ElasticLoadBalancingV2Client elbClient, String vpcId) {
+        return elbClient.describeTargetGroupsPaginator(
+                DescribeTargetGroupsRequest.builder().pageSize(ELB_PAGE_SIZE).build()
+            ).targetGroups().stream()
+            .filter(tg -> !tg.loadBalancerArns().isEmpty())
+            // Lambda target groups have no VPC
+            .filter(tg -> vpcId == null || tg.vpcId() == null || tg.vpcId().equals(vpcId))
+            .map(tg -> new TargetGroupAttachment(
+                tg.targetGroupArn(),
+                tg.targetType() == TargetTypeEnum.INSTANCE,
+                tg.loadBalancerArns()
+            )).toList();
+    }
+
+    List<InfrastructureComponents.LoadBalancer> attachTargets(FanOut fanOut, ElasticLoadBalancingV2Client elbClient, String region,
+                                                              List<InfrastructureComponents.LoadBalancer> loadBalancers,
+                                                              List<TargetGroupAttachment> targetGroups) {
+        var targetGroupsByLb = new HashMap<String, List<TargetGroupAttachment>>();
+        targetGroups.forEach(tg -> tg.loadBalancerArns().forEach(lbArn ->
+            targetGroupsByLb.computeIfAbsent(lbArn, arn -> new ArrayList<>()).add(tg)));
+
+        // DescribeTargetHealth takes a single target group, so look up every relevant group concurrently
+        var healthLookups = new HashMap<String, FanOut.Call<List<String>>>();
+        loadBalancers.forEach(lb -> targetGroupsByLb.getOrDefault(lb.id(), List.of()).stream()
+            .filter(TargetGroupAttachment::instanceTargets)
+            .forEach(tg -> healthLookups.computeIfAbsent(tg.arn(), arn ->
+                fanOut.fork("targets of " + arn,
+                    timed(region, "target-health", () -> fetchTargetInstanceIds(elbClient, arn))))));
+
+        return loadBalancers.stream()
             .map(lb -> {
-                // Get target groups for this load balancer
-                var targetGroups = elbClient.describeTargetGroups(
-                    software.amazon.awssdk.services.elasticloadbalancingv2.model.DescribeTargetGroupsRequest.builder()
-                        .loadBalancerArn(lb.loadBalancerArn())
-                        .build()
-                ).targetGroups().stream().map(tg -> tg.targetGroupArn()).toList();
-                
+                var attached = targetGroupsByLb.getOrDefault(lb.id(), List.of());
+                var targetInstanceIds = attached.stream()
+                    .filter(TargetGroupAttachment::instanceTargets)
+                    .flatMap(tg -> fanOut.join(healthLookups.get(tg.arn())).stream())
+                    .distinct()
+                    .toList();
                 return new InfrastructureComponents.LoadBalancer(
-                    lb.loadBalancerArn(),
-                    lb.loadBalancerName(),
-                    lb.type().toString(),
-                    targetGroups
+                    lb.id(),
+                    lb.name(),
+                    lb.type(),
+                    attached.stream().map(TargetGroupAttachment::arn).toList(),
+                    targetInstanceIds
                 );
             }).toList();
+    }
+
+    static List<String> fetchTargetInstanceIds(ElasticLoadBalancingV2Client elbClient, String targetGroupArn) {
+        return elbClient.describeTargetHealth(
+                DescribeTargetHealthRequest.builder().targetGroupArn(targetGroupArn).build()
+            ).targetHealthDescriptions().stream()
+            .map(health -> health.target().id())
+            .toList();
+    }
 
-        var instanceFilter = vpcId != null ?
-            DescribeInstancesRequest.builder().filters(Filter.builder().name("vpc-id").values(vpcId).build()).build() :
-            DescribeInstancesRequest.builder().build();
+    private List<InfrastructureComponents.Instance> fetchInstances(Ec2Client ec2Client, String vpcId) {
+        var instanceRequest = DescribeInstancesRequest.builder().maxResults(EC2_PAGE_SIZE);
+        if (vpcId != null) {
+            instanceRequest.filters(Filter.builder().name("vpc-id").values(vpcId).build());
+        }
 
-        var instances = ec2Client.describeInstances(instanceFilter).reservations().stream()
+        return ec2Client.describeInstancesPaginator(instanceRequest.build()).reservations().stream()
             .flatMap(r -> r.instances().stream())
             .map(i -> new InfrastructureComponents.Instance(
                 i.instanceId(),
                 i.instanceType().toString(),
                 i.securityGroups().stream().map(sg -> sg.groupId()).toList()
             )).toList();
+    }
+
+    // Security groups are filled in afterwards by correlateSecurityGroups, once the instances are known
+    private List<InfrastructureComponents.AutoScalingGroup> fetchAutoScalingGroups(AutoScalingClient asgClient) {
+        return asgClient.describeAutoScalingGroupsPaginator(
+                DescribeAutoScalingGroupsRequest.builder().maxRecords(ASG_PAGE_SIZE).build()
+            ).autoScalingGroups().stream()
+            .map(AwsInfrastructureService::toAutoScalingGroup)
+            .toList();
+    }
+
+    // Asks which ASGs the VPC's instances belong to, 50 instances per call and the batches concurrently,
+    // then describes only those groups. ASGs with no running instance in the VPC are not fetched; they
+    // have no security groups to draw.
+    private List<InfrastructureComponents.AutoScalingGroup> fetchAutoScalingGroups(FanOut fanOut, AutoScalingClient asgClient, String region,
+                                                                                   List<InfrastructureComponents.Instance> instances) {
+        var lookups = batches(instances.stream().map(InfrastructureComponents.Instance::id).toList(), ASG_INSTANCES_PER_CALL).stream()
+            .map(batch -> fanOut.fork("auto scaling instances", timed(region, "auto-scaling-instances", () ->
+                asgClient.describeAutoScalingInstances(DescribeAutoScalingInstancesRequest.builder()
+                        .instanceIds(batch).maxRecords(ASG_INSTANCES_PER_CALL).build())
+                    .autoScalingInstances().stream()
+                    .map(AutoScalingInstanceDetails::autoScalingGroupName)
+                    .toList())))
+            .toList();
+        var names = lookups.stream()
+            .flatMap(lookup -> fanOut.join(lookup).stream())
+            .distinct()
+            .sorted()
+            .toList();
+
+        var groups = batches(names, ASG_PAGE_SIZE).stream()
+            .map(batch -> fanOut.fork("auto scaling groups", timed(region, "auto-scaling-groups", () ->
+                asgClient.describeAutoScalingGroupsPaginator(DescribeAutoScalingGroupsRequest.builder()
+                        .autoScalingGroupNames(batch).maxRecords(ASG_PAGE_SIZE).build())
+                    .autoScalingGroups().stream()
+                    .map(AwsInfrastructureService::toAutoScalingGroup)
+                    .toList())))
+            .toList();
+        return groups.stream()
+            .flatMap(batch -> fanOut.join(batch).stream())
+            .toList();
+    }
+
+    private static InfrastructureComponents.AutoScalingGroup toAutoScalingGroup(AutoScalingGroup asg) {
+        return new InfrastructureComponents.AutoScalingGroup(
+            asg.autoScalingGroupName(),
+            asg.instances().stream().map(i -> i.instanceId()).toList(),
+            List.of()
+        );
+    }
+
+    private static <T> List<List<T>> batches(List<T> items, int size) {
+        var batches = new ArrayList<List<T>>();
+        for (int from = 0; from < items.size(); from += size) {
+            batches.add(items.subList(from, Math.min(from + size, items.size())));
+        }
+        return batches;
+    }
 
-        // Fetch Auto Scaling Groups
-        var autoScalingGroups = asgClient.describeAutoScalingGroups().autoScalingGroups().stream()
+    // Hash join on instance ID. Each group's security groups keep the order of the instance list, as
+    // they are drawn in that order.
+    static List<InfrastructureComponents.AutoScalingGroup> correlateSecurityGroups(
+            List<InfrastructureComponents.AutoScalingGroup> autoScalingGroups,
+            List<InfrastructureComponents.Instance> instances) {
+        var positions = new HashMap<String, Integer>(instances.size() * 2);
+        for (int i = 0; i < instances.size(); i++) {
+            positions.putIfAbsent(instances.get(i).id(), i);
+        }
+        return autoScalingGroups.stream()
             .map(asg -> {
-                var instanceIds = asg.instances().stream().map(i -> i.instanceId()).toList();
                 // Get security groups from instances in this ASG
-                var asgSecurityGroups = instances.stream()
-                    .filter(i -> instanceIds.contains(i.id()))
+                var asgSecurityGroups = asg.instanceIds().stream()
+                    .map(positions::get)
+                    .filter(Objects::nonNull)
+                    .mapToInt(Integer::intValue)
+                    .sorted()
+                    .distinct()
+                    .mapToObj(instances::get)
                     .flatMap(i -> i.securityGroups().stream())
                     .distinct()
                     .toList();
                 return new InfrastructureComponents.AutoScalingGroup(
-                    asg.autoScalingGroupName(),
-                    instanceIds,
+                    asg.name(),
+                    asg.instanceIds(),
                     asgSecurityGroups
                 );
             }).toList();
+    }
+
+    // Expands one permission into a rule per IPv4/IPv6 CIDR block and per referenced security group
+    private void addRules(CompactRuleList.Builder rules, IpPermission permission, RuleDirection direction) {
+        var fromPort = permission.fromPort() != null ? permission.fromPort() : 0;
+        var toPort = permission.toPort() != null ? permission.toPort() : 0;
 
-        return new InfrastructureComponents(securityGroups, loadBalancers, instances, autoScalingGroups, vpcId, List.of());
+        permission.ipRanges().forEach(ipRange ->
+            rules.add(permission.ipProtocol(), fromPort, toPort, ipRange.cidrIp(), direction));
+        permission.ipv6Ranges().forEach(ipv6Range ->
+            rules.add(permission.ipProtocol(), fromPort, toPort, ipv6Range.cidrIpv6(), direction));
+        permission.userIdGroupPairs().forEach(sgPair ->
+            rules.add(permission.ipProtocol(), fromPort, toPort, sgPair.groupId(), direction));
     }
+
+    record TargetGroupAttachment(String arn, boolean instanceTargets, List<String> loadBalancerArns) {}
 }
@@ -0,0 +1,70 @@
+package com.sparrowlogic.networkdiagram.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.function.ToDoubleFunction;
+
+// Exposes the counters behind /cache/stats as meters. They are read from the caches on every
+// scrape rather than pushed, so the caches stay free of any Micrometer dependency.
+@Component
+public class CacheMetrics implements MeterBinder {
+
+    private final InfrastructureCache infrastructureCache;
+    private final DiagramRenderCache renderCache;
+
+    public CacheMetrics(InfrastructureCache infrastructureCache, DiagramRenderCache renderCache) {
+        this.infrastructureCache = infrastructureCache;
+        this.renderCache = renderCache;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        inventoryRequests(registry, "hit", stats -> stats.hits());
+        inventoryRequests(registry, "stale-hit", stats -> stats.staleHits());
+        inventoryRequests(registry, "miss", stats -> stats.misses());
+        inventoryRequests(registry, "bypass", stats -> stats.bypasses());
+        FunctionCounter.builder("inventory.cache.loads", infrastructureCache, cache -> cache.stats().loads())
+            .description("Crawls started by the inventory cache")
+            .register(registry);
+        FunctionCounter.builder("inventory.cache.load.failures", infrastructureCache, cache -> cache.stats().loadFailures())
+            .description("Crawls started by the inventory cache that failed")
+            .register(registry);
+        FunctionCounter.builder("inventory.cache.evictions", infrastructureCache, cache -> cache.stats().evictions())
+            .register(registry);
+        Gauge.builder("inventory.cache.size", infrastructureCache, cache -> cache.stats().size())
+            .description("Cached inventories")
+            .register(registry);
+
+        renderRequests(registry, "hit", stats -> stats.hits());
+        renderRequests(registry, "miss", stats -> stats.misses());
+        FunctionCounter.builder("diagram.cache.evictions", renderCache, cache -> cache.stats().evictions())
+            .register(registry);
+        Gauge.builder("diagram.cache.size", renderCache, cache -> cache.stats().size())
+            .description("Cached rendered sections")
+            .register(registry);
+        Gauge.builder("diagram.cache.bytes", renderCache, cache -> cache.stats().bytes())
+            .description("Estimated memory held by cached rendered sections")
+            .baseUnit("bytes")
+            .register(registry);
+    }
+
+    private void inventoryRequests(MeterRegistry registry, String result,
+                                   ToDoubleFunction<InfrastructureCache.CacheStats> count) {
+        FunctionCounter.builder("inventory.cache.requests", infrastructureCache, cache -> count.applyAsDouble(cache.stats()))
+            .description("Inventory cache lookups by result")
+            .tag("result", result)
+            .register(registry);
+    }
+
+    private void renderRequests(MeterRegistry registry, String result,
+                                ToDoubleFunction<DiagramRenderCache.RenderStats> count) {
+        FunctionCounter.builder("diagram.cache.requests", renderCache, cache -> count.applyAsDouble(cache.stats()))
+            .description("Rendered section cache lookups by result")
+            .tag("result", result)
+            .register(registry);
+    }
+}
@@ -0,0 +1,75 @@
+package com.sparrowlogic.networkdiagram.service;
+
+import com.sparrowlogic.networkdiagram.model.DiagramSection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.function.Supplier;
+
+// Rendered sections keyed by the content hash of everything they were drawn from. Identical inputs
+// always render identically, so entries never go stale; they only leave through LRU eviction once
+// the estimated size of all cached text passes the byte budget.
+@Component
+public class DiagramRenderCache {
+
+    private final long maxBytes;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, DiagramSection> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public DiagramRenderCache(@Value("${diagram.cache.max-bytes:16777216}") long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    // Renders outside the lock; two threads missing on the same hash may both render, which is harmless
+    public DiagramSection get(String hash, Supplier<DiagramSection> render) {
+        synchronized (this) {
+            var cached = entries.get(hash);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+        }
+
+        var section = render.get();
+        var size = sizeOf(section);
+        if (size > maxBytes) {
+            return section;
+        }
+
+        synchronized (this) {
+            var previous = entries.put(hash, section);
+            bytes += size - (previous != null ? sizeOf(previous) : 0);
+            var eldest = entries.entrySet().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                bytes -= sizeOf(eldest.next().getValue());
+                eldest.remove();
+                evictions++;
+            }
+        }
+        return section;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized RenderStats stats() {
+        return new RenderStats(hits, misses, evictions, entries.size(), bytes);
+    }
+
+    // Strings are counted at two bytes per char plus a fixed allowance for the objects around them
+    private static long sizeOf(DiagramSection section) {
+        return 2L * (section.title().length() + section.cidr().length() + section.text().length()
+            + section.svg().length() + section.hash().length()) + 128;
+    }
+
+    public record RenderStats(long hits, long misses, long evictions, int size, long bytes) {}
+}
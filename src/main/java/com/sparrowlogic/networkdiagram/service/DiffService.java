@@ -0,0 +1,59 @@
+package com.sparrowlogic.networkdiagram.service;
+
+import com.sparrowlogic.networkdiagram.index.InventoryFingerprint;
+import com.sparrowlogic.networkdiagram.model.Cidr;
+import com.sparrowlogic.networkdiagram.model.InventoryDiff;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+
+// Compares a snapshot with a later snapshot or with the current inventory and redraws only the
+// sections the change touched. Decoded snapshots, fingerprints and exposure indexes are shared
+// with the other services and kept for the last few inventories seen, so repeated diffs during a
+// change window only pay for what changed.
+@Service
+public class DiffService {
+
+    private final InfrastructureCache infrastructureCache;
+    private final InventoryIndexes indexes;
+    private final MermaidDiagramService mermaidService;
+
+    public DiffService(InfrastructureCache infrastructureCache, InventoryIndexes indexes,
+                       MermaidDiagramService mermaidService) {
+        this.infrastructureCache = infrastructureCache;
+        this.indexes = indexes;
+        this.mermaidService = mermaidService;
+    }
+
+    // to null compares against the current (cached) inventory
+    public InventoryDiff diff(String profile, String region, String vpcId, Instant from, Instant to, boolean detailed) {
+        var before = indexes.of(infrastructureCache.get(profile, region, vpcId, false, from));
+        var after = indexes.of(infrastructureCache.get(profile, region, vpcId, false, to));
+
+        var changes = InventoryFingerprint.diff(before.fingerprint(), after.fingerprint());
+        var affected = new ArrayList<>(InventoryFingerprint.affectedCidrs(before.fingerprint(), after.fingerprint(), changes));
+        affected.sort(Cidr::compareText);
+
+        // One hash lookup per affected CIDR, so classifying follows the size of the change
+        var added = new ArrayList<String>();
+        var removed = new ArrayList<String>();
+        var changed = new ArrayList<String>();
+        for (var cidr : affected) {
+            var wasDrawn = before.exposure().isExposed(cidr);
+            var isDrawn = after.exposure().isExposed(cidr);
+            if (wasDrawn && isDrawn) {
+                changed.add(cidr);
+            } else if (isDrawn) {
+                added.add(cidr);
+            } else if (wasDrawn) {
+                removed.add(cidr);
+            }
+        }
+
+        var redraw = new ArrayList<>(added);
+        redraw.addAll(changed);
+        var sections = mermaidService.generateSections(after.exposure(), redraw, detailed);
+        return new InventoryDiff(from, to, changes, added, removed, changed, sections);
+    }
+}
@@ -0,0 +1,92 @@
+package com.sparrowlogic.networkdiagram.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Runs a set of independent calls concurrently and fails fast: the first failure or timeout
+// cancels every other call in the set. Concurrency is bounded by the shared semaphore.
+final class FanOut implements AutoCloseable {
+
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final Duration callTimeout;
+    private final List<Future<?>> forked = new ArrayList<>();
+    private final AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+
+    FanOut(ExecutorService executor, Semaphore permits, Duration callTimeout) {
+        this.executor = executor;
+        this.permits = permits;
+        this.callTimeout = callTimeout;
+    }
+
+    <T> Call<T> fork(String name, Callable<T> task) {
+        var deadline = System.nanoTime() + callTimeout.toNanos();
+        var future = executor.submit(() -> {
+            permits.acquire();
+            try {
+                return task.call();
+            } catch (Throwable e) {
+                if (firstFailure.compareAndSet(null, e)) {
+                    cancelAll();
+                }
+                throw e;
+            } finally {
+                permits.release();
+            }
+        });
+        synchronized (forked) {
+            forked.add(future);
+        }
+        return new Call<>(name, future, deadline);
+    }
+
+    <T> T join(Call<T> call) {
+        try {
+            return call.future().get(Math.max(0, call.deadline() - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            cancelAll();
+            throw new IllegalStateException("Fetching " + call.name() + " did not complete within " + callTimeout);
+        } catch (ExecutionException | CancellationException e) {
+            throw propagate(call, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelAll();
+            throw new IllegalStateException("Interrupted while fetching " + call.name(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        cancelAll();
+    }
+
+    private RuntimeException propagate(Call<?> call, Exception e) {
+        // A cancelled call was stopped because a sibling failed; report the sibling's failure instead
+        var cause = firstFailure.get() != null ? firstFailure.get() : e.getCause();
+        if (cause instanceof RuntimeException runtime) {
+            return runtime;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException("Fetching " + call.name() + " failed", cause != null ? cause : e);
+    }
+
+    private void cancelAll() {
+        synchronized (forked) {
+            forked.forEach(f -> f.cancel(true));
+        }
+    }
+
+    record Call<T>(String name, Future<T> future, long deadline) {}
+}
@@ -0,0 +1,235 @@
+package com.sparrowlogic.networkdiagram.service;
+
+import com.sparrowlogic.networkdiagram.model.InfrastructureComponents;
+import com.sparrowlogic.networkdiagram.model.InventoryKey;
+import com.sparrowlogic.networkdiagram.snapshot.SnapshotStore;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class InfrastructureCache {
+
+    private static final Logger log = LoggerFactory.getLogger(InfrastructureCache.class);
+
+    private static final int MAX_SNAPSHOTS = 8;
+
+    private final InfrastructureSource source;
+    private final SnapshotStore snapshotStore;
+    private final long ttlNanos;
+    private final long staleNanos;
+    private final int maxEntries;
+
+    private final ConcurrentHashMap<InventoryKey, Entry> entries = new ConcurrentHashMap<>();
+    // Single-flight: at most one crawl per key, shared by every caller that needs it
+    private final ConcurrentHashMap<InventoryKey, CompletableFuture<InfrastructureComponents>> inFlight = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    // Decoded snapshots, least recently used out first. A lazily loaded page asks for the same snapshot
+    // once per section, and decoding it once also keeps it one object, so its indexes are reused too.
+    // Single-flight like crawls: a snapshot is only decoded once however many requests want it.
+    private final Map<SnapshotKey, CompletableFuture<InfrastructureComponents>> snapshots = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<SnapshotKey, CompletableFuture<InfrastructureComponents>> eldest) {
+            return size() > MAX_SNAPSHOTS;
+        }
+    };
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bypasses = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong loadFailures = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public InfrastructureCache(InfrastructureSource source, SnapshotStore snapshotStore,
+                               @Value("${inventory.cache.ttl:PT1M}") Duration ttl,
+                               @Value("${inventory.cache.stale-ttl:PT5M}") Duration staleTtl,
+                               @Value("${inventory.cache.max-entries:100}") int maxEntries) {
+        this.source = source;
+        this.snapshotStore = snapshotStore;
+        this.ttlNanos = ttl.toNanos();
+        this.staleNanos = ttl.plus(staleTtl).toNanos();
+        this.maxEntries = maxEntries;
+    }
+
+    public InfrastructureComponents get(String profile, String region, String vpcId, boolean refresh) {
+        var key = new InventoryKey(profile, region, vpcId);
+
+        if (refresh) {
+            bypasses.incrementAndGet();
+        } else {
+            var entry = entries.get(key);
+            if (entry == null && (entry = warmStart(key)) != null) {
+                var existing = entries.putIfAbsent(key, entry);
+                entry = existing != null ? existing : entry;
+            }
+            if (entry != null) {
+                var age = System.nanoTime() - entry.loadedAtNanos();
+                if (age < ttlNanos) {
+                    hits.incrementAndGet();
+                    return entry.components();
+                }
+                if (age < staleNanos) {
+                    // Serve the stale snapshot now and refresh it in the background
+                    staleHits.incrementAndGet();
+                    load(key);
+                    return entry.components();
+                }
+            }
+            misses.incrementAndGet();
+        }
+
+        return join(load(key));
+    }
+
+    // A snapshot timestamp redraws that crawl from disk without calling AWS; refresh is ignored for it
+    public InfrastructureComponents get(String profile, String region, String vpcId, boolean refresh, Instant snapshot) {
+        if (snapshot == null) {
+            return get(profile, region, vpcId, refresh);
+        }
+        var key = new SnapshotKey(new InventoryKey(profile, region, vpcId), snapshot);
+        var created = new CompletableFuture<InfrastructureComponents>();
+        CompletableFuture<InfrastructureComponents> existing;
+        synchronized (snapshots) {
+            existing = snapshots.putIfAbsent(key, created);
+        }
+        if (existing != null) {
+            return join(existing);
+        }
+        try {
+            var components = snapshotStore.load(key.inventory(), snapshot)
+                .orElseThrow(() -> new IllegalArgumentException("No snapshot taken at " + snapshot));
+            created.complete(components);
+            return components;
+        } catch (RuntimeException e) {
+            // Not remembered: the next request tries again
+            synchronized (snapshots) {
+                snapshots.remove(key, created);
+            }
+            created.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public void invalidate(String profile, String region, String vpcId) {
+        entries.remove(new InventoryKey(profile, region, vpcId));
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(hits.get(), staleHits.get(), misses.get(), bypasses.get(),
+            loads.get(), loadFailures.get(), evictions.get(), entries.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private CompletableFuture<InfrastructureComponents> load(InventoryKey key) {
+        var created = new CompletableFuture<InfrastructureComponents>();
+        var existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            return existing;
+        }
+
+        loads.incrementAndGet();
+        executor.execute(() -> {
+            InfrastructureComponents components;
+            try {
+                components = source.getInfrastructure(key.profile(), key.region(), key.vpcId());
+            } catch (Throwable e) {
+                loadFailures.incrementAndGet();
+                log.warn("Inventory load failed for {}: {}", key, e.getMessage());
+                inFlight.remove(key, created);
+                created.completeExceptionally(e);
+                return;
+            }
+            // Publish the entry and clear the in-flight marker before completing, so anyone who
+            // observes the result also sees the entry and can start the next refresh
+            entries.put(key, new Entry(components, System.nanoTime()));
+            evictOverflow();
+            inFlight.remove(key, created);
+            created.complete(components);
+            persist(key, components);
+        });
+        return created;
+    }
+
+    // After a restart, pick up the newest on-disk snapshot if it is still within the stale window;
+    // it is then served like any other cached entry and revalidated in the background. The age comes
+    // from the file name, so a snapshot that is too old is never decoded.
+    private Entry warmStart(InventoryKey key) {
+        try {
+            var newest = snapshotStore.list(key).stream().findFirst();
+            if (newest.isEmpty()) {
+                return null;
+            }
+            var takenAt = newest.get();
+            var ageNanos = Duration.between(takenAt, Instant.now()).toNanos();
+            if (ageNanos >= staleNanos) {
+                return null;
+            }
+            return snapshotStore.load(key, takenAt)
+                .map(components -> new Entry(components, System.nanoTime() - ageNanos))
+                .orElse(null);
+        } catch (RuntimeException e) {
+            log.warn("Ignoring unreadable snapshot for {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private void persist(InventoryKey key, InfrastructureComponents components) {
+        try {
+            snapshotStore.save(key, components);
+        } catch (RuntimeException e) {
+            log.warn("Failed to persist snapshot for {}: {}", key, e.getMessage());
+        }
+    }
+
+    private void evictOverflow() {
+        while (entries.size() > maxEntries) {
+            var oldest = entries.entrySet().stream()
+                .min(Comparator.comparingLong(e -> e.getValue().loadedAtNanos()))
+                .orElse(null);
+            if (oldest == null) {
+                return;
+            }
+            if (entries.remove(oldest.getKey(), oldest.getValue())) {
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private record Entry(InfrastructureComponents components, long loadedAtNanos) {}
+
+    private static InfrastructureComponents join(CompletableFuture<InfrastructureComponents> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        }
+    }
+
+    private record SnapshotKey(InventoryKey inventory, Instant takenAt) {}
+
+    public record CacheStats(long hits, long staleHits, long misses, long bypasses,
+                             long loads, long loadFailures, long evictions, int size) {}
+}
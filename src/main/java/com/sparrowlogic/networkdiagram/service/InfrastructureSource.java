@@ -0,0 +1,14 @@
+package com.sparrowlogic.networkdiagram.service;
+
+import com.sparrowlogic.networkdiagram.model.InfrastructureComponents;
+
+import java.util.List;
+
+// Where inventories come from: live AWS describe calls, or exported describe-* JSON when
+// inventory.source=dump. The inventory cache and the CLI only see this contract.
+public interface InfrastructureSource {
+
+    InfrastructureComponents getInfrastructure(String profile, String region, String vpcId);
+
+    List<String> vpcIds(String profile, String region);
+}
@@ -0,0 +1,118 @@
+package com.sparrowlogic.networkdiagram.service;
+
+import com.sparrowlogic.networkdiagram.index.AttackPathIndex;
+import com.sparrowlogic.networkdiagram.index.ExposureIndex;
+import com.sparrowlogic.networkdiagram.index.InventoryFingerprint;
+import com.sparrowlogic.networkdiagram.index.ReachabilityIndex;
+import com.sparrowlogic.networkdiagram.model.InfrastructureComponents;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// Everything derived from one inventory, shared by the diagram, reachability and diff services.
+// Inventories are matched by identity: the inventory cache and the snapshot cache hand out the same
+// object for as long as it is current, and comparing two inventories would cost as much as indexing
+// them. Each index is built on first use by one thread while any others asking for it wait. The
+// last inventory.index.max-entries inventories are kept, the least recently used going first.
+@Service
+public class InventoryIndexes {
+
+    private final Map<Identity, Indexes> entries;
+
+    public InventoryIndexes(@Value("${inventory.index.max-entries:8}") int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("inventory.index.max-entries must be at least 1");
+        }
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Identity, Indexes> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    // Cheap: nothing is built until one of the indexes is asked for
+    public Indexes of(InfrastructureComponents components) {
+        synchronized (entries) {
+            return entries.computeIfAbsent(new Identity(components), identity -> new Indexes(components));
+        }
+    }
+
+    public static final class Indexes {
+
+        private final InfrastructureComponents components;
+        private final Lazy<ExposureIndex> exposure;
+        private final Lazy<ReachabilityIndex> reachability;
+        private final Lazy<AttackPathIndex> attackPaths;
+        private final Lazy<InventoryFingerprint> fingerprint;
+        // Section ETags, keyed by view and CIDR
+        private final Map<String, String> sectionHashes = new ConcurrentHashMap<>();
+
+        private Indexes(InfrastructureComponents components) {
+            this.components = components;
+            this.exposure = new Lazy<>(() -> ExposureIndex.of(components));
+            this.reachability = new Lazy<>(() -> ReachabilityIndex.of(components));
+            this.attackPaths = new Lazy<>(() -> AttackPathIndex.of(components));
+            this.fingerprint = new Lazy<>(() -> InventoryFingerprint.of(components));
+        }
+
+        public InfrastructureComponents components() {
+            return components;
+        }
+
+        public ExposureIndex exposure() {
+            return exposure.get();
+        }
+
+        public ReachabilityIndex reachability() {
+            return reachability.get();
+        }
+
+        public AttackPathIndex attackPaths() {
+            return attackPaths.get();
+        }
+
+        public InventoryFingerprint fingerprint() {
+            return fingerprint.get();
+        }
+
+        Map<String, String> sectionHashes() {
+            return sectionHashes;
+        }
+    }
+
+    private static final class Lazy<T> {
+
+        private Supplier<T> supplier;
+        private T value;
+
+        Lazy(Supplier<T> supplier) {
+            this.supplier = supplier;
+        }
+
+        synchronized T get() {
+            if (supplier != null) {
+                value = supplier.get();
+                supplier = null;
+            }
+            return value;
+        }
+    }
+
+    private record Identity(InfrastructureComponents components) {
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Identity identity && identity.components == components;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(components);
+        }
+    }
+}
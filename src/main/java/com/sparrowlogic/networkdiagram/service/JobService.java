@@ -0,0 +1,305 @@
+package com.sparrowlogic.networkdiagram.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Long-running work (crawls, renders, sweeps) submitted from HTTP requests and run off the servlet
+// threads. At most jobs.max-running run at once and jobs.max-queued wait; anything beyond that is
+// rejected rather than queued without bound. Finished jobs, with their results, are kept for
+// jobs.retention and then forgotten; beyond jobs.max-finished of them the oldest go first.
+@Service
+public class JobService {
+
+    // Enough for a sweep of every region of a few dozen accounts; older events are dropped first
+    private static final int MAX_EVENTS = 10_000;
+
+    private final long retentionNanos;
+    private final int maxFinished;
+    private final ThreadPoolExecutor executor;
+    private final ConcurrentHashMap<String, Job> jobs = new ConcurrentHashMap<>();
+
+    public JobService(@Value("${jobs.max-running:4}") int maxRunning,
+                      @Value("${jobs.max-queued:100}") int maxQueued,
+                      @Value("${jobs.retention:PT30M}") Duration retention,
+                      @Value("${jobs.max-finished:100}") int maxFinished) {
+        if (maxRunning < 1 || maxQueued < 1 || maxFinished < 1) {
+            throw new IllegalArgumentException("jobs.max-running, jobs.max-queued and jobs.max-finished must be at least 1");
+        }
+        this.retentionNanos = retention.toNanos();
+        this.maxFinished = maxFinished;
+        this.executor = new ThreadPoolExecutor(maxRunning, maxRunning, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(maxQueued), Thread.ofVirtual().name("job-", 0).factory());
+    }
+
+    public enum State { QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED;
+
+        public boolean finished() {
+            return this != QUEUED && this != RUNNING;
+        }
+    }
+
+    public record Event(long sequence, Instant at, String stage, String message) {}
+
+    // result is only set once the job has succeeded; events are the full history so far
+    public record Status(String id, String kind, State state, Instant submittedAt, Instant startedAt, Instant finishedAt,
+                         List<Event> events, Object result, String error) {}
+
+    // Handed to the work so it can report progress; thread-safe
+    public interface Progress {
+        void report(String stage, String message);
+    }
+
+    public Status submit(String kind, Function<Progress, Object> work) {
+        purgeExpired();
+        var job = new Job(UUID.randomUUID().toString(), kind);
+        try {
+            job.future = executor.submit(() -> job.run(work));
+        } catch (RejectedExecutionException e) {
+            throw new JobRejectedException("Too many jobs queued; try again later");
+        }
+        jobs.put(job.id, job);
+        return job.status();
+    }
+
+    public Optional<Status> status(String id) {
+        purgeExpired();
+        return Optional.ofNullable(jobs.get(id)).map(Job::status);
+    }
+
+    // Replays every event after afterSequence, then delivers new ones as they happen. The listener is
+    // called with a null event once the job has finished, after which it is dropped. Returns false
+    // for an unknown job.
+    public boolean subscribe(String id, long afterSequence, Consumer<Event> listener) {
+        var job = jobs.get(id);
+        return job != null && job.subscribe(afterSequence, listener);
+    }
+
+    public void unsubscribe(String id, Consumer<Event> listener) {
+        var job = jobs.get(id);
+        if (job != null) {
+            job.unsubscribe(listener);
+        }
+    }
+
+    // Interrupts a running job; returns false for an unknown or already finished job
+    public boolean cancel(String id) {
+        var job = jobs.get(id);
+        return job != null && job.cancel();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void purgeExpired() {
+        var now = System.nanoTime();
+        jobs.values().removeIf(job -> job.expired(now, retentionNanos));
+        // A finished job never changes again, so its finish time is safe to sort on
+        var finished = jobs.values().stream()
+            .filter(Job::finished)
+            .sorted(Comparator.comparingLong(Job::finishedNanos))
+            .toList();
+        for (int i = 0; i < finished.size() - maxFinished; i++) {
+            jobs.remove(finished.get(i).id, finished.get(i));
+        }
+    }
+
+    public static class JobRejectedException extends RuntimeException {
+        public JobRejectedException(String message) {
+            super(message);
+        }
+    }
+
+    private static final class Job implements Progress {
+
+        private final String id;
+        private final String kind;
+        private final Instant submittedAt = Instant.now();
+        private final ArrayDeque<Event> events = new ArrayDeque<>();
+        private final List<Subscriber> listeners = new ArrayList<>();
+        private volatile Future<?> future;
+        private State state = State.QUEUED;
+        private Instant startedAt;
+        private Instant finishedAt;
+        private long finishedNanos;
+        private long sequence;
+        private Object result;
+        private String error;
+
+        Job(String id, String kind) {
+            this.id = id;
+            this.kind = kind;
+        }
+
+        void run(Function<Progress, Object> work) {
+            synchronized (this) {
+                if (state != State.QUEUED) {
+                    return;
+                }
+                state = State.RUNNING;
+                startedAt = Instant.now();
+            }
+            report("job", "Started");
+            try {
+                var output = work.apply(this);
+                finish(State.SUCCEEDED, output, null);
+            } catch (Throwable e) {
+                // Errors and sneakily thrown checked exceptions too: a job left RUNNING is never purged and
+                // its subscribers never hear the end. Errors still propagate once the job is marked failed.
+                finish(State.FAILED, null, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+                if (e instanceof Error error) {
+                    throw error;
+                }
+            }
+        }
+
+        @Override
+        public void report(String stage, String message) {
+            List<Subscriber> current;
+            Event event;
+            synchronized (this) {
+                if (state.finished()) {
+                    return;
+                }
+                event = new Event(++sequence, Instant.now(), stage, message);
+                addEvent(event);
+                current = List.copyOf(listeners);
+            }
+            deliver(current, event);
+        }
+
+        boolean cancel() {
+            synchronized (this) {
+                if (state.finished()) {
+                    return false;
+                }
+            }
+            // Finished first, so whatever the interrupted work throws on its way out is ignored
+            finish(State.CANCELLED, null, "Cancelled");
+            future.cancel(true);
+            return true;
+        }
+
+        // The missed events are copied under the job lock and replayed outside it. The subscriber's own
+        // lock is held throughout, so a live event delivered meanwhile waits for the replay to finish.
+        boolean subscribe(long afterSequence, Consumer<Event> listener) {
+            var subscriber = new Subscriber(listener);
+            synchronized (subscriber) {
+                List<Event> missed;
+                boolean ended;
+                synchronized (this) {
+                    missed = events.stream().filter(event -> event.sequence() > afterSequence).toList();
+                    ended = state.finished();
+                    if (!ended) {
+                        listeners.add(subscriber);
+                    }
+                }
+                try {
+                    missed.forEach(subscriber);
+                    if (ended) {
+                        subscriber.accept(null);
+                    }
+                } catch (RuntimeException e) {
+                    unsubscribe(listener);
+                }
+            }
+            return true;
+        }
+
+        synchronized void unsubscribe(Consumer<Event> listener) {
+            listeners.removeIf(subscriber -> subscriber.listener == listener);
+        }
+
+        synchronized Status status() {
+            return new Status(id, kind, state, submittedAt, startedAt, finishedAt, List.copyOf(events),
+                state == State.SUCCEEDED ? result : null, error);
+        }
+
+        synchronized boolean finished() {
+            return state.finished();
+        }
+
+        synchronized long finishedNanos() {
+            return finishedNanos;
+        }
+
+        synchronized boolean expired(long now, long retentionNanos) {
+            return state.finished() && now - finishedNanos >= retentionNanos;
+        }
+
+        private void finish(State outcome, Object output, String failure) {
+            List<Subscriber> current;
+            Event event;
+            synchronized (this) {
+                if (state.finished()) {
+                    return;
+                }
+                event = new Event(++sequence, Instant.now(), "job", outcome == State.SUCCEEDED ? "Succeeded" :
+                    outcome == State.CANCELLED ? "Cancelled" : "Failed: " + failure);
+                addEvent(event);
+                state = outcome;
+                result = output;
+                error = failure;
+                finishedAt = Instant.now();
+                finishedNanos = System.nanoTime();
+                current = List.copyOf(listeners);
+                listeners.clear();
+            }
+            deliver(current, event);
+            deliver(current, null);
+        }
+
+        // Only the latest MAX_EVENTS are kept, the final one included; callers hold the job lock
+        private void addEvent(Event event) {
+            events.add(event);
+            if (events.size() > MAX_EVENTS) {
+                events.removeFirst();
+            }
+        }
+
+        // Listeners are called outside the lock; one that throws (a closed stream) is dropped
+        private void deliver(List<Subscriber> current, Event event) {
+            for (var subscriber : current) {
+                try {
+                    subscriber.accept(event);
+                } catch (RuntimeException e) {
+                    unsubscribe(subscriber.listener);
+                }
+            }
+        }
+    }
+
+    // Serialises the calls to one listener, so its replay and live events arrive in sequence order
+    private static final class Subscriber implements Consumer<Event> {
+
+        private final Consumer<Event> listener;
+
+        Subscriber(Consumer<Event> listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public synchronized void accept(Event event) {
+            listener.accept(event);
+        }
+    }
+}
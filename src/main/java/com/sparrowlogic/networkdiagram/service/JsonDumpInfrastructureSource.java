@@ -0,0 +1,206 @@
+package com.sparrowlogic.networkdiagram.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sparrowlogic.networkdiagram.model.CompactRuleList;
+import com.sparrowlogic.networkdiagram.model.InfrastructureComponents;
+import com.sparrowlogic.networkdiagram.model.RuleDirection;
+import com.sparrowlogic.networkdiagram.model.RuleSourcePool;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Reads inventories from the JSON the AWS CLI prints for describe-security-groups, describe-instances,
+// elbv2 describe-load-balancers / describe-target-groups and autoscaling describe-auto-scaling-groups,
+// laid out as DIR/<profile>/<region>/<command>*.json. Several files per command (one per page, say)
+// are read in name order. Files are streamed token by token and only one array element (a security
+// group, a reservation's instance, ...) is materialised at a time, so heap use follows the size of
+// the resulting inventory, not of the dump.
+@Service
+@Primary
+@ConditionalOnProperty(name = "inventory.source", havingValue = "dump")
+public class JsonDumpInfrastructureSource implements InfrastructureSource {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Path dumpDir;
+
+    public JsonDumpInfrastructureSource(@Value("${inventory.dump.dir}") Path dumpDir) {
+        this.dumpDir = dumpDir;
+    }
+
+    // Target health has no dump equivalent (describe-target-health output does not name its target
+    // group), so load balancers come back with their target groups but no target instances
+    @Override
+    public InfrastructureComponents getInfrastructure(String profile, String region, String vpcId) {
+        var dir = regionDir(profile, region);
+
+        var rulePool = new RuleSourcePool();
+        var securityGroups = new ArrayList<InfrastructureComponents.SecurityGroup>();
+        read(dir, "describe-security-groups", new String[] {"SecurityGroups"}, sg -> {
+            if (inVpc(sg, vpcId)) {
+                var rules = CompactRuleList.builder(rulePool);
+                sg.path("IpPermissions").forEach(permission -> addRules(rules, permission, RuleDirection.INGRESS));
+                sg.path("IpPermissionsEgress").forEach(permission -> addRules(rules, permission, RuleDirection.EGRESS));
+                securityGroups.add(new InfrastructureComponents.SecurityGroup(
+                    sg.path("GroupId").asText(), sg.path("GroupName").asText(), rules.build()));
+            }
+        });
+
+        var instances = new ArrayList<InfrastructureComponents.Instance>();
+        read(dir, "describe-instances", new String[] {"Reservations", "Instances"}, instance -> {
+            if (inVpc(instance, vpcId)) {
+                instances.add(new InfrastructureComponents.Instance(
+                    instance.path("InstanceId").asText(),
+                    instance.path("InstanceType").asText(),
+                    texts(instance.path("SecurityGroups"), "GroupId")));
+            }
+        });
+
+        var targetGroupsByLb = new HashMap<String, List<String>>();
+        read(dir, "describe-target-groups", new String[] {"TargetGroups"}, tg ->
+            tg.path("LoadBalancerArns").forEach(lbArn ->
+                targetGroupsByLb.computeIfAbsent(lbArn.asText(), arn -> new ArrayList<>()).add(tg.path("TargetGroupArn").asText())));
+
+        var loadBalancers = new ArrayList<InfrastructureComponents.LoadBalancer>();
+        read(dir, "describe-load-balancers", new String[] {"LoadBalancers"}, lb -> {
+            if (inVpc(lb, vpcId)) {
+                var arn = lb.path("LoadBalancerArn").asText();
+                loadBalancers.add(new InfrastructureComponents.LoadBalancer(arn, lb.path("LoadBalancerName").asText(),
+                    lb.path("Type").asText(), targetGroupsByLb.getOrDefault(arn, List.of())));
+            }
+        });
+
+        // Like the live crawl of one VPC, only groups with an instance in it are kept
+        var instanceIds = new HashSet<String>();
+        instances.forEach(instance -> instanceIds.add(instance.id()));
+        var autoScalingGroups = new ArrayList<InfrastructureComponents.AutoScalingGroup>();
+        read(dir, "describe-auto-scaling-groups", new String[] {"AutoScalingGroups"}, asg -> {
+            var members = texts(asg.path("Instances"), "InstanceId");
+            if (vpcId == null || members.stream().anyMatch(instanceIds::contains)) {
+                autoScalingGroups.add(new InfrastructureComponents.AutoScalingGroup(
+                    asg.path("AutoScalingGroupName").asText(), members, List.of()));
+            }
+        });
+
+        return new InfrastructureComponents(securityGroups, loadBalancers, instances,
+            AwsInfrastructureService.correlateSecurityGroups(autoScalingGroups, instances), vpcId, List.of());
+    }
+
+    // From describe-vpcs dumps when there are any, otherwise every VPC a security group belongs to
+    @Override
+    public List<String> vpcIds(String profile, String region) {
+        var dir = regionDir(profile, region);
+        var vpcIds = new TreeSet<String>();
+        read(dir, "describe-vpcs", new String[] {"Vpcs"}, vpc -> vpcIds.add(vpc.path("VpcId").asText()));
+        if (vpcIds.isEmpty()) {
+            read(dir, "describe-security-groups", new String[] {"SecurityGroups"}, sg -> {
+                if (sg.hasNonNull("VpcId")) {
+                    vpcIds.add(sg.get("VpcId").asText());
+                }
+            });
+        }
+        return List.copyOf(vpcIds);
+    }
+
+    // Profile and region come from the request, so each has to name exactly one directory level:
+    // separators, "." and ".." would otherwise reach files outside the dump
+    private Path regionDir(String profile, String region) {
+        var name = profile != null && !profile.isBlank() ? profile : "default";
+        if (!isPlainSegment(name) || !isPlainSegment(region)) {
+            throw new IllegalArgumentException("Invalid profile or region: " + name + "/" + region);
+        }
+        var root = dumpDir.toAbsolutePath().normalize();
+        var dir = root.resolve(name).resolve(region).normalize();
+        if (!dir.startsWith(root) || dir.getNameCount() != root.getNameCount() + 2) {
+            throw new IllegalArgumentException("Invalid profile or region: " + name + "/" + region);
+        }
+        if (!Files.isDirectory(dir)) {
+            throw new IllegalArgumentException("No inventory dump for " + name + "/" + region + " under " + dumpDir);
+        }
+        return dir;
+    }
+
+    private static boolean isPlainSegment(String segment) {
+        return segment != null && !segment.isBlank() && !segment.equals(".") && !segment.equals("..")
+            && segment.indexOf('/') < 0 && segment.indexOf('\\') < 0;
+    }
+
+    private static boolean inVpc(JsonNode resource, String vpcId) {
+        return vpcId == null || vpcId.equals(resource.path("VpcId").asText(null));
+    }
+
+    private static List<String> texts(JsonNode array, String field) {
+        var values = new ArrayList<String>(array.size());
+        array.forEach(element -> values.add(element.path(field).asText()));
+        return values;
+    }
+
+    // Same expansion as the live crawl: one rule per IPv4/IPv6 range and per referenced security group
+    private static void addRules(CompactRuleList.Builder rules, JsonNode permission, RuleDirection direction) {
+        var protocol = permission.path("IpProtocol").asText();
+        var fromPort = permission.path("FromPort").asInt(0);
+        var toPort = permission.path("ToPort").asInt(0);
+        permission.path("IpRanges").forEach(range -> rules.add(protocol, fromPort, toPort, range.path("CidrIp").asText(), direction));
+        permission.path("Ipv6Ranges").forEach(range -> rules.add(protocol, fromPort, toPort, range.path("CidrIpv6").asText(), direction));
+        permission.path("UserIdGroupPairs").forEach(pair -> rules.add(protocol, fromPort, toPort, pair.path("GroupId").asText(), direction));
+    }
+
+    private static void read(Path dir, String command, String[] path, Consumer<JsonNode> action) {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(dir)) {
+            files = listing
+                .filter(file -> file.getFileName().toString().startsWith(command) && file.getFileName().toString().endsWith(".json"))
+                .sorted()
+                .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not list " + dir, e);
+        }
+        for (var file : files) {
+            try (var parser = MAPPER.createParser(file.toFile())) {
+                if (parser.nextToken() == JsonToken.START_OBJECT) {
+                    eachElement(parser, path, 0, action);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read " + file, e);
+            }
+        }
+    }
+
+    // With the parser on an object, finds the array field path[depth] and either hands each element
+    // to the action (last step) or descends into it. Everything else is skipped without being built.
+    private static void eachElement(JsonParser parser, String[] path, int depth, Consumer<JsonNode> action) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var name = parser.currentName();
+            var token = parser.nextToken();
+            if (!name.equals(path[depth]) || token != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (depth == path.length - 1) {
+                    action.accept(parser.readValueAsTree());
+                } else if (parser.currentToken() == JsonToken.START_OBJECT) {
+                    eachElement(parser, path, depth + 1, action);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+}
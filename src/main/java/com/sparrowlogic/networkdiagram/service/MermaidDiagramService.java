@@ -1,399 +1,357 @@
 package com.sparrowlogic.networkdiagram.service;
 
+import com.sparrowlogic.networkdiagram.index.ExposureIndex;
+import com.sparrowlogic.networkdiagram.model.DiagramGraph;
+import com.sparrowlogic.networkdiagram.model.DiagramSection;
 import com.sparrowlogic.networkdiagram.model.InfrastructureComponents;
+import com.sparrowlogic.networkdiagram.model.SecurityGroupRule;
+import com.sparrowlogic.networkdiagram.render.GraphReducer;
+import com.sparrowlogic.networkdiagram.render.SvgRenderer;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.HashMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
 
 @Service
 public class MermaidDiagramService {
 
+    private final DiagramRenderCache renderCache;
+    // A lazily loaded page fetches its sections one request at a time against the same inventory
+    private final InventoryIndexes indexes;
+    private final MeterRegistry meterRegistry;
+    // Applied unless the caller asks for the detailed view
+    private final GraphReducer.Limits limits;
+    // Null when diagram.render.parallelism is 1: sections are then built on the calling thread
+    private final ForkJoinPool renderPool;
+    public MermaidDiagramService(DiagramRenderCache renderCache, InventoryIndexes indexes, MeterRegistry meterRegistry,
+                                 @Value("${diagram.render.parallelism:0}") int parallelism,
+                                 @Value("${diagram.reduce.collapse-min:3}") int collapseMin,
+                                 @Value("${diagram.reduce.max-fan-out:25}") int maxFanOut) {
+        this.renderCache = renderCache;
+        this.indexes = indexes;
+        this.meterRegistry = meterRegistry;
+        this.limits = new GraphReducer.Limits(collapseMin, maxFanOut);
+        // 0 means one worker per available processor
+        var workers = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.renderPool = workers > 1 ? new ForkJoinPool(workers) : null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (renderPool != null) {
+            renderPool.shutdownNow();
+        }
+    }
+
+    // Emits one section per external CIDR to the sink, in address order. Sections are built in
+    // parallel (each only reads the shared index) but handed to the sink strictly in order, each
+    // as soon as it and everything before it are done. Unless detailed is set, each graph is reduced
+    // (port ranges merged, identical instances folded, fan-out capped) before it is rendered.
+    public void generateSections(InfrastructureComponents components, boolean detailed, Consumer<DiagramSection> sink) {
+        var index = indexFor(components);
+        render(index, index.externalCidrs(), detailed, sink);
+    }
+
+    // Only the given CIDRs, in the order given, against an index the caller already holds; used to
+    // redraw just the sections a change touched
+    public List<DiagramSection> generateSections(ExposureIndex index, Collection<String> cidrs, boolean detailed) {
+        var sections = new ArrayList<DiagramSection>(cidrs.size());
+        render(index, cidrs, detailed, sections::add);
+        return sections;
+    }
+
+    private void render(ExposureIndex index, Collection<String> cidrs, boolean detailed, Consumer<DiagramSection> sink) {
+        if (renderPool == null || cidrs.size() < 2) {
+            for (var cidr : cidrs) {
+                sink.accept(section(index, cidr, detailed));
+            }
+            return;
+        }
+
+        var tasks = new ArrayList<ForkJoinTask<DiagramSection>>(cidrs.size());
+        for (var cidr : cidrs) {
+            tasks.add(renderPool.submit(() -> section(index, cidr, detailed)));
+        }
+        try {
+            for (var task : tasks) {
+                sink.accept(task.join());
+            }
+        } finally {
+            // Nothing left to wait for on success; on failure (or a sink that gave up) drop the rest
+            tasks.forEach(task -> task.cancel(false));
+        }
+    }
+
+    // The section for one CIDR, or empty if no rule references it
+    public Optional<DiagramSection> generateSection(InfrastructureComponents components, String cidr, boolean detailed) {
+        var index = indexFor(components);
+        return index.externalCidrs().contains(cidr) ? Optional.of(section(index, cidr, detailed)) : Optional.empty();
+    }
+
+    // The ETag the section would carry, without rendering it; empty if no rule references the CIDR.
+    // Remembered per inventory, so a conditional request for an unchanged section is answered from a lookup.
+    public Optional<String> sectionHash(InfrastructureComponents components, String cidr, boolean detailed) {
+        var indexed = indexes.of(components);
+        var index = indexed.exposure();
+        if (!index.externalCidrs().contains(cidr)) {
+            return Optional.empty();
+        }
+        return Optional.of(indexed.sectionHashes().computeIfAbsent((detailed ? "detailed " : "reduced ") + cidr,
+            key -> fingerprint(index, exposure(index, cidr), detailed ? GraphReducer.Limits.NONE : limits)));
+    }
+
+    // The CIDRs that get a section, in report order, without rendering any of them
+    public List<String> sectionCidrs(InfrastructureComponents components) {
+        return List.copyOf(indexFor(components).externalCidrs());
+    }
+
+    // The section CIDRs that some ingress rule lets in; a CIDR only named by egress rules is not an exposure
+    public List<String> ingressCidrs(InfrastructureComponents components) {
+        var index = indexFor(components);
+        return index.externalCidrs().stream()
+            .filter(cidr -> !index.ingressFrom(cidr).isEmpty())
+            .toList();
+    }
+
+    // Hash over the section hashes, in order: changes whenever any section of the report does
+    public static String reportHash(List<DiagramSection> sections) {
+        var digest = sha256();
+        sections.forEach(section -> update(digest, section.hash()));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // Only hashes the resources the diagram reads; the render itself is skipped when the hash is cached
+    private DiagramSection section(ExposureIndex index, String cidr, boolean detailed) {
+        var exposure = exposure(index, cidr);
+        var hash = fingerprint(index, exposure, detailed ? GraphReducer.Limits.NONE : limits);
+        return renderCache.get(hash, () -> {
+            var view = detailed ? "detailed" : "reduced";
+            var sample = Timer.start(meterRegistry);
+            var full = graph(index, exposure);
+            var reduction = detailed ? new GraphReducer.Reduction(full, false) : GraphReducer.reduce(full, limits);
+            var graph = reduction.graph();
+            var section = new DiagramSection("Attack Surface: " + cidr, cidr, toMermaid(graph).strip(), SvgRenderer.render(graph),
+                reduction.reduced(), hash);
+            sample.stop(Timer.builder("diagram.section.build")
+                .description("Time to build, reduce and render one section; cache hits are not counted")
+                .tag("view", view)
+                .register(meterRegistry));
+            record("diagram.section.nodes", "Nodes drawn per section", view, graph.nodes().size());
+            record("diagram.section.edges", "Edges drawn per section", view, graph.edges().size());
+            record("diagram.section.bytes", "Mermaid plus SVG characters per section", view,
+                section.text().length() + section.svg().length());
+            return section;
+        });
+    }
+
+    private ExposureIndex indexFor(InfrastructureComponents components) {
+        return indexes.of(components).exposure();
+    }
+
+    private void record(String name, String description, String view, double amount) {
+        DistributionSummary.builder(name)
+            .description(description)
+            .tag("view", view)
+            .register(meterRegistry)
+            .record(amount);
+    }
+
+    // Everything drawn for one CIDR: matching ingress rules by security group, the ASGs and
+    // standalone instances behind those groups, each listed once, and the load balancers targeting
+    // any of them with the ids of the ASG or instance nodes they point at
+    private record Exposure(String cidr,
+                            Map<String, List<SecurityGroupRule>> rules,
+                            Set<InfrastructureComponents.AutoScalingGroup> autoScalingGroups,
+                            Set<InfrastructureComponents.Instance> instances,
+                            Map<InfrastructureComponents.LoadBalancer, Set<String>> loadBalancers) {}
+
+    private static Exposure exposure(ExposureIndex index, String cidr) {
+        var exposedRules = index.ingressFrom(cidr);
+        var exposedAsgs = new LinkedHashSet<InfrastructureComponents.AutoScalingGroup>();
+        var exposedInstances = new LinkedHashSet<InfrastructureComponents.Instance>();
+        exposedRules.keySet().forEach(sgId -> {
+            exposedAsgs.addAll(index.autoScalingGroupsFor(sgId));
+            exposedInstances.addAll(index.standaloneInstancesFor(sgId));
+        });
+        var loadBalancers = new LinkedHashMap<InfrastructureComponents.LoadBalancer, Set<String>>();
+        exposedAsgs.forEach(asg -> asg.instanceIds().forEach(instanceId -> index.loadBalancersFor(instanceId).forEach(lb ->
+            loadBalancers.computeIfAbsent(lb, key -> new LinkedHashSet<>()).add(asgNode(asg)))));
+        exposedInstances.forEach(instance -> index.loadBalancersFor(instance.id()).forEach(lb ->
+            loadBalancers.computeIfAbsent(lb, key -> new LinkedHashSet<>()).add(instance.id())));
+        return new Exposure(cidr, exposedRules, exposedAsgs, exposedInstances, loadBalancers);
+    }
+
+    private static String fingerprint(ExposureIndex index, Exposure exposure, GraphReducer.Limits limits) {
+        var digest = sha256();
+        update(digest, limits.toString());
+        update(digest, exposure.cidr());
+        exposure.rules().forEach((sgId, rules) -> {
+            update(digest, sgId);
+            update(digest, index.securityGroup(sgId).name());
+            rules.forEach(rule -> {
+                update(digest, rule.protocol());
+                update(digest, Integer.toString(rule.fromPort()));
+                update(digest, Integer.toString(rule.toPort()));
+            });
+        });
+        exposure.autoScalingGroups().forEach(asg -> {
+            update(digest, asg.name());
+            asg.securityGroups().forEach(sgId -> update(digest, sgId));
+        });
+        exposure.instances().forEach(instance -> {
+            update(digest, instance.id());
+            update(digest, instance.type());
+            instance.securityGroups().forEach(sgId -> update(digest, sgId));
+        });
+        exposure.loadBalancers().forEach((lb, targets) -> {
+            update(digest, lb.name());
+            update(digest, lb.type());
+            targets.forEach(target -> update(digest, target));
+        });
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Each value is NUL-terminated so that ("ab", "c") and ("a", "bc") hash differently
+    private static void update(MessageDigest digest, String value) {
+        digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    public List<DiagramSection> generateSections(InfrastructureComponents components, boolean detailed) {
+        var sections = new ArrayList<DiagramSection>();
+        generateSections(components, detailed, sections::add);
+        return sections;
+    }
+
+    public List<DiagramSection> generateSections(InfrastructureComponents components) {
+        return generateSections(components, false);
+    }
+
     public String generateDiagram(InfrastructureComponents components) {
-        // Find all external CIDR blocks that have access
-        var externalCidrs = new java.util.HashSet<String>();
-        components.securityGroups().forEach(sg -> 
-            sg.rules().forEach(rule -> {
-                if (!rule.source().startsWith("sg-") && 
-                    ("0.0.0.0/0".equals(rule.source()) || "::/0".equals(rule.source()) || 
-                     rule.source().contains("/32") || rule.source().contains("/128"))) {
-                    externalCidrs.add(rule.source());
-                }
-            }));
+        var sections = generateSections(components);
         
-        if (externalCidrs.isEmpty()) {
+        if (sections.isEmpty()) {
             return "No external CIDR exposures found.";
         }
         
         var diagrams = new StringBuilder();
-        for (var cidr : externalCidrs) {
-            diagrams.append("=== Attack Surface: ").append(cidr).append(" ===\n\n");
-            diagrams.append(generateCidrDiagram(components, cidr));
+        for (var section : sections) {
+            diagrams.append("=== ").append(section.title()).append(" ===\n\n");
+            diagrams.append(section.text());
             diagrams.append("\n\n");
         }
         return diagrams.toString();
     }
     
-    private String generateCidrDiagram(InfrastructureComponents components, String focusCidr) {
-        var diagram = new StringBuilder("graph TD\n");
-        
-        // Find security groups that allow access from this CIDR
-        var exposedSgs = new java.util.HashSet<String>();
-        var exposedPorts = new java.util.HashMap<String, java.util.List<String>>();
-        
-        components.securityGroups().forEach(sg -> {
-            var ports = new java.util.ArrayList<String>();
-            sg.rules().forEach(rule -> {
-                if (focusCidr.equals(rule.source()) && "ingress".equals(rule.direction())) {
-                    exposedSgs.add(sg.id());
-                    ports.add("Port " + rule.fromPort() + "-" + rule.toPort() + " (" + rule.protocol() + ")");
-                }
-            });
-            if (!ports.isEmpty()) {
-                exposedPorts.put(sg.id(), ports);
-            }
-        });
-        
-        if (exposedSgs.isEmpty()) {
-            return "graph TD\n    NoExposure[\"No exposure from " + focusCidr + "\"]\n";
+    // Nodes in drawing order: the CIDR, the security groups it reaches, the load balancers in front of
+    // what they protect, then the ASGs and standalone instances behind them
+    private static DiagramGraph graph(ExposureIndex index, Exposure exposure) {
+        var focusCidr = exposure.cidr();
+        var exposedRules = exposure.rules();
+        if (exposedRules.isEmpty()) {
+            return new DiagramGraph(focusCidr, List.of(), List.of());
         }
-        
-        // Add the CIDR block
+
+        var nodes = new ArrayList<DiagramGraph.Node>();
+        var edges = new ArrayList<DiagramGraph.Edge>();
         var cidrNode = "CIDR_" + focusCidr.replace(".", "_").replace("/", "_").replace(":", "_");
-        diagram.append("    ").append(cidrNode).append("[\"").append(focusCidr).append("\"]\n");
-        
-        // Add exposed security groups
-        exposedSgs.forEach(sgId -> {
-            var sg = components.securityGroups().stream()
-                .filter(s -> s.id().equals(sgId))
-                .findFirst().orElse(null);
-            if (sg != null) {
-                var sgNode = sgId.replace("-", "_");
-                diagram.append("    ").append(sgNode).append("[\"").append(sg.name()).append("\"]\n");
-                
-                // Add connections with port information
-                exposedPorts.get(sgId).forEach(portInfo -> {
-                    diagram.append("    ").append(cidrNode)
-                           .append(" -->|\"").append(portInfo).append("\"|")
-                           .append(sgNode).append("\n");
-                });
-            }
+        nodes.add(new DiagramGraph.Node(cidrNode, focusCidr, DiagramGraph.Kind.CIDR));
+        
+        // Add exposed security groups, with one edge per matching rule
+        exposedRules.forEach((sgId, rules) -> {
+            var sgNode = sgId.replace("-", "_");
+            nodes.add(new DiagramGraph.Node(sgNode, index.securityGroup(sgId).name(), DiagramGraph.Kind.SECURITY_GROUP));
+            rules.forEach(rule -> edges.add(new DiagramGraph.Edge(cidrNode, sgNode,
+                new DiagramGraph.Ports(rule.protocol(), rule.fromPort(), rule.toPort()))));
         });
         
-        // Add ASGs and instances behind exposed security groups
-        components.autoScalingGroups().stream()
-            .filter(asg -> asg.securityGroups().stream().anyMatch(exposedSgs::contains))
-            .forEach(asg -> {
-                var asgNode = asg.name().replace("-", "_");
-                diagram.append("    ").append(asgNode).append("[\"ASG: ").append(asg.name()).append("\"]\n");
-                
-                asg.securityGroups().stream()
-                    .filter(exposedSgs::contains)
-                    .forEach(sgId -> {
-                        var sgNode = sgId.replace("-", "_");
-                        diagram.append("    ").append(sgNode).append(" --> ").append(asgNode).append("\n");
-                    });
-            });
-        
-        // Add standalone instances behind exposed security groups
-        var asgInstanceIds = components.autoScalingGroups().stream()
-            .flatMap(asg -> asg.instanceIds().stream())
-            .collect(java.util.stream.Collectors.toSet());
-            
-        components.instances().stream()
-            .filter(i -> !asgInstanceIds.contains(i.id()))
-            .filter(i -> i.securityGroups().stream().anyMatch(exposedSgs::contains))
-            .forEach(instance -> {
-                diagram.append("    ").append(instance.id())
-                       .append("[\"").append(instance.id()).append(" (").append(instance.type()).append(")\"]\n");
-                
-                instance.securityGroups().stream()
-                    .filter(exposedSgs::contains)
-                    .forEach(sgId -> {
-                        var sgNode = sgId.replace("-", "_");
-                        diagram.append("    ").append(sgNode).append(" --> ").append(instance.id()).append("\n");
-                    });
-            });
-        
-        // Add colors
-        diagram.append("\n    classDef cidr fill:#ff6666\n");
-        diagram.append("    classDef sg fill:#99ccff\n");
-        diagram.append("    classDef asg fill:#ffb3ff\n");
-        diagram.append("    classDef ec2 fill:#ff9999\n\n");
-        
-        diagram.append("    class ").append(cidrNode).append(" cidr\n");
-        exposedSgs.forEach(sgId -> 
-            diagram.append("    class ").append(sgId.replace("-", "_")).append(" sg\n"));
-        
-        components.autoScalingGroups().stream()
-            .filter(asg -> asg.securityGroups().stream().anyMatch(exposedSgs::contains))
-            .forEach(asg -> 
-                diagram.append("    class ").append(asg.name().replace("-", "_")).append(" asg\n"));
-        
-        components.instances().stream()
-            .filter(i -> !asgInstanceIds.contains(i.id()))
-            .filter(i -> i.securityGroups().stream().anyMatch(exposedSgs::contains))
-            .forEach(instance -> 
-                diagram.append("    class ").append(instance.id()).append(" ec2\n"));
-        
-        return diagram.toString();
-    }
-    
-    private String generateSingleDiagram(InfrastructureComponents components, InfrastructureComponents.LoadBalancer focusLb) {
-        var diagram = new StringBuilder("graph TD\n");
-        
-        // Find relevant components for this specific load balancer
-        var relevantSgs = new java.util.HashSet<String>();
-        var relevantInstances = new java.util.HashSet<String>();
-        var relevantAsgs = new java.util.HashSet<String>();
-        var relevantCidrs = new java.util.HashSet<String>();
-        
-        if (focusLb != null) {
-            // Get instances that are actually targets of this specific load balancer
-            var targetInstanceIds = new java.util.HashSet<String>();
-            
-            // For each target group of this load balancer, get the target instances
-            // This is a simplified approach - in real implementation would call DescribeTargetHealth
-            // For now, we'll use a heuristic based on load balancer name matching
-            var lbNamePattern = focusLb.name().toLowerCase();
-            
-            // Find ASGs that might be associated with this load balancer (by naming convention)
-            components.autoScalingGroups().stream()
-                .filter(asg -> asg.name().toLowerCase().contains(lbNamePattern) || 
-                              lbNamePattern.contains(asg.name().toLowerCase().split("-")[0]))
-                .forEach(asg -> {
-                    relevantAsgs.add(asg.name());
-                    targetInstanceIds.addAll(asg.instanceIds());
-                    relevantSgs.addAll(asg.securityGroups());
-                });
-            
-            // Find instances that might be targets (by naming or tag convention)
-            components.instances().stream()
-                .filter(i -> !targetInstanceIds.contains(i.id())) // Not already in ASG
-                .filter(i -> i.id().toLowerCase().contains(lbNamePattern.split("-")[0]))
-                .forEach(i -> {
-                    relevantInstances.add(i.id());
-                    relevantSgs.addAll(i.securityGroups());
-                });
-            
-            // If no specific matches found, fall back to port-based filtering
-            if (relevantSgs.isEmpty()) {
-                components.securityGroups().forEach(sg -> {
-                    boolean isLbRelated = sg.rules().stream().anyMatch(rule -> 
-                        "ingress".equals(rule.direction()) &&
-                        ("0.0.0.0/0".equals(rule.source()) || "::/0".equals(rule.source())) &&
-                        (rule.fromPort() == 80 || rule.fromPort() == 443 || rule.fromPort() == 8080)
-                    );
-                    
-                    if (isLbRelated) {
-                        relevantSgs.add(sg.id());
-                    }
-                });
-            }
-            
-            // Add CIDRs from relevant security groups
-            components.securityGroups().stream()
-                .filter(sg -> relevantSgs.contains(sg.id()))
-                .forEach(sg -> sg.rules().forEach(rule -> {
-                    if (!rule.source().startsWith("sg-") && !isBroadSubnet(rule.source())) {
-                        relevantCidrs.add(rule.source());
-                    }
-                }));
-                
-        } else {
-            // For no focus, still filter out broad subnets
-            components.securityGroups().forEach(sg -> {
-                relevantSgs.add(sg.id());
-                sg.rules().forEach(rule -> {
-                    if (!rule.source().startsWith("sg-") && !isBroadSubnet(rule.source())) {
-                        relevantCidrs.add(rule.source());
-                    }
-                });
-            });
-            components.autoScalingGroups().forEach(asg -> relevantAsgs.add(asg.name()));
-            components.instances().forEach(i -> relevantInstances.add(i.id()));
-        }
-        
-        // If no relevant components found, return minimal diagram
-        if (relevantSgs.isEmpty() && relevantInstances.isEmpty() && relevantAsgs.isEmpty()) {
-            if (focusLb != null) {
-                var lbId = focusLb.id().substring(focusLb.id().lastIndexOf('/') + 1);
-                diagram.append("    ").append(lbId)
-                       .append("[\"").append(focusLb.name()).append(" (").append(focusLb.type()).append(")\"]\n");
-                diagram.append("    classDef lb fill:#99ff99\n");
-                diagram.append("    class ").append(lbId).append(" lb\n");
-            }
-            return diagram.toString();
-        }
-        
-        // Separate external and other CIDRs
-        var externalCidrs = new java.util.HashSet<String>();
-        var otherCidrs = new java.util.HashSet<String>();
-        
-        relevantCidrs.forEach(cidr -> {
-            if (cidr.equals("0.0.0.0/0") || cidr.equals("::/0")) {
-                externalCidrs.add(cidr);
-            } else {
-                otherCidrs.add(cidr);
-            }
+        // Load balancers are drawn beside the CIDR rather than behind it: their own security groups are
+        // not part of the inventory, only the targets they forward to
+        exposure.loadBalancers().forEach((lb, targets) -> {
+            var lbNode = "LB_" + lb.name().replace("-", "_");
+            nodes.add(new DiagramGraph.Node(lbNode, lb.name() + " (" + lb.type() + ")", DiagramGraph.Kind.LOAD_BALANCER));
+            targets.forEach(target -> edges.add(new DiagramGraph.Edge(lbNode, target, null)));
         });
-        
-        // Add external CIDR blocks first
-        if (!externalCidrs.isEmpty()) {
-            diagram.append("    subgraph External[\"External Networks\"]\n");
-            externalCidrs.forEach(cidr -> {
-                var cidrNode = "CIDR_" + cidr.replace(".", "_").replace("/", "_").replace(":", "_");
-                diagram.append("        ").append(cidrNode)
-                       .append("[\"").append(cidr).append("\"]\n");
-            });
-            diagram.append("    end\n\n");
-        }
-        
-        // Add other specific CIDR blocks
-        otherCidrs.forEach(cidr -> {
-            var cidrNode = "CIDR_" + cidr.replace(".", "_").replace("/", "_").replace(":", "_");
-            diagram.append("    ").append(cidrNode)
-                   .append("[\"").append(cidr).append("\"]\n");
+
+        exposure.autoScalingGroups().forEach(asg -> {
+            var asgNode = asgNode(asg);
+            nodes.add(new DiagramGraph.Node(asgNode, "ASG: " + asg.name(), DiagramGraph.Kind.AUTO_SCALING_GROUP));
+            asg.securityGroups().stream()
+                .filter(exposedRules::containsKey)
+                .forEach(sgId -> edges.add(new DiagramGraph.Edge(sgId.replace("-", "_"), asgNode, null)));
         });
         
-        // Add focused load balancer
-        if (focusLb != null) {
-            var lbId = focusLb.id().substring(focusLb.id().lastIndexOf('/') + 1);
-            diagram.append("    ").append(lbId)
-                   .append("[\"").append(focusLb.name()).append(" (").append(focusLb.type()).append(")\"]\n");
-        }
-        
-        // Add only relevant security groups
-        components.securityGroups().stream()
-            .filter(sg -> relevantSgs.contains(sg.id()))
-            .forEach(sg -> {
-                var sgNode = sg.id().replace("-", "_");
-                diagram.append("    ").append(sgNode)
-                       .append("[\"").append(sg.name()).append("\"]\n");
-            });
-        
-        // Add relevant ASGs
-        components.autoScalingGroups().stream()
-            .filter(asg -> relevantAsgs.contains(asg.name()))
-            .forEach(asg -> 
-                diagram.append("    ").append(asg.name().replace("-", "_"))
-                       .append("[\"ASG: ").append(asg.name()).append("\"]\n"));
-        
-        // Add only standalone instances (not in ASGs)
-        components.instances().stream()
-            .filter(instance -> relevantInstances.contains(instance.id()))
-            .forEach(instance -> 
-                diagram.append("    ").append(instance.id())
-                       .append("[\"").append(instance.id()).append(" (").append(instance.type()).append(")\"]\n"));
+        exposure.instances().forEach(instance -> {
+            nodes.add(new DiagramGraph.Node(instance.id(), instance.id() + " (" + instance.type() + ")", DiagramGraph.Kind.INSTANCE));
+            instance.securityGroups().stream()
+                .filter(exposedRules::containsKey)
+                .forEach(sgId -> edges.add(new DiagramGraph.Edge(sgId.replace("-", "_"), instance.id(), null)));
+        });
         
-        // Add connections from external to load balancer
-        if (focusLb != null && !externalCidrs.isEmpty()) {
-            var lbId = focusLb.id().substring(focusLb.id().lastIndexOf('/') + 1);
-            externalCidrs.forEach(cidr -> {
-                var cidrNode = "CIDR_" + cidr.replace(".", "_").replace("/", "_").replace(":", "_");
-                diagram.append("    ").append(cidrNode)
-                       .append(" -->|\"HTTP/HTTPS\"|").append(lbId).append("\n");
-            });
+        return new DiagramGraph(focusCidr, nodes, edges);
+    }
+
+    private static String asgNode(InfrastructureComponents.AutoScalingGroup asg) {
+        return asg.name().replace("-", "_");
+    }
+
+    // Each node is declared just before the edges leading into it, then styled by kind
+    static String toMermaid(DiagramGraph graph) {
+        if (graph.isEmpty()) {
+            return "graph TD\n    NoExposure[\"No exposure from " + graph.subject() + "\"]\n";
         }
-        
-        // Add only relevant security group connections
-        components.securityGroups().stream()
-            .filter(sg -> relevantSgs.contains(sg.id()))
-            .forEach(sg -> {
-                var sgNode = sg.id().replace("-", "_");
-                
-                // Group rules by direction and create connections for each unique source/destination
-                sg.rules().forEach(rule -> {
-                    // Skip broad subnets
-                    if (!rule.source().startsWith("sg-") && isBroadSubnet(rule.source())) {
-                        return;
-                    }
-                    
-                    var label = rule.direction().toUpperCase() + " Port " + rule.fromPort() + 
-                               "-" + rule.toPort() + " (" + rule.protocol() + ")";
-                    
-                    if (rule.source().startsWith("sg-") && relevantSgs.contains(rule.source())) {
-                        // Security group to security group connection
-                        var otherSg = rule.source().replace("-", "_");
-                        if ("ingress".equals(rule.direction())) {
-                            diagram.append("    ").append(otherSg)
-                                   .append(" -->|\"").append(label).append("\"|")
-                                   .append(sgNode).append("\n");
-                        } else {
-                            diagram.append("    ").append(sgNode)
-                                   .append(" -->|\"").append(label).append("\"|")
-                                   .append(otherSg).append("\n");
-                        }
-                    } else if (!rule.source().startsWith("sg-") && relevantCidrs.contains(rule.source())) {
-                        // CIDR to security group connection
-                        var cidrNode = "CIDR_" + rule.source().replace(".", "_").replace("/", "_").replace(":", "_");
-                        if ("ingress".equals(rule.direction())) {
-                            diagram.append("    ").append(cidrNode)
-                                   .append(" -->|\"").append(label).append("\"|")
-                                   .append(sgNode).append("\n");
-                        } else {
-                            diagram.append("    ").append(sgNode)
-                                   .append(" -->|\"").append(label).append("\"|")
-                                   .append(cidrNode).append("\n");
-                        }
-                    }
-                });
-                
-                // Connect security groups to ASGs and standalone instances
-                components.autoScalingGroups().stream()
-                    .filter(asg -> relevantAsgs.contains(asg.name()) && asg.securityGroups().contains(sg.id()))
-                    .forEach(asg -> diagram.append("    ").append(sgNode)
-                                           .append(" --> ").append(asg.name().replace("-", "_")).append("\n"));
-                
-                components.instances().stream()
-                    .filter(i -> relevantInstances.contains(i.id()) && i.securityGroups().contains(sg.id()))
-                    .forEach(i -> diagram.append("    ").append(sgNode)
-                                         .append(" --> ").append(i.id()).append("\n"));
+
+        var diagram = new StringBuilder("graph TD\n");
+        var incoming = new LinkedHashMap<String, List<DiagramGraph.Edge>>();
+        graph.edges().forEach(edge -> incoming.computeIfAbsent(edge.to(), to -> new ArrayList<>()).add(edge));
+        
+        graph.nodes().forEach(node -> {
+            diagram.append("    ").append(node.id()).append("[\"").append(node.label()).append("\"]\n");
+            incoming.getOrDefault(node.id(), List.of()).forEach(edge -> {
+                diagram.append("    ").append(edge.from());
+                if (edge.label() != null) {
+                    diagram.append(" -->|\"").append(edge.label()).append("\"|");
+                } else {
+                    diagram.append(" --> ");
+                }
+                diagram.append(edge.to()).append("\n");
             });
+        });
         
-        // Add color classes
-        diagram.append("\n    classDef ec2 fill:#ff9999\n");
-        diagram.append("    classDef sg fill:#99ccff\n");
-        diagram.append("    classDef lb fill:#99ff99\n");
-        diagram.append("    classDef cidr fill:#ffcc99\n");
-        diagram.append("    classDef asg fill:#ffb3ff\n\n");
-        
-        // Apply colors to relevant components only
-        components.instances().stream()
-            .filter(instance -> relevantInstances.contains(instance.id()))
-            .forEach(instance -> 
-                diagram.append("    class ").append(instance.id()).append(" ec2\n"));
-        
-        components.autoScalingGroups().stream()
-            .filter(asg -> relevantAsgs.contains(asg.name()))
-            .forEach(asg -> 
-                diagram.append("    class ").append(asg.name().replace("-", "_")).append(" asg\n"));
-        
-        components.securityGroups().stream()
-            .filter(sg -> relevantSgs.contains(sg.id()))
-            .forEach(sg -> 
-                diagram.append("    class ").append(sg.id().replace("-", "_")).append(" sg\n"));
-        
-        if (focusLb != null) {
-            var lbId = focusLb.id().substring(focusLb.id().lastIndexOf('/') + 1);
-            diagram.append("    class ").append(lbId).append(" lb\n");
+        // Add colors
+        diagram.append("\n");
+        for (var kind : DiagramGraph.Kind.values()) {
+            diagram.append("    classDef ").append(kind.styleClass()).append(" fill:").append(kind.fill()).append("\n");
         }
-        
-        relevantCidrs.forEach(cidr -> {
-            var sourceNode = "CIDR_" + cidr.replace(".", "_").replace("/", "_").replace(":", "_");
-            diagram.append("    class ").append(sourceNode).append(" cidr\n");
-        });
+        diagram.append("\n");
+        graph.nodes().forEach(node ->
+            diagram.append("    class ").append(node.id()).append(" ").append(node.kind().styleClass()).append("\n"));
         
         return diagram.toString();
     }
-    
-    private boolean isBroadSubnet(String cidr) {
-        if (!cidr.contains("/")) return false;
-        try {
-            int prefix = Integer.parseInt(cidr.substring(cidr.indexOf('/') + 1));
-            // Consider /16 or larger (smaller prefix) as broad subnets
-            return prefix <= 16;
-        } catch (NumberFormatException e) {
-            return false;
-        }
-    }
 }
@@ -0,0 +1,45 @@
+package com.sparrowlogic.networkdiagram.service;
+
+import com.sparrowlogic.networkdiagram.index.AttackPathIndex;
+import com.sparrowlogic.networkdiagram.index.ReachabilityIndex;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+@Service
+public class ReachabilityService {
+
+    private final InfrastructureCache infrastructureCache;
+    // Rebuilt only when the cache hands out a different inventory; the attack path index is only
+    // built once /api/reachability/paths asks for it
+    private final InventoryIndexes indexes;
+
+    public ReachabilityService(InfrastructureCache infrastructureCache, InventoryIndexes indexes) {
+        this.infrastructureCache = infrastructureCache;
+        this.indexes = indexes;
+    }
+
+    public List<ReachabilityIndex.Reachability> reachableFrom(String profile, String region, String vpcId,
+                                                              List<String> sources, String protocol, int port) {
+        var index = indexFor(profile, region, vpcId).reachability();
+        return sources.stream()
+            .map(source -> index.reachableFrom(source, protocol, port))
+            .toList();
+    }
+
+    // Without sources, paths start from every external CIDR the inventory's ingress rules name
+    public List<AttackPathIndex.Exposure> attackPaths(String profile, String region, String vpcId,
+                                                      List<String> sources, String protocol, int port) {
+        var index = indexFor(profile, region, vpcId).attackPaths();
+        if (sources == null || sources.isEmpty()) {
+            return index.fromExternalCidrs(protocol, port);
+        }
+        return sources.stream()
+            .map(source -> index.pathsFrom(source, protocol, port))
+            .toList();
+    }
+
+    private InventoryIndexes.Indexes indexFor(String profile, String region, String vpcId) {
+        return indexes.of(infrastructureCache.get(profile, region, vpcId, false));
+    }
+}
@@ -0,0 +1,211 @@
+package com.sparrowlogic.networkdiagram.service;
+
+import com.sparrowlogic.networkdiagram.model.Cidr;
+import com.sparrowlogic.networkdiagram.model.SweepReport;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+// Crawls every VPC of many (profile, region) pairs. Each region is one unit of work: at most
+// sweep.max-concurrency regions run at once overall and sweep.max-per-profile per profile, so one
+// large account cannot take every slot. Describe calls are further bounded and paced by the
+// AWS service itself. A failed region or VPC is recorded and the sweep carries on.
+@Service
+public class SweepService {
+
+    private final AwsInfrastructureService awsService;
+    private final InfrastructureCache infrastructureCache;
+    private final MermaidDiagramService mermaidService;
+    private final Semaphore permits;
+    private final int maxPerProfile;
+    private final String discoveryRegion;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public SweepService(AwsInfrastructureService awsService, InfrastructureCache infrastructureCache,
+                        MermaidDiagramService mermaidService,
+                        @Value("${sweep.max-concurrency:8}") int maxConcurrency,
+                        @Value("${sweep.max-per-profile:2}") int maxPerProfile,
+                        @Value("${sweep.discovery-region:us-east-1}") String discoveryRegion) {
+        if (maxConcurrency < 1 || maxPerProfile < 1) {
+            throw new IllegalArgumentException("sweep.max-concurrency and sweep.max-per-profile must be at least 1");
+        }
+        this.awsService = awsService;
+        this.infrastructureCache = infrastructureCache;
+        this.mermaidService = mermaidService;
+        this.permits = new Semaphore(maxConcurrency);
+        this.maxPerProfile = maxPerProfile;
+        this.discoveryRegion = discoveryRegion;
+    }
+
+    // An empty regions list sweeps every region enabled for each profile. Progress is reported from
+    // worker threads, one call at a time.
+    public SweepReport sweep(List<String> profiles, List<String> regions, boolean refresh, Consumer<SweepReport.Progress> progress) {
+        if (profiles == null || profiles.isEmpty()) {
+            throw new IllegalArgumentException("At least one profile is required");
+        }
+        var startedAt = Instant.now();
+        var startNanos = System.nanoTime();
+        var tracker = new Tracker(progress);
+
+        var targets = new ArrayList<Target>();
+        for (var profile : profiles.stream().distinct().toList()) {
+            if (regions != null && !regions.isEmpty()) {
+                regions.stream().distinct().forEach(region -> targets.add(new Target(profile, region)));
+                continue;
+            }
+            try {
+                awsService.enabledRegions(profile, discoveryRegion).forEach(region -> targets.add(new Target(profile, region)));
+            } catch (RuntimeException e) {
+                tracker.failed(new SweepReport.Failure(profile, null, null, "Region discovery failed: " + e.getMessage()));
+            }
+        }
+        tracker.start(targets.size());
+
+        var profileLimits = new ConcurrentHashMap<String, Semaphore>();
+        var futures = new ArrayList<Future<List<Swept>>>(targets.size());
+        targets.forEach(target -> futures.add(executor.submit(() -> {
+            var profileLimit = profileLimits.computeIfAbsent(target.profile(), profile -> new Semaphore(maxPerProfile));
+            profileLimit.acquire();
+            try {
+                permits.acquire();
+                try {
+                    return sweepRegion(target, refresh, tracker);
+                } finally {
+                    permits.release();
+                }
+            } finally {
+                profileLimit.release();
+            }
+        })));
+
+        var swept = new ArrayList<Swept>();
+        try {
+            for (var future : futures) {
+                swept.addAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Sweep was interrupted");
+        } catch (ExecutionException e) {
+            // sweepRegion records its own failures, so this only happens on a bug
+            futures.forEach(future -> future.cancel(true));
+            throw new IllegalStateException("Sweep failed: " + e.getCause().getMessage(), e.getCause());
+        }
+
+        swept.sort(Comparator.comparing((Swept vpc) -> vpc.vpc().profile()).thenComparing(vpc -> vpc.vpc().region())
+            .thenComparing(vpc -> vpc.vpc().vpcId()));
+        return new SweepReport(startedAt, Duration.ofNanos(System.nanoTime() - startNanos),
+            swept.stream().map(Swept::vpc).toList(), exposures(swept), tracker.failures());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private List<Swept> sweepRegion(Target target, boolean refresh, Tracker tracker) {
+        List<String> vpcIds;
+        try {
+            vpcIds = awsService.vpcIds(target.profile(), target.region());
+        } catch (RuntimeException e) {
+            tracker.failed(new SweepReport.Failure(target.profile(), target.region(), null, e.getMessage()));
+            tracker.regionDone(target);
+            return List.of();
+        }
+
+        var vpcs = new ArrayList<Swept>(vpcIds.size());
+        for (var vpcId : vpcIds) {
+            try {
+                var components = infrastructureCache.get(target.profile(), target.region(), vpcId, refresh);
+                vpcs.add(new Swept(new SweepReport.Vpc(target.profile(), target.region(), vpcId,
+                    mermaidService.generateSections(components)), mermaidService.ingressCidrs(components)));
+                tracker.vpcDone(target, vpcId);
+            } catch (RuntimeException e) {
+                tracker.failed(new SweepReport.Failure(target.profile(), target.region(), vpcId, e.getMessage()));
+            }
+        }
+        tracker.regionDone(target);
+        return vpcs;
+    }
+
+    // Every external CIDR some ingress rule lets in, in address order, with the VPCs it can reach.
+    // Egress-only CIDRs still get a section but reach nothing.
+    private static List<SweepReport.Exposure> exposures(List<Swept> swept) {
+        var byCidr = new TreeMap<String, List<String>>(Cidr::compareText);
+        swept.forEach(vpc -> vpc.ingressCidrs().forEach(ingress ->
+            byCidr.computeIfAbsent(ingress, cidr -> new ArrayList<>()).add(vpc.vpc().location())));
+        return byCidr.entrySet().stream()
+            .map(entry -> new SweepReport.Exposure(entry.getKey(), List.copyOf(entry.getValue())))
+            .toList();
+    }
+
+    private record Target(String profile, String region) {}
+
+    private record Swept(SweepReport.Vpc vpc, List<String> ingressCidrs) {}
+
+    // Counts are only touched under the lock, which also serialises calls to the progress consumer.
+    // Progress is best effort: a consumer that throws (a closed stream, say) is not called again.
+    private static final class Tracker {
+
+        private Consumer<SweepReport.Progress> progress;
+        private final List<SweepReport.Failure> failures = new ArrayList<>();
+        private int regionsTotal;
+        private int regionsDone;
+        private int vpcsDone;
+
+        Tracker(Consumer<SweepReport.Progress> progress) {
+            this.progress = progress;
+        }
+
+        synchronized void start(int regions) {
+            regionsTotal = regions;
+            report("Sweeping " + regions + " regions");
+        }
+
+        synchronized void vpcDone(Target target, String vpcId) {
+            vpcsDone++;
+            report("Crawled " + target.profile() + "/" + target.region() + "/" + vpcId);
+        }
+
+        synchronized void regionDone(Target target) {
+            regionsDone++;
+            report("Finished " + target.profile() + "/" + target.region());
+        }
+
+        synchronized void failed(SweepReport.Failure failure) {
+            failures.add(failure);
+            report("Failed " + failure.profile() + (failure.region() != null ? "/" + failure.region() : "")
+                + (failure.vpcId() != null ? "/" + failure.vpcId() : "") + ": " + failure.error());
+        }
+
+        synchronized List<SweepReport.Failure> failures() {
+            return List.copyOf(failures);
+        }
+
+        private void report(String message) {
+            if (progress == null) {
+                return;
+            }
+            try {
+                progress.accept(new SweepReport.Progress(regionsTotal, regionsDone, vpcsDone, failures.size(), message));
+            } catch (RuntimeException e) {
+                progress = null;
+            }
+        }
+    }
+}
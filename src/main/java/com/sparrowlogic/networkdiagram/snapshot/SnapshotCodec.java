@@ -0,0 +1,266 @@
+package com.sparrowlogic.networkdiagram.snapshot;
+
+import com.sparrowlogic.networkdiagram.model.CompactRuleList;
+import com.sparrowlogic.networkdiagram.model.InfrastructureComponents;
+import com.sparrowlogic.networkdiagram.model.RuleDirection;
+import com.sparrowlogic.networkdiagram.model.RuleSourcePool;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Binary snapshot layout (all integers big-endian):
+//   magic "NDSNAP" + version short
+//   string table: int count, then (int UTF-8 length, UTF-8 bytes) per unique string
+//   rule sources, then rule protocols: int count, then one int string index per entry
+//   lists: int count, then one int string index per element
+//   body: components, with every string written as an int index into the table (-1 for null), and each
+//   group's rules as an int count followed by CompactRuleList rows that index the rule sources and protocols
+// Each distinct string (ids, names, CIDRs, protocols) is stored once, however often it is referenced.
+// Version 1 files, which wrote every rule as five int string indexes, are still read.
+final class SnapshotCodec {
+
+    private static final byte[] MAGIC = "NDSNAP".getBytes(StandardCharsets.US_ASCII);
+    private static final short VERSION = 2;
+    private static final short VERSION_STRING_RULES = 1;
+
+    private SnapshotCodec() {
+    }
+
+    static void write(InfrastructureComponents components, OutputStream target) throws IOException {
+        var strings = new StringTable();
+        var ruleSources = new StringTable();
+        var ruleProtocols = new StringTable();
+        var bodyBytes = new ByteArrayOutputStream();
+        var body = new DataOutputStream(bodyBytes);
+
+        body.writeInt(strings.ref(components.vpcId()));
+        writeStrings(body, strings, components.subnetIds());
+
+        body.writeInt(components.securityGroups().size());
+        for (var sg : components.securityGroups()) {
+            body.writeInt(strings.ref(sg.id()));
+            body.writeInt(strings.ref(sg.name()));
+            body.writeInt(sg.rules().size());
+            // Same row layout as CompactRuleList, so readers can use the rows where they lie
+            for (var rule : sg.rules()) {
+                body.writeByte(RuleDirection.of(rule.direction()).ordinal());
+                body.writeShort(protocolId(ruleProtocols.id(rule.protocol())));
+                body.writeInt(rule.fromPort());
+                body.writeInt(rule.toPort());
+                body.writeInt(ruleSources.id(rule.source()));
+            }
+        }
+
+        body.writeInt(components.loadBalancers().size());
+        for (var lb : components.loadBalancers()) {
+            body.writeInt(strings.ref(lb.id()));
+            body.writeInt(strings.ref(lb.name()));
+            body.writeInt(strings.ref(lb.type()));
+            writeStrings(body, strings, lb.targetGroups());
+            writeStrings(body, strings, lb.targetInstanceIds());
+        }
+
+        body.writeInt(components.instances().size());
+        for (var instance : components.instances()) {
+            body.writeInt(strings.ref(instance.id()));
+            body.writeInt(strings.ref(instance.type()));
+            writeStrings(body, strings, instance.securityGroups());
+        }
+
+        body.writeInt(components.autoScalingGroups().size());
+        for (var asg : components.autoScalingGroups()) {
+            body.writeInt(strings.ref(asg.name()));
+            writeStrings(body, strings, asg.instanceIds());
+            writeStrings(body, strings, asg.securityGroups());
+        }
+        body.flush();
+
+        // Resolved before the string table is written, which must already hold every rule source and protocol
+        var pool = new ByteArrayOutputStream();
+        var poolOut = new DataOutputStream(pool);
+        writeStrings(poolOut, strings, ruleSources.values);
+        writeStrings(poolOut, strings, ruleProtocols.values);
+        poolOut.flush();
+
+        var out = new DataOutputStream(target);
+        out.write(MAGIC);
+        out.writeShort(VERSION);
+        out.writeInt(strings.values.size());
+        for (var value : strings.values) {
+            var bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+        pool.writeTo(out);
+        bodyBytes.writeTo(out);
+        out.flush();
+    }
+
+    // Decodes everything but the rules onto the heap. Rules stay where they are in buffer and are read
+    // through CompactRuleList views, so the buffer must stay unchanged while the components are in use;
+    // only the distinct rule sources and protocols are decoded, into the pool every group shares.
+    static InfrastructureComponents read(ByteBuffer buffer) {
+        var magic = new byte[MAGIC.length];
+        buffer.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IllegalArgumentException("Not a network diagram snapshot");
+        }
+        var version = buffer.getShort();
+        if (version != VERSION && version != VERSION_STRING_RULES) {
+            throw new IllegalArgumentException("Unsupported snapshot version " + version);
+        }
+
+        var strings = new String[buffer.getInt()];
+        for (int i = 0; i < strings.length; i++) {
+            var length = buffer.getInt();
+            strings[i] = StandardCharsets.UTF_8.decode(buffer.slice(buffer.position(), length)).toString();
+            buffer.position(buffer.position() + length);
+        }
+
+        var rulePool = new RuleSourcePool();
+        if (version == VERSION) {
+            readRulePool(buffer, strings, rulePool);
+        }
+
+        var vpcId = string(strings, buffer.getInt());
+        var subnetIds = readStrings(buffer, strings);
+
+        var groupCount = buffer.getInt();
+        var securityGroups = new ArrayList<InfrastructureComponents.SecurityGroup>(groupCount);
+        for (int i = 0; i < groupCount; i++) {
+            var id = string(strings, buffer.getInt());
+            var name = string(strings, buffer.getInt());
+            var ruleCount = buffer.getInt();
+            var rules = version == VERSION
+                ? readRuleRows(buffer, ruleCount, rulePool)
+                : readStringRules(buffer, ruleCount, strings, rulePool);
+            securityGroups.add(new InfrastructureComponents.SecurityGroup(id, name, rules));
+        }
+
+        var loadBalancerCount = buffer.getInt();
+        var loadBalancers = new ArrayList<InfrastructureComponents.LoadBalancer>(loadBalancerCount);
+        for (int i = 0; i < loadBalancerCount; i++) {
+            loadBalancers.add(new InfrastructureComponents.LoadBalancer(
+                string(strings, buffer.getInt()),
+                string(strings, buffer.getInt()),
+                string(strings, buffer.getInt()),
+                readStrings(buffer, strings),
+                readStrings(buffer, strings)
+            ));
+        }
+
+        var instanceCount = buffer.getInt();
+        var instances = new ArrayList<InfrastructureComponents.Instance>(instanceCount);
+        for (int i = 0; i < instanceCount; i++) {
+            instances.add(new InfrastructureComponents.Instance(
+                string(strings, buffer.getInt()),
+                string(strings, buffer.getInt()),
+                readStrings(buffer, strings)
+            ));
+        }
+
+        var autoScalingGroupCount = buffer.getInt();
+        var autoScalingGroups = new ArrayList<InfrastructureComponents.AutoScalingGroup>(autoScalingGroupCount);
+        for (int i = 0; i < autoScalingGroupCount; i++) {
+            autoScalingGroups.add(new InfrastructureComponents.AutoScalingGroup(
+                string(strings, buffer.getInt()),
+                readStrings(buffer, strings),
+                readStrings(buffer, strings)
+            ));
+        }
+
+        return new InfrastructureComponents(List.copyOf(securityGroups), List.copyOf(loadBalancers),
+            List.copyOf(instances), List.copyOf(autoScalingGroups), vpcId, subnetIds);
+    }
+
+    // Interned in file order, so pool ids are the indexes the rule rows were written with
+    private static void readRulePool(ByteBuffer buffer, String[] strings, RuleSourcePool pool) {
+        var sourceCount = buffer.getInt();
+        for (int i = 0; i < sourceCount; i++) {
+            pool.internSource(string(strings, buffer.getInt()));
+        }
+        var protocolCount = buffer.getInt();
+        for (int i = 0; i < protocolCount; i++) {
+            pool.internProtocol(string(strings, buffer.getInt()));
+        }
+        if (pool.sourceCount() != sourceCount || pool.protocolCount() != protocolCount) {
+            throw new IllegalArgumentException("Snapshot rule sources or protocols are not unique");
+        }
+    }
+
+    private static CompactRuleList readRuleRows(ByteBuffer buffer, int ruleCount, RuleSourcePool pool) {
+        var length = Math.multiplyExact(ruleCount, CompactRuleList.RULE_BYTES);
+        var rules = CompactRuleList.view(pool, buffer.slice(buffer.position(), length));
+        buffer.position(buffer.position() + length);
+        return rules;
+    }
+
+    private static CompactRuleList readStringRules(ByteBuffer buffer, int ruleCount, String[] strings, RuleSourcePool pool) {
+        var rules = CompactRuleList.builder(pool);
+        for (int r = 0; r < ruleCount; r++) {
+            rules.add(
+                string(strings, buffer.getInt()),
+                buffer.getInt(),
+                buffer.getInt(),
+                string(strings, buffer.getInt()),
+                RuleDirection.of(string(strings, buffer.getInt()))
+            );
+        }
+        return rules.build();
+    }
+
+    private static short protocolId(int id) {
+        if (id > Short.MAX_VALUE) {
+            throw new IllegalStateException("Too many distinct protocols");
+        }
+        return (short) id;
+    }
+
+    private static void writeStrings(DataOutputStream out, StringTable strings, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (var value : values) {
+            out.writeInt(strings.ref(value));
+        }
+    }
+
+    private static List<String> readStrings(ByteBuffer buffer, String[] strings) {
+        var values = new String[buffer.getInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = string(strings, buffer.getInt());
+        }
+        return Arrays.asList(values);
+    }
+
+    private static String string(String[] strings, int ref) {
+        return ref < 0 ? null : strings[ref];
+    }
+
+    private static final class StringTable {
+        private final Map<String, Integer> refs = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int ref(String value) {
+            return value == null ? -1 : id(value);
+        }
+
+        // Like ref, but null gets an id of its own
+        int id(String value) {
+            var existing = refs.get(value);
+            if (existing != null) {
+                return existing;
+            }
+            values.add(value);
+            refs.put(value, values.size() - 1);
+            return values.size() - 1;
+        }
+    }
+}
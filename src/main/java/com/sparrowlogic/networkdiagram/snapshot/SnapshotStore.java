@@ -0,0 +1,141 @@
+package com.sparrowlogic.networkdiagram.snapshot;
+
+import com.sparrowlogic.networkdiagram.model.InfrastructureComponents;
+import com.sparrowlogic.networkdiagram.model.InventoryKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+@Component
+public class SnapshotStore {
+
+    private static final Logger log = LoggerFactory.getLogger(SnapshotStore.class);
+    private static final String EXTENSION = ".snap";
+
+    private final Path root;
+    private final boolean enabled;
+    private final int maxPerKey;
+
+    public SnapshotStore(@Value("${snapshot.store.dir:${user.home}/.network-diagram/snapshots}") Path root,
+                         @Value("${snapshot.store.enabled:true}") boolean enabled,
+                         @Value("${snapshot.store.max-per-key:50}") int maxPerKey) {
+        this.root = root;
+        this.enabled = enabled;
+        this.maxPerKey = maxPerKey;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Instant save(InventoryKey key, InfrastructureComponents components) {
+        var takenAt = Instant.ofEpochMilli(System.currentTimeMillis());
+        if (!enabled) {
+            return takenAt;
+        }
+        var dir = directory(key);
+        try {
+            Files.createDirectories(dir);
+            // Write to a temporary file and move it into place so readers never see a partial snapshot
+            var temp = Files.createTempFile(dir, "snapshot", ".tmp");
+            try (var out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                SnapshotCodec.write(components, out);
+            }
+            Files.move(temp, dir.resolve(takenAt.toEpochMilli() + EXTENSION), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+            prune(key);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to save snapshot for " + key, e);
+        }
+        return takenAt;
+    }
+
+    // Newest first
+    public List<Instant> list(InventoryKey key) {
+        var dir = directory(key);
+        if (!enabled || !Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files
+                .map(path -> path.getFileName().toString())
+                .filter(name -> name.endsWith(EXTENSION))
+                .map(name -> parseTimestamp(name.substring(0, name.length() - EXTENSION.length())))
+                .flatMap(Optional::stream)
+                .sorted(Comparator.reverseOrder())
+                .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list snapshots for " + key, e);
+        }
+    }
+
+    public Optional<InfrastructureComponents> load(InventoryKey key, Instant takenAt) {
+        var file = directory(key).resolve(takenAt.toEpochMilli() + EXTENSION);
+        if (!enabled || !Files.exists(file)) {
+            return Optional.empty();
+        }
+        // Memory-mapped, and rules are read from the mapping in place: only groups, instances and the distinct
+        // rule sources are decoded. The mapping outlives the channel and is released once the inventory is
+        // unreachable. Saves and prunes replace or unlink files rather than rewriting them, so it never changes.
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return Optional.of(SnapshotCodec.read(buffer));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read snapshot " + file, e);
+        }
+    }
+
+    public Optional<Snapshot> latest(InventoryKey key) {
+        return list(key).stream().findFirst()
+            .flatMap(takenAt -> load(key, takenAt).map(components -> new Snapshot(takenAt, components)));
+    }
+
+    private void prune(InventoryKey key) {
+        var snapshots = list(key);
+        snapshots.stream().skip(maxPerKey).forEach(takenAt -> {
+            try {
+                Files.deleteIfExists(directory(key).resolve(takenAt.toEpochMilli() + EXTENSION));
+            } catch (IOException e) {
+                log.warn("Failed to prune snapshot {} for {}: {}", takenAt, key, e.getMessage());
+            }
+        });
+    }
+
+    private Path directory(InventoryKey key) {
+        return root
+            .resolve(segment(key.profile() != null ? key.profile() : "default"))
+            .resolve(segment(key.region()))
+            .resolve(segment(key.vpcId() != null ? key.vpcId() : "all"));
+    }
+
+    private static String segment(String value) {
+        var safe = value.replaceAll("[^A-Za-z0-9._-]", "_");
+        // Never let "." or ".." escape the store directory
+        return safe.chars().allMatch(c -> c == '.') ? safe.replace('.', '_') : safe;
+    }
+
+    private static Optional<Instant> parseTimestamp(String value) {
+        try {
+            return Optional.of(Instant.ofEpochMilli(Long.parseLong(value)));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    public record Snapshot(Instant takenAt, InfrastructureComponents components) {}
+}
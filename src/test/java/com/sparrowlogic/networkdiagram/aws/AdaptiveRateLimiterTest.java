@@ -0,0 +1,79 @@
+package com.sparrowlogic.networkdiagram.aws;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveRateLimiterTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void shouldSpaceCallsOnceTheBurstIsSpent() {
+        var bucket = new AdaptiveRateLimiter.Bucket(10, 0.5, 50, 1, 0.5, 0);
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, bucket.reserve(0));
+        }
+        // Each further caller queues one token interval behind the previous one
+        assertEquals(SECOND / 10, bucket.reserve(0));
+        assertEquals(2 * SECOND / 10, bucket.reserve(0));
+        assertEquals(0, bucket.reserve(2 * SECOND));
+    }
+
+    @Test
+    void shouldHalveOnThrottlingAndIgnoreTheRestOfTheSameBurst() {
+        var bucket = new AdaptiveRateLimiter.Bucket(20, 0.5, 50, 1, 0.5, 0);
+
+        assertTrue(bucket.onThrottle(SECOND, SECOND));
+        assertEquals(10, bucket.rate(), 1e-9);
+        // Sent before the cut, so already accounted for
+        assertFalse(bucket.onThrottle(SECOND / 2, SECOND + 1));
+        assertEquals(10, bucket.rate(), 1e-9);
+        // The bucket was emptied, so the next call waits for a token at the new rate
+        assertEquals(SECOND / 10, bucket.reserve(SECOND));
+
+        for (int i = 0; i < 10; i++) {
+            bucket.onThrottle(2 * SECOND + i, 2 * SECOND + i);
+        }
+        assertEquals(0.5, bucket.rate(), 1e-9);
+    }
+
+    @Test
+    void shouldGrowAdditivelyUpToTheMaximum() {
+        var bucket = new AdaptiveRateLimiter.Bucket(10, 0.5, 12, 1, 0.5, 0);
+
+        // Ten successes at 10 calls/s is one second's worth, worth about one more call per second
+        for (int i = 0; i < 10; i++) {
+            bucket.onSuccess();
+        }
+        assertEquals(11, bucket.rate(), 0.05);
+
+        for (int i = 0; i < 1000; i++) {
+            bucket.onSuccess();
+        }
+        assertEquals(12, bucket.rate(), 1e-9);
+    }
+
+    @Test
+    void shouldKeepSeparateBucketsPerOperation() {
+        var limiter = new AdaptiveRateLimiter(new SimpleMeterRegistry(), true, 10, 0.5, 50, 1, 0.5);
+        var describeInstances = new AdaptiveRateLimiter.LimiterKey("prod", "us-east-1", "EC2", "DescribeInstances");
+
+        var sentAt = limiter.acquire(describeInstances);
+        limiter.onThrottle(describeInstances, sentAt);
+
+        assertEquals(5, limiter.rate("prod", "us-east-1", "EC2", "DescribeInstances"), 1e-9);
+        assertEquals(10, limiter.rate("prod", "us-east-1", "EC2", "DescribeSecurityGroups"), 1e-9);
+        assertEquals(10, limiter.rate("prod", "eu-west-1", "EC2", "DescribeInstances"), 1e-9);
+    }
+
+    @Test
+    void shouldRejectRatesOutOfOrder() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new AdaptiveRateLimiter(new SimpleMeterRegistry(), true, 100, 0.5, 50, 1, 0.5));
+        assertThrows(IllegalArgumentException.class,
+            () -> new AdaptiveRateLimiter(new SimpleMeterRegistry(), true, 10, 0.5, 50, 1, 1));
+    }
+}
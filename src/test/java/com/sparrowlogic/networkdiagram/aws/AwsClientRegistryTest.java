@@ -0,0 +1,82 @@
+package com.sparrowlogic.networkdiagram.aws;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AwsClientRegistryTest {
+
+    @Test
+    void shouldReuseClientsForSameProfileAndRegion() {
+        var registry = newRegistry(4, Duration.ofMinutes(10), 10);
+
+        try (var first = registry.acquire("prod", "us-east-1");
+             var second = registry.acquire("prod", "us-east-1")) {
+            assertSame(first.ec2(), second.ec2());
+            assertSame(first.elb(), second.elb());
+            assertSame(first.autoScaling(), second.autoScaling());
+        }
+        assertEquals(1, registry.size());
+        registry.shutdown();
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedWhenFull() {
+        var registry = newRegistry(2, Duration.ofMinutes(10), 10);
+
+        registry.acquire("prod", "us-east-1").close();
+        registry.acquire("prod", "us-west-2").close();
+        registry.acquire("prod", "eu-west-1").close();
+
+        assertEquals(2, registry.size());
+        registry.shutdown();
+    }
+
+    @Test
+    void shouldEvictIdleClients() {
+        var registry = newRegistry(4, Duration.ZERO, 10);
+
+        registry.acquire("prod", "us-east-1").close();
+        registry.acquire("prod", "us-west-2").close();
+
+        assertEquals(1, registry.size());
+        registry.shutdown();
+    }
+
+    @Test
+    void shouldDropRateLimiterBucketsWithTheirClients() {
+        var meterRegistry = new SimpleMeterRegistry();
+        var rateLimiter = new AdaptiveRateLimiter(meterRegistry, true, 10, 0.5, 50, 1, 0.5);
+        var registry = new AwsClientRegistry(meterRegistry, rateLimiter, 1, Duration.ofMinutes(10), 10,
+            Duration.ofMillis(200), Duration.ofSeconds(20));
+
+        try (var lease = registry.acquire("prod", "us-east-1")) {
+            rateLimiter.acquire(new AdaptiveRateLimiter.LimiterKey("prod", "us-east-1", "EC2", "DescribeInstances"));
+            rateLimiter.onThrottle(new AdaptiveRateLimiter.LimiterKey("prod", "us-east-1", "EC2", "DescribeInstances"), System.nanoTime());
+            // Still leased, so the evicted clients and their buckets stay until the lease is released
+            registry.acquire("prod", "us-west-2").close();
+            assertEquals(5, rateLimiter.rate("prod", "us-east-1", "EC2", "DescribeInstances"), 1e-9);
+        }
+
+        assertEquals(10, rateLimiter.rate("prod", "us-east-1", "EC2", "DescribeInstances"), 1e-9);
+        assertNull(meterRegistry.find("aws.api.rate").tag("region", "us-east-1").gauge());
+        registry.shutdown();
+    }
+
+    @Test
+    void shouldRejectAcquireAfterShutdown() {
+        var registry = newRegistry(4, Duration.ofMinutes(10), 10);
+        registry.shutdown();
+
+        assertThrows(IllegalStateException.class, () -> registry.acquire("prod", "us-east-1"));
+    }
+
+    private static AwsClientRegistry newRegistry(int maxEntries, Duration idleTimeout, int maxConnections) {
+        var meterRegistry = new SimpleMeterRegistry();
+        return new AwsClientRegistry(meterRegistry, new AdaptiveRateLimiter(meterRegistry, true, 10, 0.5, 50, 1, 0.5),
+            maxEntries, idleTimeout, maxConnections, Duration.ofMillis(200), Duration.ofSeconds(20));
+    }
+}
@@ -0,0 +1,56 @@
+package com.sparrowlogic.networkdiagram.aws;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.metrics.CoreMetric;
+import software.amazon.awssdk.metrics.MetricCollector;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AwsMetricPublisherTest {
+
+    @Test
+    void shouldRecordCallsRetriesAndThrottlingPerOperation() {
+        var registry = new SimpleMeterRegistry();
+        var publisher = new AwsMetricPublisher(registry, null, "us-east-1");
+
+        var call = MetricCollector.create("ApiCall");
+        call.reportMetric(CoreMetric.SERVICE_ID, "EC2");
+        call.reportMetric(CoreMetric.OPERATION_NAME, "DescribeSecurityGroups");
+        call.reportMetric(CoreMetric.API_CALL_SUCCESSFUL, true);
+        call.reportMetric(CoreMetric.API_CALL_DURATION, Duration.ofMillis(250));
+        call.reportMetric(CoreMetric.RETRY_COUNT, 2);
+        call.createChild("ApiCallAttempt").reportMetric(CoreMetric.ERROR_TYPE, "Throttling");
+        call.createChild("ApiCallAttempt").reportMetric(CoreMetric.ERROR_TYPE, "Throttling");
+        call.createChild("ApiCallAttempt");
+        publisher.publish(call.collect());
+
+        var timer = registry.get("aws.api.calls")
+            .tags("profile", "default", "region", "us-east-1", "service", "EC2",
+                "operation", "DescribeSecurityGroups", "outcome", "success")
+            .timer();
+        assertEquals(1, timer.count());
+        assertEquals(250, timer.totalTime(TimeUnit.MILLISECONDS), 0.001);
+        assertEquals(2, registry.get("aws.api.retries").tag("operation", "DescribeSecurityGroups").counter().count());
+        assertEquals(2, registry.get("aws.api.throttled").tag("operation", "DescribeSecurityGroups").counter().count());
+    }
+
+    @Test
+    void shouldNotRegisterRetryMetersForCleanCalls() {
+        var registry = new SimpleMeterRegistry();
+        var publisher = new AwsMetricPublisher(registry, "prod", "eu-west-1");
+
+        var call = MetricCollector.create("ApiCall");
+        call.reportMetric(CoreMetric.OPERATION_NAME, "DescribeInstances");
+        call.reportMetric(CoreMetric.API_CALL_SUCCESSFUL, false);
+        publisher.publish(call.collect());
+
+        assertEquals(1, registry.get("aws.api.calls").tags("profile", "prod", "service", "unknown", "outcome", "failure")
+            .timer().count());
+        assertNull(registry.find("aws.api.retries").counter());
+        assertNull(registry.find("aws.api.throttled").counter());
+    }
+}
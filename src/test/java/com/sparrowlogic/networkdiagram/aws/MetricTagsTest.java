@@ -0,0 +1,24 @@
+package com.sparrowlogic.networkdiagram.aws;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricTagsTest {
+
+    @Test
+    void shouldTagUnknownRegionsAsOther() {
+        assertEquals("us-east-1", MetricTags.region("us-east-1"));
+        assertEquals("other", MetricTags.region("us-nowhere-9"));
+        assertEquals("other", MetricTags.region(null));
+    }
+
+    @Test
+    void shouldTagProfilesMissingFromTheConfigFilesAsOther() {
+        assertEquals("prod", MetricTags.profile("prod", Set.of("prod", "staging")));
+        assertEquals("other", MetricTags.profile("attacker-chosen", Set.of("prod", "staging")));
+        assertEquals("default", MetricTags.profile(null, Set.of()));
+    }
+}
@@ -0,0 +1,48 @@
+package com.sparrowlogic.networkdiagram.aws;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.core.retry.RetryPolicyContext;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitingInterceptorTest {
+
+    private final AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(new SimpleMeterRegistry(), true, 10, 0.5, 50, 1, 0.5);
+    private final RateLimitingInterceptor interceptor = new RateLimitingInterceptor(limiter, "prod", "us-east-1");
+
+    @Test
+    void shouldSlowDownAndRetryOnRequestLimitExceeded() {
+        var context = failure("RequestLimitExceeded", 503);
+
+        assertTrue(interceptor.shouldRetry(context));
+        assertEquals(5, limiter.rate("prod", "us-east-1", "EC2", "DescribeInstances"), 1e-9);
+    }
+
+    @Test
+    void shouldLeaveTheRateAloneForOtherErrors() {
+        var context = failure("UnauthorizedOperation", 403);
+
+        assertFalse(interceptor.shouldRetry(context));
+        assertEquals(10, limiter.rate("prod", "us-east-1", "EC2", "DescribeInstances"), 1e-9);
+    }
+
+    private static RetryPolicyContext failure(String errorCode, int status) {
+        var attributes = new ExecutionAttributes();
+        attributes.putAttribute(SdkExecutionAttribute.SERVICE_NAME, "EC2");
+        attributes.putAttribute(SdkExecutionAttribute.OPERATION_NAME, "DescribeInstances");
+        var exception = AwsServiceException.builder()
+            .awsErrorDetails(AwsErrorDetails.builder().errorCode(errorCode).build())
+            .statusCode(status)
+            .build();
+        return RetryPolicyContext.builder()
+            .exception(exception)
+            .executionAttributes(attributes)
+            .httpStatusCode(status)
+            .build();
+    }
+}
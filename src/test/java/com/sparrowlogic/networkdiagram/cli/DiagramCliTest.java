@@ -0,0 +1,96 @@
+package com.sparrowlogic.networkdiagram.cli;
+
+import com.sparrowlogic.networkdiagram.model.DiagramSection;
+import com.sparrowlogic.networkdiagram.service.AwsInfrastructureService;
+import com.sparrowlogic.networkdiagram.service.MermaidDiagramService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiagramCliTest {
+
+    @TempDir
+    Path output;
+
+    private static final List<DiagramSection> SECTIONS = List.of(
+        new DiagramSection("Exposure from 0.0.0.0/0", "0.0.0.0/0", "graph TD\n  a --> b\n", "<svg/>", true, "h1"),
+        new DiagramSection("Exposure from 2001:db8::1/128", "2001:db8::1/128", "graph TD\n  c --> d", "<svg id=\"2\"/>", true, "h2"));
+
+    @Test
+    void shouldParseLongOptionsInBothForms() {
+        var options = DiagramCli.Options.parse(new String[] {
+            "--region=us-east-1", "--profile", "prod", "--vpc-id", "vpc-a,vpc-b", "--vpc-id=vpc-c", "--format", "svg",
+            "--output", "out", "--detail"});
+
+        assertEquals("prod", options.profile());
+        assertEquals("us-east-1", options.region());
+        assertEquals(List.of("vpc-a", "vpc-b", "vpc-c"), options.vpcIds());
+        assertEquals("svg", options.format());
+        assertEquals(Path.of("out"), options.output());
+        assertTrue(options.detail());
+    }
+
+    @Test
+    void shouldReportUsageErrorsWithoutStartingSpring() {
+        var err = new ByteArrayOutputStream();
+
+        assertEquals(2, DiagramCli.run(new String[] {"--profile", "prod"}, System.out, new PrintStream(err)));
+        assertTrue(err.toString().startsWith("--region is required"));
+        assertEquals(2, DiagramCli.run(new String[] {"--region", "us-east-1", "--format", "svg"}, System.out,
+            new PrintStream(new ByteArrayOutputStream())));
+        assertEquals(2, DiagramCli.run(new String[] {"--region"}, System.out, new PrintStream(new ByteArrayOutputStream())));
+    }
+
+    @Test
+    void shouldPrintMarkdownWithOneMermaidBlockPerSection() {
+        var markdown = DiagramCli.markdown("vpc-a", SECTIONS);
+
+        assertEquals("""
+            # vpc-a
+
+            ## Exposure from 0.0.0.0/0
+
+            ```mermaid
+            graph TD
+              a --> b
+            ```
+
+            ## Exposure from 2001:db8::1/128
+
+            ```mermaid
+            graph TD
+              c --> d
+            ```
+
+            """, markdown);
+        assertTrue(DiagramCli.markdown("vpc-b", List.of()).contains("No external exposure."));
+    }
+
+    @Test
+    void shouldWriteOneFilePerSectionInAddressOrder() throws Exception {
+        var options = DiagramCli.Options.parse(new String[] {"--region", "us-east-1", "--format", "svg", "--output", output.toString()});
+
+        DiagramCli.write("vpc-a", SECTIONS, options, System.out);
+
+        assertEquals("<svg/>", Files.readString(output.resolve("vpc-a/001-0.0.0.0_0.svg")));
+        assertEquals("<svg id=\"2\"/>", Files.readString(output.resolve("vpc-a/002-2001_db8__1_128.svg")));
+    }
+
+    @Test
+    void shouldStartOnlyTheBatchBeans() {
+        var options = DiagramCli.Options.parse(new String[] {"--region", "us-east-1", "--output", output.toString()});
+
+        try (var context = DiagramCli.start(options)) {
+            assertNotNull(context.getBean(AwsInfrastructureService.class));
+            assertNotNull(context.getBean(MermaidDiagramService.class));
+            assertFalse(context.containsBean("diagramController"));
+        }
+    }
+}
@@ -1,33 +1,63 @@
 package com.sparrowlogic.networkdiagram.controller;
 
+import com.sparrowlogic.networkdiagram.model.DiagramSection;
 import com.sparrowlogic.networkdiagram.model.InfrastructureComponents;
-import com.sparrowlogic.networkdiagram.service.AwsInfrastructureService;
+import com.sparrowlogic.networkdiagram.model.InventoryKey;
+import com.sparrowlogic.networkdiagram.service.InfrastructureCache;
 import com.sparrowlogic.networkdiagram.service.MermaidDiagramService;
+import com.sparrowlogic.networkdiagram.snapshot.SnapshotStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(DiagramController.class)
+@Import(SimpleMeterRegistry.class)
 class DiagramControllerTest {
 
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @MockBean
-    private AwsInfrastructureService awsService;
+    private InfrastructureCache infrastructureCache;
 
     @MockBean
     private MermaidDiagramService mermaidService;
 
+    @MockBean
+    private SnapshotStore snapshotStore;
+
     @Test
     void shouldShowForm() throws Exception {
         mockMvc.perform(get("/"))
@@ -38,8 +68,8 @@ class DiagramControllerTest {
     @Test
     void shouldGenerateDiagramWithParameters() throws Exception {
         var components = new InfrastructureComponents(List.of(), List.of(), List.of(), List.of(), "vpc-123", List.of());
-        when(awsService.getInfrastructure("prod", "us-east-1", "vpc-123")).thenReturn(components);
-        when(mermaidService.generateDiagram(components)).thenReturn("graph TD\n");
+        when(infrastructureCache.get("prod", "us-east-1", "vpc-123", false, null)).thenReturn(components);
+        when(mermaidService.sectionCidrs(components)).thenReturn(List.of("0.0.0.0/0"));
 
         mockMvc.perform(post("/generate")
                 .param("profile", "prod")
@@ -47,12 +77,344 @@ class DiagramControllerTest {
                 .param("vpcId", "vpc-123"))
                 .andExpect(status().isOk())
                 .andExpect(view().name("index"))
-                .andExpect(model().attributeExists("diagram", "markdown"));
+                .andExpect(model().attribute("cidrs", List.of("0.0.0.0/0")))
+                .andExpect(model().attribute("page", 1))
+                .andExpect(model().attribute("pages", 1))
+                .andExpect(model().attribute("renderer", "svg"))
+                .andExpect(model().attributeExists("diagram", "markdown"))
+                .andExpect(content().string(containsString("data-cidr=\"0.0.0.0/0\"")));
+
+        // Sections are fetched by the page as they scroll into view, not drawn here
+        verify(mermaidService, never()).generateSections(any(), anyBoolean());
+    }
+
+    @Test
+    void shouldTagRequestsForUnknownRegionsAsOther() throws Exception {
+        var components = new InfrastructureComponents(List.of(), List.of(), List.of(), List.of(), "vpc-123", List.of());
+        when(infrastructureCache.get("prod", "us-nowhere-9", "vpc-123", false, null)).thenReturn(components);
+        when(mermaidService.sectionCidrs(components)).thenReturn(List.of());
+
+        mockMvc.perform(post("/generate")
+                .param("profile", "prod")
+                .param("region", "us-nowhere-9")
+                .param("vpcId", "vpc-123"))
+                .andExpect(status().isOk());
+
+        assertEquals(1, meterRegistry.get("diagram.request").tags("endpoint", "page", "region", "other").timer().count());
+        assertNull(meterRegistry.find("diagram.request").tag("region", "us-nowhere-9").timer());
+    }
+
+    @Test
+    void shouldPaginateSections() throws Exception {
+        var components = new InfrastructureComponents(List.of(), List.of(), List.of(), List.of(), "vpc-123", List.of());
+        var cidrs = IntStream.range(0, 30).mapToObj(i -> "192.0.2." + i + "/32").toList();
+        when(infrastructureCache.get("prod", "us-east-1", "vpc-123", false, null)).thenReturn(components);
+        when(mermaidService.sectionCidrs(components)).thenReturn(cidrs);
+
+        mockMvc.perform(get("/generate")
+                .param("profile", "prod")
+                .param("region", "us-east-1")
+                .param("vpcId", "vpc-123")
+                .param("page", "2"))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("cidrs", cidrs.subList(25, 30)))
+                .andExpect(model().attribute("page", 2))
+                .andExpect(model().attribute("pages", 2))
+                .andExpect(model().attribute("total", 30));
+
+        // Out-of-range pages land on the last one
+        mockMvc.perform(get("/generate")
+                .param("profile", "prod")
+                .param("region", "us-east-1")
+                .param("vpcId", "vpc-123")
+                .param("page", "9"))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("page", 2));
+    }
+
+    @Test
+    void shouldAnswerUnchangedReportWithNotModified() throws Exception {
+        var components = new InfrastructureComponents(List.of(), List.of(), List.of(), List.of(), "vpc-123", List.of());
+        when(infrastructureCache.get("prod", "us-east-1", "vpc-123", false, null)).thenReturn(components);
+        when(mermaidService.sectionCidrs(components)).thenReturn(List.of("0.0.0.0/0"));
+
+        var etag = mockMvc.perform(get("/generate")
+                .param("profile", "prod")
+                .param("region", "us-east-1")
+                .param("vpcId", "vpc-123"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/generate")
+                .param("profile", "prod")
+                .param("region", "us-east-1")
+                .param("vpcId", "vpc-123")
+                .header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void shouldServeSectionTextWithEtag() throws Exception {
+        var components = new InfrastructureComponents(List.of(), List.of(), List.of(), List.of(), "vpc-123", List.of());
+        var section = new DiagramSection("Attack Surface: 0.0.0.0/0", "0.0.0.0/0", "graph LR", "<svg/>", true, "abc123");
+        when(infrastructureCache.get("prod", "us-east-1", "vpc-123", false, null)).thenReturn(components);
+        when(mermaidService.generateSection(components, "0.0.0.0/0", false)).thenReturn(Optional.of(section));
+
+        mockMvc.perform(get("/diagram/section")
+                .param("profile", "prod")
+                .param("region", "us-east-1")
+                .param("vpcId", "vpc-123")
+                .param("cidr", "0.0.0.0/0"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"abc123\""))
+                .andExpect(header().string("X-Diagram-Reduced", "true"))
+                .andExpect(content().string("graph LR"));
+
+        mockMvc.perform(get("/diagram/section")
+                .param("profile", "prod")
+                .param("region", "us-east-1")
+                .param("vpcId", "vpc-123")
+                .param("cidr", "0.0.0.0/0")
+                .header("If-None-Match", "\"abc123\""))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(get("/diagram/section")
+                .param("profile", "prod")
+                .param("region", "us-east-1")
+                .param("vpcId", "vpc-123")
+                .param("cidr", "198.51.100.1/32"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldAnswerConditionalSectionRequestsWithoutRendering() throws Exception {
+        var components = new InfrastructureComponents(List.of(), List.of(), List.of(), List.of(), "vpc-123", List.of());
+        when(infrastructureCache.get("prod", "us-east-1", "vpc-123", false, null)).thenReturn(components);
+        when(mermaidService.sectionHash(components, "0.0.0.0/0", false)).thenReturn(Optional.of("abc123"));
+
+        mockMvc.perform(get("/diagram/section.svg")
+                .param("profile", "prod")
+                .param("region", "us-east-1")
+                .param("vpcId", "vpc-123")
+                .param("cidr", "0.0.0.0/0")
+                .header("If-None-Match", "\"abc123\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"abc123\""));
+
+        verify(mermaidService, never()).generateSection(any(), any(), anyBoolean());
+    }
+
+    @Test
+    void shouldAnswerSectionsOfMissingSnapshotsWithNotFound() throws Exception {
+        var snapshot = Instant.parse("2024-01-31T12:00:00Z");
+        when(infrastructureCache.get("prod", "us-east-1", "vpc-123", false, snapshot))
+            .thenThrow(new IllegalArgumentException("No snapshot taken at " + snapshot));
+
+        mockMvc.perform(get("/diagram/section.svg")
+                .param("profile", "prod")
+                .param("region", "us-east-1")
+                .param("vpcId", "vpc-123")
+                .param("cidr", "0.0.0.0/0")
+                .param("snapshot", snapshot.toString()))
+                .andExpect(status().isNotFound())
+                .andExpect(content().contentTypeCompatibleWith("text/plain"))
+                .andExpect(content().string("No snapshot taken at 2024-01-31T12:00:00Z"));
+
+        assertEquals(1, meterRegistry.get("diagram.request").tags("endpoint", "section-svg", "outcome", "not-found").timer().count());
+    }
+
+    @Test
+    void shouldAnswerSectionsWhoseInventoryFailedToLoadWithBadGateway() throws Exception {
+        when(infrastructureCache.get("prod", "us-east-1", "vpc-123", false, null))
+            .thenThrow(new IllegalStateException("Access denied"));
+
+        mockMvc.perform(get("/diagram/section")
+                .param("profile", "prod")
+                .param("region", "us-east-1")
+                .param("vpcId", "vpc-123")
+                .param("cidr", "0.0.0.0/0"))
+                .andExpect(status().isBadGateway())
+                .andExpect(content().string("Error loading AWS infrastructure: Access denied"));
+
+        assertEquals(1, meterRegistry.get("diagram.request").tags("endpoint", "section", "outcome", "failure").timer().count());
+    }
+
+    @Test
+    void shouldServeSectionSvg() throws Exception {
+        var components = new InfrastructureComponents(List.of(), List.of(), List.of(), List.of(), "vpc-123", List.of());
+        var section = new DiagramSection("Attack Surface: 0.0.0.0/0", "0.0.0.0/0", "graph LR", "<svg/>", false, "abc123");
+        when(infrastructureCache.get("prod", "us-east-1", "vpc-123", false, null)).thenReturn(components);
+        when(mermaidService.generateSection(components, "0.0.0.0/0", false)).thenReturn(Optional.of(section));
+
+        mockMvc.perform(get("/diagram/section.svg")
+                .param("profile", "prod")
+                .param("region", "us-east-1")
+                .param("vpcId", "vpc-123")
+                .param("cidr", "0.0.0.0/0"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("image/svg+xml"))
+                .andExpect(header().string("ETag", "\"abc123\""))
+                .andExpect(content().string("<svg/>"));
+    }
+
+    @Test
+    void shouldRenderStreamingShellWithoutLoading() throws Exception {
+        mockMvc.perform(post("/generate")
+                .param("profile", "prod")
+                .param("region", "us-east-1")
+                .param("vpcId", "vpc-123")
+                .param("stream", "true"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("index"))
+                .andExpect(model().attribute("streamUrl",
+                        "/generate/stream?profile=prod&region=us-east-1&vpcId=vpc-123&refresh=false&detail=false"));
+
+        verifyNoInteractions(infrastructureCache);
+    }
+
+    @Test
+    void shouldKeepTheSnapshotInStreamedSectionLinks() throws Exception {
+        mockMvc.perform(post("/generate")
+                .param("profile", "prod")
+                .param("region", "us-east-1")
+                .param("vpcId", "vpc-123")
+                .param("snapshot", "2024-01-31T12:00:00Z")
+                .param("stream", "true"))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("streamUrl", containsString("snapshot=2024-01-31T12:00:00Z")))
+                // The SVG and "Show details" links copy it from the stream URL
+                .andExpect(content().string(containsString("params.set('snapshot', query.get('snapshot'))")));
+
+        verifyNoInteractions(infrastructureCache);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldStreamSectionsAsEvents() throws Exception {
+        var components = new InfrastructureComponents(List.of(), List.of(), List.of(), List.of(), "vpc-123", List.of());
+        when(infrastructureCache.get("prod", "us-east-1", "vpc-123", false, null)).thenReturn(components);
+        doAnswer(invocation -> {
+            Consumer<DiagramSection> sink = invocation.getArgument(2);
+            sink.accept(new DiagramSection("Attack Surface: 0.0.0.0/0", "0.0.0.0/0", "graph LR", "<svg/>", false, "abc123"));
+            return null;
+        }).when(mermaidService).generateSections(eq(components), eq(false), any(Consumer.class));
+
+        var result = mockMvc.perform(get("/generate/stream")
+                .param("profile", "prod")
+                .param("region", "us-east-1")
+                .param("vpcId", "vpc-123"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        result.getAsyncResult(5000);
+
+        var body = result.getResponse().getContentAsString();
+        assertTrue(body.contains("event:section"));
+        assertTrue(body.contains("\"cidr\":\"0.0.0.0/0\""));
+        assertTrue(body.contains("event:done"));
+    }
+
+    @Test
+    void shouldStreamFailedEvent() throws Exception {
+        when(infrastructureCache.get("prod", "us-east-1", "vpc-123", false, null))
+                .thenThrow(new RuntimeException("AWS error"));
+
+        var result = mockMvc.perform(get("/generate/stream")
+                .param("profile", "prod")
+                .param("region", "us-east-1")
+                .param("vpcId", "vpc-123"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        result.getAsyncResult(5000);
+
+        var body = result.getResponse().getContentAsString();
+        assertTrue(body.contains("event:failed"));
+        assertTrue(body.contains("Error loading AWS infrastructure: AWS error"));
+    }
+
+    @Test
+    void shouldTurnAwayStreamsBeyondTheLimit() throws Exception {
+        var release = new CountDownLatch(1);
+        var components = new InfrastructureComponents(List.of(), List.of(), List.of(), List.of(), "vpc-123", List.of());
+        when(infrastructureCache.get("prod", "us-east-1", "vpc-123", false, null)).thenAnswer(call -> {
+            release.await(5, TimeUnit.SECONDS);
+            return components;
+        });
+
+        try {
+            // The default limit is 8
+            for (int i = 0; i < 8; i++) {
+                mockMvc.perform(get("/generate/stream")
+                        .param("profile", "prod")
+                        .param("region", "us-east-1")
+                        .param("vpcId", "vpc-123"))
+                        .andExpect(request().asyncStarted());
+            }
+            var result = mockMvc.perform(get("/generate/stream")
+                    .param("profile", "prod")
+                    .param("region", "us-east-1")
+                    .param("vpcId", "vpc-123"))
+                    .andReturn();
+
+            var body = result.getResponse().getContentAsString();
+            assertTrue(body.contains("event:failed"));
+            assertTrue(body.contains("Too many diagrams are being generated"));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void shouldBypassCacheWhenRefreshRequested() throws Exception {
+        var components = new InfrastructureComponents(List.of(), List.of(), List.of(), List.of(), "vpc-123", List.of());
+        when(infrastructureCache.get("prod", "us-east-1", "vpc-123", true, null)).thenReturn(components);
+        when(mermaidService.sectionCidrs(components)).thenReturn(List.of("0.0.0.0/0"));
+
+        mockMvc.perform(post("/generate")
+                .param("profile", "prod")
+                .param("region", "us-east-1")
+                .param("vpcId", "vpc-123")
+                .param("refresh", "true"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("index"));
+
+        verify(infrastructureCache).get("prod", "us-east-1", "vpc-123", true, null);
+    }
+
+    @Test
+    void shouldGenerateDiagramFromSnapshot() throws Exception {
+        var takenAt = Instant.parse("2024-01-31T12:00:00Z");
+        var components = new InfrastructureComponents(List.of(), List.of(), List.of(), List.of(), "vpc-123", List.of());
+        when(infrastructureCache.get("prod", "us-east-1", "vpc-123", false, takenAt)).thenReturn(components);
+        when(mermaidService.sectionCidrs(components)).thenReturn(List.of("0.0.0.0/0"));
+
+        mockMvc.perform(post("/generate")
+                .param("profile", "prod")
+                .param("region", "us-east-1")
+                .param("vpcId", "vpc-123")
+                .param("snapshot", "2024-01-31T12:00:00Z"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("index"));
+
+        verify(infrastructureCache).get("prod", "us-east-1", "vpc-123", false, takenAt);
+    }
+
+    @Test
+    void shouldListSnapshots() throws Exception {
+        when(snapshotStore.list(new InventoryKey("prod", "us-east-1", "vpc-123")))
+                .thenReturn(List.of(Instant.parse("2024-01-31T12:00:00Z")));
+
+        mockMvc.perform(get("/snapshots")
+                .param("profile", "prod")
+                .param("region", "us-east-1")
+                .param("vpcId", "vpc-123"))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[\"2024-01-31T12:00:00Z\"]"));
     }
 
     @Test
     void shouldHandleError() throws Exception {
-        when(awsService.getInfrastructure("default", "us-east-1", "vpc-123"))
+        when(infrastructureCache.get("default", "us-east-1", "vpc-123", false, null))
                 .thenThrow(new RuntimeException("AWS error"));
 
         mockMvc.perform(post("/generate")
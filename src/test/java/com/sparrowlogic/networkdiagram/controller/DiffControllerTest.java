@@ -0,0 +1,82 @@
+package com.sparrowlogic.networkdiagram.controller;
+
+import com.sparrowlogic.networkdiagram.model.DiagramSection;
+import com.sparrowlogic.networkdiagram.model.InventoryDiff;
+import com.sparrowlogic.networkdiagram.service.DiffService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(DiffController.class)
+class DiffControllerTest {
+
+    private static final Instant FROM = Instant.parse("2024-01-31T12:00:00Z");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private DiffService diffService;
+
+    private static InventoryDiff diff() {
+        var change = new InventoryDiff.Change(InventoryDiff.Kind.SECURITY_GROUP, "sg-web", InventoryDiff.Type.CHANGED,
+            List.of("ingress tcp 22 192.0.2.10/32"), List.of());
+        var section = new DiagramSection("Attack Surface: 192.0.2.10/32", "192.0.2.10/32", "graph TD", "<svg/>", false, "abc");
+        return new InventoryDiff(FROM, null, List.of(change), List.of("192.0.2.10/32"), List.of(), List.of(), List.of(section));
+    }
+
+    @Test
+    void shouldReturnTheDiffAsJson() throws Exception {
+        when(diffService.diff("prod", "us-east-1", "vpc-123", FROM, null, false)).thenReturn(diff());
+
+        mockMvc.perform(get("/api/diff")
+                .param("profile", "prod")
+                .param("region", "us-east-1")
+                .param("vpcId", "vpc-123")
+                .param("from", "2024-01-31T12:00:00Z"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.changes[0].id").value("sg-web"))
+                .andExpect(jsonPath("$.changes[0].addedRules[0]").value("ingress tcp 22 192.0.2.10/32"))
+                .andExpect(jsonPath("$.addedCidrs[0]").value("192.0.2.10/32"))
+                .andExpect(jsonPath("$.sections[0].cidr").value("192.0.2.10/32"));
+    }
+
+    @Test
+    void shouldRenderTheChangesPage() throws Exception {
+        when(diffService.diff("prod", "us-east-1", "vpc-123", FROM, null, false)).thenReturn(diff());
+
+        mockMvc.perform(get("/diff")
+                .param("profile", "prod")
+                .param("region", "us-east-1")
+                .param("vpcId", "vpc-123")
+                .param("from", "2024-01-31T12:00:00Z"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("diff"))
+                .andExpect(content().string(containsString("Newly exposed")))
+                .andExpect(content().string(containsString("+ ingress tcp 22 192.0.2.10/32")));
+    }
+
+    @Test
+    void shouldRejectUnknownSnapshots() throws Exception {
+        when(diffService.diff("prod", "us-east-1", "vpc-123", FROM, null, false))
+            .thenThrow(new IllegalArgumentException("No snapshot taken at " + FROM));
+
+        mockMvc.perform(get("/api/diff")
+                .param("profile", "prod")
+                .param("region", "us-east-1")
+                .param("vpcId", "vpc-123")
+                .param("from", "2024-01-31T12:00:00Z"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("No snapshot taken at " + FROM));
+    }
+}
@@ -0,0 +1,94 @@
+package com.sparrowlogic.networkdiagram.controller;
+
+import com.sparrowlogic.networkdiagram.model.InfrastructureComponents;
+import com.sparrowlogic.networkdiagram.model.SecurityGroupRule;
+import com.sparrowlogic.networkdiagram.service.AwsInfrastructureService;
+import com.sparrowlogic.networkdiagram.service.DiagramRenderCache;
+import com.sparrowlogic.networkdiagram.service.InventoryIndexes;
+import com.sparrowlogic.networkdiagram.service.InfrastructureCache;
+import com.sparrowlogic.networkdiagram.service.JobService;
+import com.sparrowlogic.networkdiagram.service.MermaidDiagramService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(JobController.class)
+class JobControllerTest {
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        JobService jobService() {
+            return new JobService(2, 10, Duration.ofMinutes(5), 100);
+        }
+
+        @Bean
+        MermaidDiagramService mermaidDiagramService() {
+            return new MermaidDiagramService(new DiagramRenderCache(1 << 20), new InventoryIndexes(8), new SimpleMeterRegistry(), 1, 3, 25);
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JobService jobService;
+
+    @MockBean
+    private InfrastructureCache infrastructureCache;
+
+    @MockBean
+    private AwsInfrastructureService awsService;
+
+    @Test
+    void shouldAcceptDiagramJobsAndServeTheirResult() throws Exception {
+        var sg = new InfrastructureComponents.SecurityGroup("sg-web", "web-sg",
+            List.of(new SecurityGroupRule("tcp", 443, 443, "0.0.0.0/0", "ingress")));
+        when(infrastructureCache.get("prod", "us-east-1", "vpc-123", false, null))
+            .thenReturn(new InfrastructureComponents(List.of(sg), List.of(), List.of(), List.of(), "vpc-123", List.of()));
+        when(awsService.onProgress(any(), any())).thenReturn(() -> { });
+
+        var response = mockMvc.perform(post("/api/jobs/diagram")
+                .param("profile", "prod")
+                .param("region", "us-east-1")
+                .param("vpcId", "vpc-123"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", startsWith("/api/jobs/")))
+                .andReturn().getResponse();
+        var id = response.getHeader("Location").substring("/api/jobs/".length());
+
+        for (int i = 0; i < 500 && !jobService.status(id).orElseThrow().state().finished(); i++) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+
+        mockMvc.perform(get("/api/jobs/" + id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("SUCCEEDED"))
+                .andExpect(jsonPath("$.result.sections[0].cidr").value("0.0.0.0/0"))
+                .andExpect(jsonPath("$.events[1].stage").value("render"));
+    }
+
+    @Test
+    void shouldAnswerNotFoundForUnknownJobs() throws Exception {
+        mockMvc.perform(get("/api/jobs/missing")).andExpect(status().isNotFound());
+        mockMvc.perform(get("/api/jobs/missing/events")).andExpect(status().isNotFound());
+        mockMvc.perform(delete("/api/jobs/missing")).andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,92 @@
+package com.sparrowlogic.networkdiagram.controller;
+
+import com.sparrowlogic.networkdiagram.index.AttackPathIndex;
+import com.sparrowlogic.networkdiagram.index.ReachabilityIndex;
+import com.sparrowlogic.networkdiagram.service.ReachabilityService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(ReachabilityController.class)
+class ReachabilityControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ReachabilityService reachabilityService;
+
+    @Test
+    void shouldAnswerReachabilityQueries() throws Exception {
+        var result = new ReachabilityIndex.Reachability("203.0.113.7", "tcp", 22, List.of(),
+            List.of("sg-ssh"), List.of("i-bastion"), List.of());
+        when(reachabilityService.reachableFrom("prod", "us-east-1", "vpc-123", List.of("203.0.113.7"), "tcp", 22))
+            .thenReturn(List.of(result));
+
+        mockMvc.perform(get("/api/reachability")
+                .param("profile", "prod")
+                .param("region", "us-east-1")
+                .param("vpcId", "vpc-123")
+                .param("source", "203.0.113.7")
+                .param("port", "22"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].securityGroupIds[0]").value("sg-ssh"))
+                .andExpect(jsonPath("$[0].instanceIds[0]").value("i-bastion"));
+    }
+
+    @Test
+    void shouldAnswerAttackPathQueriesFromExternalCidrs() throws Exception {
+        var path = new AttackPathIndex.AttackPath("sg-db", "db-sg", 2, List.of(
+            new AttackPathIndex.Hop("0.0.0.0/0", "sg-web", List.of("tcp/443")),
+            new AttackPathIndex.Hop("sg-web", "sg-db", List.of("tcp/5432"))), List.of(), List.of("i-db"), List.of());
+        when(reachabilityService.attackPaths("prod", "us-east-1", "vpc-123", null, "all", -1))
+            .thenReturn(List.of(new AttackPathIndex.Exposure("0.0.0.0/0", "all", -1, List.of(path))));
+
+        mockMvc.perform(get("/api/reachability/paths")
+                .param("profile", "prod")
+                .param("region", "us-east-1")
+                .param("vpcId", "vpc-123"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].source").value("0.0.0.0/0"))
+                .andExpect(jsonPath("$[0].paths[0].hops").value(2))
+                .andExpect(jsonPath("$[0].paths[0].path[1].ports[0]").value("tcp/5432"));
+    }
+
+    @Test
+    void shouldRejectInvalidSource() throws Exception {
+        when(reachabilityService.reachableFrom("prod", "us-east-1", "vpc-123", List.of("nope"), "tcp", -1))
+            .thenThrow(new IllegalArgumentException("Not an IPv4/IPv6 address or prefix: nope"));
+
+        mockMvc.perform(get("/api/reachability")
+                .param("profile", "prod")
+                .param("region", "us-east-1")
+                .param("vpcId", "vpc-123")
+                .param("source", "nope"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Not an IPv4/IPv6 address or prefix: nope"));
+    }
+
+    @Test
+    void shouldRejectUnknownProtocols() throws Exception {
+        when(reachabilityService.reachableFrom("prod", "us-east-1", "vpc-123", List.of("203.0.113.7"), "tcpp", 22))
+            .thenThrow(new IllegalArgumentException("Unknown protocol: tcpp"));
+
+        mockMvc.perform(get("/api/reachability")
+                .param("profile", "prod")
+                .param("region", "us-east-1")
+                .param("vpcId", "vpc-123")
+                .param("source", "203.0.113.7")
+                .param("protocol", "tcpp")
+                .param("port", "22"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Unknown protocol: tcpp"));
+    }
+}
@@ -0,0 +1,80 @@
+package com.sparrowlogic.networkdiagram.controller;
+
+import com.sparrowlogic.networkdiagram.model.SweepReport;
+import com.sparrowlogic.networkdiagram.service.JobService;
+import com.sparrowlogic.networkdiagram.service.SweepService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(SweepController.class)
+class SweepControllerTest {
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        JobService jobService() {
+            return new JobService(2, 10, Duration.ofMinutes(5), 100);
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JobService jobService;
+
+    @MockBean
+    private SweepService sweepService;
+
+    @Test
+    void shouldRunSweepsAsJobs() throws Exception {
+        var report = new SweepReport(Instant.EPOCH, Duration.ofSeconds(3),
+            List.of(new SweepReport.Vpc("prod", "us-east-1", "vpc-a", List.of())),
+            List.of(new SweepReport.Exposure("0.0.0.0/0", List.of("prod/us-east-1/vpc-a"))),
+            List.of(new SweepReport.Failure("prod", "eu-west-1", null, "access denied")));
+        when(sweepService.sweep(eq(List.of("prod")), eq(List.of("us-east-1", "eu-west-1")), eq(false), any()))
+            .thenReturn(report);
+
+        var location = mockMvc.perform(post("/api/sweep")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"profiles\":[\"prod\"],\"regions\":[\"us-east-1\",\"eu-west-1\"]}"))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.kind").value("sweep"))
+                .andReturn().getResponse().getHeader("Location");
+        var id = location.substring("/api/jobs/".length());
+        for (int i = 0; i < 500 && !jobService.status(id).orElseThrow().state().finished(); i++) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+
+        var finished = jobService.status(id).orElseThrow();
+        assertEquals(JobService.State.SUCCEEDED, finished.state());
+        assertSame(report, finished.result());
+    }
+
+    @Test
+    void shouldRejectSweepsWithoutProfiles() throws Exception {
+        mockMvc.perform(post("/api/sweep")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"profiles\":[]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("At least one profile is required"));
+    }
+}
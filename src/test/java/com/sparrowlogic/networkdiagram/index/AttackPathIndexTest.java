@@ -0,0 +1,123 @@
+package com.sparrowlogic.networkdiagram.index;
+
+import com.sparrowlogic.networkdiagram.model.CompactRuleList;
+import com.sparrowlogic.networkdiagram.model.InfrastructureComponents;
+import com.sparrowlogic.networkdiagram.model.RuleDirection;
+import com.sparrowlogic.networkdiagram.model.RuleSourcePool;
+import com.sparrowlogic.networkdiagram.model.SecurityGroupRule;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AttackPathIndexTest {
+
+    private final RuleSourcePool pool = new RuleSourcePool();
+
+    // internet -> web on 443, web -> app on 8080, app -> db on 5432. web's egress does not cover 5432,
+    // so db's rule for web is no hop; db has no egress at all, so neither is cache's rule for db.
+    private final InfrastructureComponents components = new InfrastructureComponents(
+        List.of(
+            new InfrastructureComponents.SecurityGroup("sg-web", "web-sg", CompactRuleList.builder(pool)
+                .add("tcp", 443, 443, "0.0.0.0/0", RuleDirection.INGRESS)
+                .add("tcp", 8080, 8080, "sg-app", RuleDirection.EGRESS)
+                .build()),
+            new InfrastructureComponents.SecurityGroup("sg-app", "app-sg", List.of(
+                new SecurityGroupRule("tcp", 8080, 8090, "sg-web", "ingress"),
+                new SecurityGroupRule("tcp", 22, 22, "sg-admin", "ingress"),
+                new SecurityGroupRule("-1", 0, 0, "0.0.0.0/0", "egress"))),
+            new InfrastructureComponents.SecurityGroup("sg-db", "db-sg", List.of(
+                new SecurityGroupRule("tcp", 5432, 5432, "sg-app", "ingress"),
+                new SecurityGroupRule("tcp", 5432, 5432, "sg-web", "ingress"))),
+            new InfrastructureComponents.SecurityGroup("sg-cache", "cache-sg", List.of(
+                new SecurityGroupRule("tcp", 6379, 6379, "sg-db", "ingress"))),
+            new InfrastructureComponents.SecurityGroup("sg-admin", "admin-sg", List.of(
+                new SecurityGroupRule("tcp", 22, 22, "203.0.113.7/32", "ingress"),
+                new SecurityGroupRule("tcp", 0, 65535, "10.0.0.0/16", "egress")))),
+        List.of(),
+        List.of(new InfrastructureComponents.Instance("i-db", "r6i.large", List.of("sg-db"))),
+        List.of(new InfrastructureComponents.AutoScalingGroup("app-asg", List.of(), List.of("sg-app"))),
+        "vpc-123",
+        List.of());
+
+    private final AttackPathIndex index = AttackPathIndex.of(components);
+
+    private static List<String> targets(AttackPathIndex.Exposure exposure) {
+        return exposure.paths().stream().map(AttackPathIndex.AttackPath::securityGroupId).toList();
+    }
+
+    @Test
+    void shouldFollowSecurityGroupReferencesTransitively() {
+        var exposure = index.pathsFrom("0.0.0.0/0", "all", ReachabilityIndex.ANY_PORT);
+
+        assertEquals(List.of("sg-web", "sg-app", "sg-db"), targets(exposure));
+        var db = exposure.paths().get(2);
+        assertEquals(3, db.hops());
+        assertEquals(List.of(
+            new AttackPathIndex.Hop("0.0.0.0/0", "sg-web", List.of("tcp/443")),
+            new AttackPathIndex.Hop("sg-web", "sg-app", List.of("tcp/8080")),
+            new AttackPathIndex.Hop("sg-app", "sg-db", List.of("tcp/5432"))), db.path());
+        assertEquals(List.of("i-db"), db.instanceIds());
+        assertEquals(List.of("app-asg"), exposure.paths().get(1).autoScalingGroups());
+    }
+
+    @Test
+    void shouldOnlyLinkGroupsWhenEgressAndIngressOverlap() {
+        assertEquals(3, index.edgeCount());
+    }
+
+    @Test
+    void shouldIntersectPortsAlongThePath() {
+        var exposure = index.pathsFrom("0.0.0.0/0", "all", ReachabilityIndex.ANY_PORT);
+
+        assertEquals(List.of("tcp/443"), exposure.paths().get(0).ports());
+        assertTrue(exposure.paths().get(2).ports().isEmpty());
+    }
+
+    @Test
+    void shouldEnterThroughEveryPrefixCoveringTheSource() {
+        var exposure = index.pathsFrom("203.0.113.7", "all", ReachabilityIndex.ANY_PORT);
+
+        // Both entry groups are one hop away; app is reached through web, the lower numbered of the two
+        assertEquals(List.of("sg-web", "sg-admin", "sg-app", "sg-db"), targets(exposure));
+        assertEquals("sg-web", exposure.paths().get(2).path().get(1).from());
+    }
+
+    @Test
+    void shouldRestrictEveryHopToTheQueriedPort() {
+        assertEquals(List.of("sg-web"), targets(index.pathsFrom("0.0.0.0/0", "tcp", 443)));
+        assertTrue(index.pathsFrom("0.0.0.0/0", "tcp", 5432).paths().isEmpty());
+        assertEquals(List.of("sg-admin", "sg-app"), targets(index.pathsFrom("203.0.113.7", "tcp", 22)));
+    }
+
+    @Test
+    void shouldStartFromEveryExternalCidr() {
+        var exposures = index.fromExternalCidrs("all", ReachabilityIndex.ANY_PORT);
+
+        assertEquals(List.of("0.0.0.0/0", "203.0.113.7/32"), exposures.stream().map(AttackPathIndex.Exposure::source).toList());
+    }
+
+    @Test
+    void shouldVisitEachGroupOnceInCycles() {
+        var cyclic = AttackPathIndex.of(new InfrastructureComponents(
+            List.of(
+                new InfrastructureComponents.SecurityGroup("sg-a", "a", List.of(
+                    new SecurityGroupRule("tcp", 80, 80, "0.0.0.0/0", "ingress"),
+                    new SecurityGroupRule("tcp", 80, 80, "sg-b", "ingress"),
+                    new SecurityGroupRule("-1", 0, 0, "0.0.0.0/0", "egress"))),
+                new InfrastructureComponents.SecurityGroup("sg-b", "b", List.of(
+                    new SecurityGroupRule("tcp", 80, 80, "sg-a", "ingress"),
+                    new SecurityGroupRule("-1", 0, 0, "sg-a", "egress")))),
+            List.of(), List.of(), List.of(), "vpc-123", List.of()));
+
+        assertEquals(List.of("sg-a", "sg-b"), targets(cyclic.pathsFrom("0.0.0.0/0", "tcp", 80)));
+        assertEquals(2, cyclic.edgeCount());
+    }
+
+    @Test
+    void shouldRejectInvalidQueries() {
+        assertThrows(IllegalArgumentException.class, () -> index.pathsFrom("sg-web", "all", ReachabilityIndex.ANY_PORT));
+        assertThrows(IllegalArgumentException.class, () -> index.pathsFrom("0.0.0.0/0", "gre-ish", ReachabilityIndex.ANY_PORT));
+    }
+}
@@ -0,0 +1,53 @@
+package com.sparrowlogic.networkdiagram.index;
+
+import com.sparrowlogic.networkdiagram.model.Cidr;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CidrTrieTest {
+
+    private static List<Integer> covering(CidrTrie trie, String query) {
+        var values = new ArrayList<Integer>();
+        trie.forEachCovering(Cidr.parse(query), values::add);
+        return values;
+    }
+
+    @Test
+    void shouldReturnEveryContainingPrefixShortestFirst() {
+        var trie = new CidrTrie();
+        trie.insert(Cidr.parse("0.0.0.0/0"), 0);
+        trie.insert(Cidr.parse("203.0.113.0/24"), 1);
+        trie.insert(Cidr.parse("203.0.113.7/32"), 2);
+        trie.insert(Cidr.parse("198.51.100.0/24"), 3);
+
+        assertEquals(List.of(0, 1, 2), covering(trie, "203.0.113.7"));
+        assertEquals(List.of(0, 1), covering(trie, "203.0.113.8/32"));
+        assertEquals(List.of(0, 1), covering(trie, "203.0.113.0/24"));
+        assertEquals(List.of(0), covering(trie, "203.0.0.0/16"));
+    }
+
+    @Test
+    void shouldKeepIpv4AndIpv6Apart() {
+        var trie = new CidrTrie();
+        trie.insert(Cidr.parse("0.0.0.0/0"), 0);
+        trie.insert(Cidr.parse("::/0"), 1);
+        trie.insert(Cidr.parse("2001:db8::/32"), 2);
+
+        assertEquals(List.of(1, 2), covering(trie, "2001:db8::1"));
+        assertEquals(List.of(0), covering(trie, "10.0.0.1"));
+    }
+
+    @Test
+    void shouldKeepAllValuesForSamePrefix() {
+        var trie = new CidrTrie();
+        for (int i = 0; i < 200; i++) {
+            trie.insert(Cidr.parse("10.0.0.0/8"), i);
+        }
+
+        assertEquals(200, covering(trie, "10.1.2.3").size());
+    }
+}
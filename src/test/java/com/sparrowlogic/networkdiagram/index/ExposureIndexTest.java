@@ -0,0 +1,63 @@
+package com.sparrowlogic.networkdiagram.index;
+
+import com.sparrowlogic.networkdiagram.model.InfrastructureComponents;
+import com.sparrowlogic.networkdiagram.model.SecurityGroupRule;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExposureIndexTest {
+
+    private final InfrastructureComponents components = new InfrastructureComponents(
+        List.of(
+            new InfrastructureComponents.SecurityGroup("sg-web", "web-sg", List.of(
+                new SecurityGroupRule("tcp", 443, 443, "0.0.0.0/0", "ingress"),
+                new SecurityGroupRule("tcp", 80, 80, "0.0.0.0/0", "ingress"),
+                new SecurityGroupRule("tcp", 22, 22, "203.0.113.7/32", "ingress"),
+                new SecurityGroupRule("tcp", 8080, 8080, "sg-app", "egress"))),
+            new InfrastructureComponents.SecurityGroup("sg-app", "app-sg", List.of(
+                new SecurityGroupRule("tcp", 8080, 8080, "sg-web", "ingress"),
+                new SecurityGroupRule("-1", 0, 0, "0.0.0.0/0", "egress")))),
+        List.of(),
+        List.of(
+            new InfrastructureComponents.Instance("i-asg", "t3.micro", List.of("sg-web")),
+            new InfrastructureComponents.Instance("i-bastion", "t3.nano", List.of("sg-web"))),
+        List.of(new InfrastructureComponents.AutoScalingGroup("web-asg", List.of("i-asg"), List.of("sg-web"))),
+        "vpc-123",
+        List.of());
+
+    private final ExposureIndex index = ExposureIndex.of(components);
+
+    @Test
+    void shouldCollectExternalCidrs() {
+        assertEquals(Set.of("0.0.0.0/0", "203.0.113.7/32"), index.externalCidrs());
+        assertTrue(index.isExposed("203.0.113.7/32"));
+        assertFalse(index.isExposed("10.0.0.0/8"));
+    }
+
+    @Test
+    void shouldIndexIngressRulesBySourceAndSecurityGroup() {
+        var exposed = index.ingressFrom("0.0.0.0/0");
+
+        assertEquals(Set.of("sg-web"), exposed.keySet());
+        assertEquals(2, exposed.get("sg-web").size());
+        assertTrue(index.ingressFrom("198.51.100.1/32").isEmpty());
+    }
+
+    @Test
+    void shouldSeparateAsgMembersFromStandaloneInstances() {
+        assertEquals("web-asg", index.autoScalingGroupsFor("sg-web").get(0).name());
+        assertEquals(List.of("i-bastion"), index.standaloneInstancesFor("sg-web").stream().map(i -> i.id()).toList());
+        assertTrue(index.standaloneInstancesFor("sg-app").isEmpty());
+    }
+
+    @Test
+    void shouldLookUpRecordsById() {
+        assertEquals("web-sg", index.securityGroup("sg-web").name());
+        assertEquals("t3.nano", index.instance("i-bastion").type());
+        assertNull(index.securityGroup("sg-missing"));
+    }
+}
@@ -0,0 +1,157 @@
+package com.sparrowlogic.networkdiagram.index;
+
+import com.sparrowlogic.networkdiagram.model.InfrastructureComponents;
+import com.sparrowlogic.networkdiagram.model.InventoryDiff;
+import com.sparrowlogic.networkdiagram.model.SecurityGroupRule;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InventoryFingerprintTest {
+
+    private static final SecurityGroupRule WEB_HTTPS = new SecurityGroupRule("tcp", 443, 443, "0.0.0.0/0", "ingress");
+    private static final SecurityGroupRule WEB_SSH = new SecurityGroupRule("tcp", 22, 22, "203.0.113.7/32", "ingress");
+    private static final SecurityGroupRule APP_FROM_WEB = new SecurityGroupRule("tcp", 8080, 8080, "sg-web", "ingress");
+    private static final SecurityGroupRule APP_ADMIN = new SecurityGroupRule("tcp", 9000, 9000, "198.51.100.1/32", "ingress");
+
+    private static InfrastructureComponents inventory(List<InfrastructureComponents.SecurityGroup> groups,
+                                                      List<InfrastructureComponents.Instance> instances,
+                                                      List<InfrastructureComponents.AutoScalingGroup> asgs) {
+        return new InfrastructureComponents(groups, List.of(), instances, asgs, "vpc-123", List.of());
+    }
+
+    private static InfrastructureComponents baseline() {
+        return inventory(
+            List.of(
+                new InfrastructureComponents.SecurityGroup("sg-web", "web", List.of(WEB_HTTPS, WEB_SSH)),
+                new InfrastructureComponents.SecurityGroup("sg-app", "app", List.of(APP_FROM_WEB, APP_ADMIN))),
+            List.of(
+                new InfrastructureComponents.Instance("i-web", "t3.micro", List.of("sg-web")),
+                new InfrastructureComponents.Instance("i-app", "m6i.large", List.of("sg-app"))),
+            List.of(new InfrastructureComponents.AutoScalingGroup("web-asg", List.of("i-web"), List.of("sg-web"))));
+    }
+
+    private static InfrastructureComponents withLoadBalancer(String... targets) {
+        var lb = new InfrastructureComponents.LoadBalancer("arn:lb/web", "web-lb", "application", List.of("tg-web"), List.of(targets));
+        var base = baseline();
+        return new InfrastructureComponents(base.securityGroups(), List.of(lb), base.instances(), base.autoScalingGroups(),
+            "vpc-123", List.of());
+    }
+
+    private static List<InventoryDiff.Change> diff(InfrastructureComponents before, InfrastructureComponents after) {
+        return InventoryFingerprint.diff(InventoryFingerprint.of(before), InventoryFingerprint.of(after));
+    }
+
+    @Test
+    void shouldFindNothingBetweenEqualInventories() {
+        assertTrue(diff(baseline(), baseline()).isEmpty());
+    }
+
+    @Test
+    void shouldIgnoreTheOrderRulesAndGroupsAreListedIn() {
+        var reordered = inventory(
+            List.of(
+                new InfrastructureComponents.SecurityGroup("sg-app", "app", List.of(APP_ADMIN, APP_FROM_WEB)),
+                new InfrastructureComponents.SecurityGroup("sg-web", "web", List.of(WEB_SSH, WEB_HTTPS))),
+            List.of(
+                new InfrastructureComponents.Instance("i-app", "m6i.large", List.of("sg-app")),
+                new InfrastructureComponents.Instance("i-web", "t3.micro", List.of("sg-web"))),
+            baseline().autoScalingGroups());
+
+        assertTrue(diff(baseline(), reordered).isEmpty());
+    }
+
+    @Test
+    void shouldReportRuleLevelChangesAndTheSectionsTheyTouch() {
+        var after = inventory(
+            List.of(
+                new InfrastructureComponents.SecurityGroup("sg-web", "web", List.of(WEB_HTTPS,
+                    new SecurityGroupRule("tcp", 22, 22, "192.0.2.10/32", "ingress"))),
+                baseline().securityGroups().get(1)),
+            baseline().instances(),
+            baseline().autoScalingGroups());
+        var before = InventoryFingerprint.of(baseline());
+        var current = InventoryFingerprint.of(after);
+
+        var changes = InventoryFingerprint.diff(before, current);
+
+        assertEquals(List.of(new InventoryDiff.Change(InventoryDiff.Kind.SECURITY_GROUP, "sg-web", InventoryDiff.Type.CHANGED,
+            List.of("ingress tcp 22 192.0.2.10/32"), List.of("ingress tcp 22 203.0.113.7/32"))), changes);
+        assertEquals(Set.of("192.0.2.10/32", "203.0.113.7/32"), InventoryFingerprint.affectedCidrs(before, current, changes));
+    }
+
+    @Test
+    void shouldTraceInstanceAndAsgChangesToTheirGroupsSections() {
+        var after = inventory(
+            baseline().securityGroups(),
+            List.of(
+                new InfrastructureComponents.Instance("i-web", "t3.micro", List.of("sg-web")),
+                new InfrastructureComponents.Instance("i-app", "m6i.xlarge", List.of("sg-app")),
+                new InfrastructureComponents.Instance("i-new", "t3.micro", List.of("sg-web"))),
+            List.of(new InfrastructureComponents.AutoScalingGroup("web-asg", List.of("i-web", "i-new"), List.of("sg-web"))));
+        var before = InventoryFingerprint.of(baseline());
+        var current = InventoryFingerprint.of(after);
+
+        var changes = InventoryFingerprint.diff(before, current);
+
+        assertEquals(List.of(
+                new InventoryDiff.Change(InventoryDiff.Kind.INSTANCE, "i-app", InventoryDiff.Type.CHANGED, List.of(), List.of()),
+                new InventoryDiff.Change(InventoryDiff.Kind.INSTANCE, "i-new", InventoryDiff.Type.ADDED, List.of(), List.of()),
+                new InventoryDiff.Change(InventoryDiff.Kind.AUTO_SCALING_GROUP, "web-asg", InventoryDiff.Type.CHANGED, List.of(), List.of())),
+            changes);
+        // sg-app's reference to sg-web is not an external CIDR and has no section
+        assertEquals(Set.of("0.0.0.0/0", "203.0.113.7/32", "198.51.100.1/32"),
+            InventoryFingerprint.affectedCidrs(before, current, changes));
+    }
+
+    @Test
+    void shouldTraceRetargetedLoadBalancersToTheirTargetsSections() {
+        var before = InventoryFingerprint.of(withLoadBalancer("i-app"));
+        var current = InventoryFingerprint.of(withLoadBalancer("i-web"));
+
+        var changes = InventoryFingerprint.diff(before, current);
+
+        assertEquals(List.of(new InventoryDiff.Change(InventoryDiff.Kind.LOAD_BALANCER, "arn:lb/web", InventoryDiff.Type.CHANGED,
+            List.of(), List.of())), changes);
+        // i-app's group on the old side, and web-asg's group (holding i-web) on the new side
+        assertEquals(Set.of("0.0.0.0/0", "203.0.113.7/32", "198.51.100.1/32"),
+            InventoryFingerprint.affectedCidrs(before, current, changes));
+        assertTrue(diff(withLoadBalancer("i-app", "i-web"), withLoadBalancer("i-web", "i-app")).isEmpty());
+    }
+
+    @Test
+    void shouldReportRemovedGroupsWithAllTheirRules() {
+        var after = inventory(List.of(baseline().securityGroups().get(0)), baseline().instances(), baseline().autoScalingGroups());
+        var before = InventoryFingerprint.of(baseline());
+        var current = InventoryFingerprint.of(after);
+
+        var changes = InventoryFingerprint.diff(before, current);
+
+        assertEquals(1, changes.size());
+        assertEquals(InventoryDiff.Type.REMOVED, changes.get(0).type());
+        assertEquals(2, changes.get(0).removedRules().size());
+        assertEquals(Set.of("198.51.100.1/32"), InventoryFingerprint.affectedCidrs(before, current, changes));
+    }
+
+    @Test
+    void shouldOnlyOpenBucketsThatChangedInLargeInventories() {
+        var groups = new ArrayList<InfrastructureComponents.SecurityGroup>();
+        for (int g = 0; g < 20_000; g++) {
+            groups.add(new InfrastructureComponents.SecurityGroup("sg-" + g, "group-" + g, List.of(
+                new SecurityGroupRule("tcp", 443, 443, "10.0." + (g % 256) + ".0/24", "ingress"))));
+        }
+        var changed = new ArrayList<>(groups);
+        changed.set(12_345, new InfrastructureComponents.SecurityGroup("sg-12345", "renamed", groups.get(12_345).rules()));
+        changed.remove(7);
+
+        var changes = diff(inventory(groups, List.of(), List.of()), inventory(changed, List.of(), List.of()));
+
+        assertEquals(List.of("sg-12345", "sg-7"), changes.stream().map(InventoryDiff.Change::id).toList());
+        assertEquals(List.of(InventoryDiff.Type.CHANGED, InventoryDiff.Type.REMOVED),
+            changes.stream().map(InventoryDiff.Change::type).toList());
+    }
+}
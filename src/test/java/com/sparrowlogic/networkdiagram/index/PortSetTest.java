@@ -0,0 +1,57 @@
+package com.sparrowlogic.networkdiagram.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PortSetTest {
+
+    private static PortSet tcp(int from, int to) {
+        return PortSet.of(6, from, to);
+    }
+
+    @Test
+    void shouldJoinOverlappingAndTouchingRanges() {
+        var ports = tcp(80, 80).union(tcp(81, 90)).union(tcp(85, 100)).union(tcp(443, 443)).union(PortSet.of(17, 53, 53));
+
+        assertEquals(List.of("tcp/80-100", "tcp/443", "udp/53"), ports.labels());
+    }
+
+    @Test
+    void shouldLetAllTrafficAbsorbEverything() {
+        var all = PortSet.of(ReachabilityIndex.ALL_PROTOCOLS, -1, -1);
+
+        assertEquals(List.of("all"), tcp(22, 22).union(all).labels());
+        assertEquals(List.of("tcp/22"), all.intersect(tcp(22, 22)).labels());
+    }
+
+    @Test
+    void shouldIntersectPerProtocol() {
+        var left = tcp(0, 1000).union(PortSet.of(17, 53, 53)).union(PortSet.of(1, 8, 0));
+        var right = tcp(443, 443).union(tcp(900, 2000)).union(PortSet.of(1, -1, -1));
+
+        assertEquals(List.of("icmp", "tcp/443", "tcp/900-1000"), left.intersect(right).labels());
+        assertTrue(tcp(22, 22).intersect(PortSet.of(17, 22, 22)).isEmpty());
+    }
+
+    @Test
+    void shouldAnswerPortQueries() {
+        var ports = tcp(8000, 8080).union(PortSet.of(1, 8, 0));
+
+        assertTrue(ports.allows(6, 8080));
+        assertFalse(ports.allows(6, 8081));
+        assertTrue(ports.allows(6, ReachabilityIndex.ANY_PORT));
+        assertTrue(ports.allows(1, 3));
+        assertFalse(ports.allows(17, ReachabilityIndex.ANY_PORT));
+        assertTrue(ports.allows(ReachabilityIndex.ALL_PROTOCOLS, ReachabilityIndex.ANY_PORT));
+        assertFalse(PortSet.EMPTY.allows(ReachabilityIndex.ALL_PROTOCOLS, ReachabilityIndex.ANY_PORT));
+    }
+
+    @Test
+    void shouldDropUnknownProtocolsAndInvertedRanges() {
+        assertTrue(PortSet.of(-2, 0, 0).isEmpty());
+        assertTrue(tcp(90, 80).isEmpty());
+    }
+}
@@ -0,0 +1,96 @@
+package com.sparrowlogic.networkdiagram.index;
+
+import com.sparrowlogic.networkdiagram.model.CompactRuleList;
+import com.sparrowlogic.networkdiagram.model.InfrastructureComponents;
+import com.sparrowlogic.networkdiagram.model.RuleDirection;
+import com.sparrowlogic.networkdiagram.model.RuleSourcePool;
+import com.sparrowlogic.networkdiagram.model.SecurityGroupRule;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReachabilityIndexTest {
+
+    private final RuleSourcePool pool = new RuleSourcePool();
+
+    private final InfrastructureComponents components = new InfrastructureComponents(
+        List.of(
+            new InfrastructureComponents.SecurityGroup("sg-web", "web-sg", CompactRuleList.builder(pool)
+                .add("tcp", 443, 443, "0.0.0.0/0", RuleDirection.INGRESS)
+                .add("tcp", 443, 443, "::/0", RuleDirection.INGRESS)
+                .build()),
+            new InfrastructureComponents.SecurityGroup("sg-ssh", "ssh-sg", List.of(
+                new SecurityGroupRule("tcp", 22, 22, "203.0.113.0/24", "ingress"),
+                new SecurityGroupRule("tcp", 0, 65535, "203.0.113.0/24", "egress"))),
+            new InfrastructureComponents.SecurityGroup("sg-any", "any-sg", List.of(
+                new SecurityGroupRule("-1", 0, 0, "198.51.100.9/32", "ingress"),
+                new SecurityGroupRule("-1", 0, 0, "sg-web", "ingress"),
+                new SecurityGroupRule("tcpp", 0, 65535, "0.0.0.0/0", "ingress")))),
+        List.of(),
+        List.of(
+            new InfrastructureComponents.Instance("i-web", "t3.micro", List.of("sg-web")),
+            new InfrastructureComponents.Instance("i-bastion", "t3.nano", List.of("sg-ssh"))),
+        List.of(new InfrastructureComponents.AutoScalingGroup("web-asg", List.of("i-web"), List.of("sg-web"))),
+        "vpc-123",
+        List.of());
+
+    private final ReachabilityIndex index = ReachabilityIndex.of(components);
+
+    @Test
+    void shouldMatchBroaderPrefixesContainingTheAddress() {
+        var result = index.reachableFrom("203.0.113.7", "tcp", 22);
+
+        assertEquals(List.of("sg-ssh"), result.securityGroupIds());
+        assertEquals(List.of("i-bastion"), result.instanceIds());
+        assertEquals(1, result.rules().size());
+    }
+
+    @Test
+    void shouldFilterByPortAndProtocol() {
+        assertEquals(List.of("sg-web"), index.reachableFrom("192.0.2.1", "tcp", 443).securityGroupIds());
+        assertTrue(index.reachableFrom("192.0.2.1", "tcp", 80).securityGroupIds().isEmpty());
+        assertTrue(index.reachableFrom("192.0.2.1", "udp", 443).securityGroupIds().isEmpty());
+        assertEquals(List.of("web-asg"), index.reachableFrom("192.0.2.1", "6", 443).autoScalingGroups());
+    }
+
+    @Test
+    void shouldTreatAllProtocolRulesAsMatchingEveryPort() {
+        var result = index.reachableFrom("198.51.100.9/32", "udp", 53);
+
+        assertEquals(List.of("sg-any"), result.securityGroupIds());
+    }
+
+    @Test
+    void shouldAnswerIpv6Queries() {
+        assertEquals(List.of("sg-web"), index.reachableFrom("2001:db8::1", "tcp", 443).securityGroupIds());
+    }
+
+    @Test
+    void shouldIgnoreEgressAndSecurityGroupSources() {
+        assertEquals(4, index.indexedRuleCount());
+    }
+
+    @Test
+    void shouldRejectUnknownProtocolsAndNeverMatchRulesWithOne() {
+        var e = assertThrows(IllegalArgumentException.class, () -> index.reachableFrom("192.0.2.1", "tcpp", 443));
+        assertEquals("Unknown protocol: tcpp", e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> index.reachableFrom("192.0.2.1", "300", 443));
+        // sg-any's "tcpp" rule from 0.0.0.0/0 is not reported even for an all-protocol query
+        assertEquals(List.of("sg-web"), index.reachableFrom("192.0.2.1", "all", ReachabilityIndex.ANY_PORT).securityGroupIds());
+    }
+
+    @Test
+    void shouldReportMatchesInRuleOrder() {
+        var result = index.reachableFrom("198.51.100.9", "all", ReachabilityIndex.ANY_PORT);
+
+        assertEquals(List.of("sg-web", "sg-any"), result.securityGroupIds());
+        assertEquals(List.of("0.0.0.0/0", "198.51.100.9/32"), result.rules().stream().map(match -> match.rule().source()).toList());
+    }
+
+    @Test
+    void shouldRejectInvalidSources() {
+        assertThrows(IllegalArgumentException.class, () -> index.reachableFrom("sg-web", "tcp", 443));
+    }
+}
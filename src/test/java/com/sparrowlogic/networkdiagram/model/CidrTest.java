@@ -0,0 +1,63 @@
+package com.sparrowlogic.networkdiagram.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CidrTest {
+
+    @Test
+    void shouldParseIpv4Prefixes() {
+        var cidr = Cidr.parse("10.1.2.3/16");
+
+        assertEquals(Cidr.IPV4, cidr.family());
+        assertEquals(16, cidr.length());
+        assertEquals(0x0A010000L, cidr.lo());
+        assertEquals(new Cidr(Cidr.IPV4, 0, 0, 0), Cidr.parse("0.0.0.0/0"));
+        assertEquals(32, Cidr.parse("203.0.113.7").length());
+    }
+
+    @Test
+    void shouldParseIpv6Prefixes() {
+        var cidr = Cidr.parse("2001:db8::1/32");
+
+        assertEquals(Cidr.IPV6, cidr.family());
+        assertEquals(0x20010db800000000L, cidr.hi());
+        assertEquals(0L, cidr.lo());
+        assertEquals(new Cidr(Cidr.IPV6, 0, 0, 0), Cidr.parse("::/0"));
+        assertEquals(128, Cidr.parse("::1/128").length());
+    }
+
+    @Test
+    void shouldRejectNonPrefixes() {
+        assertNull(Cidr.parse("sg-0123abcd"));
+        assertNull(Cidr.parse("pl-12345"));
+        assertNull(Cidr.parse("10.0.0.0/33"));
+        assertNull(Cidr.parse("256.0.0.0/8"));
+        assertNull(Cidr.parse("dead.beef.cafe.babe"));
+        assertNull(Cidr.parse("10.0.0/8"));
+    }
+
+    @Test
+    void shouldTestContainment() {
+        var office = Cidr.parse("203.0.113.0/24");
+
+        assertTrue(Cidr.parse("0.0.0.0/0").contains(office));
+        assertTrue(office.contains(Cidr.parse("203.0.113.7/32")));
+        assertFalse(office.contains(Cidr.parse("203.0.114.7/32")));
+        assertFalse(Cidr.parse("203.0.113.7/32").contains(office));
+        assertFalse(Cidr.parse("::/0").contains(office));
+    }
+
+    @Test
+    void shouldOrderPrefixesNumerically() {
+        var prefixes = new ArrayList<>(List.of("::/0", "not-a-cidr", "203.0.113.10/32", "0.0.0.0/0", "203.0.113.9/32"));
+
+        prefixes.sort(Cidr::compareText);
+
+        assertEquals(List.of("0.0.0.0/0", "203.0.113.9/32", "203.0.113.10/32", "::/0", "not-a-cidr"), prefixes);
+    }
+}
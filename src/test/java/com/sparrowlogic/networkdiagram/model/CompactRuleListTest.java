@@ -0,0 +1,83 @@
+package com.sparrowlogic.networkdiagram.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactRuleListTest {
+
+    @Test
+    void shouldExposeRulesThroughRecordView() {
+        var rules = CompactRuleList.builder(new RuleSourcePool())
+            .add("tcp", 443, 443, "0.0.0.0/0", RuleDirection.INGRESS)
+            .add("-1", 0, 0, "sg-app", RuleDirection.EGRESS)
+            .build();
+
+        assertEquals(List.of(
+            new SecurityGroupRule("tcp", 443, 443, "0.0.0.0/0", "ingress"),
+            new SecurityGroupRule("-1", 0, 0, "sg-app", "egress")), rules);
+        assertEquals(RuleDirection.EGRESS, rules.direction(1));
+        assertEquals("sg-app", rules.get(1).source());
+    }
+
+    @Test
+    void shouldInternSourcesAcrossGroups() {
+        var pool = new RuleSourcePool();
+        var web = CompactRuleList.builder(pool).add("tcp", 80, 80, "10.0.0.0/8", RuleDirection.INGRESS).build();
+        var app = CompactRuleList.builder(pool).add("tcp", 8080, 8080, "10.0.0.0/8", RuleDirection.INGRESS).build();
+
+        assertEquals(1, pool.sourceCount());
+        assertEquals(web.sourceId(0), app.sourceId(0));
+        assertSame(web.get(0).source(), app.get(0).source());
+        assertSame(web.get(0).protocol(), app.get(0).protocol());
+    }
+
+    @Test
+    void shouldClassifyAndParseSources() {
+        var pool = new RuleSourcePool();
+        var sg = pool.internSource("sg-123");
+        var v4 = pool.internSource("10.0.0.0/8");
+        var v6 = pool.internSource("2001:db8::/32");
+        var prefixList = pool.internSource("pl-123");
+
+        assertEquals(RuleSourcePool.KIND_SECURITY_GROUP, pool.kind(sg));
+        assertEquals(RuleSourcePool.KIND_IPV4, pool.kind(v4));
+        assertEquals(RuleSourcePool.KIND_IPV6, pool.kind(v6));
+        assertEquals(RuleSourcePool.KIND_OTHER, pool.kind(prefixList));
+        assertEquals(Cidr.parse("10.0.0.0/8"), pool.cidr(v4));
+        assertNull(pool.cidr(sg));
+    }
+
+    @Test
+    void shouldGrowPastInitialCapacity() {
+        var builder = CompactRuleList.builder(new RuleSourcePool());
+        for (int i = 0; i < 100; i++) {
+            builder.add("tcp", i, i, "10.0." + i + ".0/24", RuleDirection.INGRESS);
+        }
+        var rules = builder.build();
+
+        assertEquals(100, rules.size());
+        assertEquals("10.0.99.0/24", rules.get(99).source());
+        assertEquals(99, rules.fromPort(99));
+    }
+
+    @Test
+    void shouldReadRowsFromAnExistingBuffer() {
+        var pool = new RuleSourcePool();
+        var protocol = pool.internProtocol("udp");
+        var source = pool.internSource("198.51.100.1/32");
+        // One padding byte in front, as when the rows sit inside a larger file
+        var buffer = ByteBuffer.allocate(1 + CompactRuleList.RULE_BYTES).put((byte) 9)
+            .put((byte) RuleDirection.INGRESS.ordinal()).putShort(protocol).putInt(1194).putInt(1194).putInt(source)
+            .position(1);
+
+        var rules = CompactRuleList.view(pool, buffer);
+
+        assertEquals(List.of(new SecurityGroupRule("udp", 1194, 1194, "198.51.100.1/32", "ingress")), rules);
+        assertThrows(IndexOutOfBoundsException.class, () -> rules.fromPort(1));
+        assertThrows(IllegalArgumentException.class, () -> CompactRuleList.view(pool, ByteBuffer.allocate(7)));
+    }
+}
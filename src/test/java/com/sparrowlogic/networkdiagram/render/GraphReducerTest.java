@@ -0,0 +1,126 @@
+package com.sparrowlogic.networkdiagram.render;
+
+import com.sparrowlogic.networkdiagram.model.DiagramGraph;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphReducerTest {
+
+    private static DiagramGraph.Edge rule(String from, String to, String protocol, int fromPort, int toPort) {
+        return new DiagramGraph.Edge(from, to, new DiagramGraph.Ports(protocol, fromPort, toPort));
+    }
+
+    @Test
+    void shouldJoinOverlappingAndAdjacentPortRanges() {
+        var edges = List.of(
+            rule("cidr", "sg", "tcp", 8080, 8090),
+            rule("cidr", "sg", "tcp", 80, 80),
+            rule("cidr", "sg", "tcp", 81, 81),
+            rule("cidr", "sg", "tcp", 8085, 9000),
+            rule("cidr", "sg", "udp", 53, 53),
+            rule("cidr", "sg", "icmp", 3, 4),
+            rule("cidr", "sg", "icmp", 3, 4),
+            rule("cidr", "sg", "icmp", 8, 0));
+
+        var merged = GraphReducer.mergePorts(edges);
+
+        assertEquals(List.of(
+            rule("cidr", "sg", "tcp", 80, 81),
+            rule("cidr", "sg", "tcp", 8080, 9000),
+            rule("cidr", "sg", "udp", 53, 53),
+            rule("cidr", "sg", "icmp", 3, 4),
+            rule("cidr", "sg", "icmp", 8, 0)), merged);
+    }
+
+    @Test
+    void shouldLetAllTrafficRuleCoverTheRest() {
+        var merged = GraphReducer.mergePorts(List.of(
+            rule("cidr", "sg", "tcp", 22, 22),
+            rule("cidr", "sg", "-1", 0, 0),
+            rule("cidr", "other", "tcp", 22, 22)));
+
+        assertEquals(List.of(rule("cidr", "sg", "-1", 0, 0), rule("cidr", "other", "tcp", 22, 22)), merged);
+    }
+
+    @Test
+    void shouldCollapseIdenticallyWiredInstances() {
+        var nodes = new ArrayList<DiagramGraph.Node>();
+        var edges = new ArrayList<DiagramGraph.Edge>();
+        nodes.add(new DiagramGraph.Node("sg_a", "a", DiagramGraph.Kind.SECURITY_GROUP));
+        nodes.add(new DiagramGraph.Node("sg_b", "b", DiagramGraph.Kind.SECURITY_GROUP));
+        for (int i = 0; i < 5; i++) {
+            nodes.add(new DiagramGraph.Node("i-" + i, "i-" + i, DiagramGraph.Kind.INSTANCE));
+            edges.add(new DiagramGraph.Edge("sg_a", "i-" + i, null));
+        }
+        // Also behind sg_b, so it is not a sibling of the others
+        edges.add(new DiagramGraph.Edge("sg_b", "i-4", null));
+
+        var reduced = GraphReducer.collapseSiblings(new DiagramGraph("test", nodes, edges), 3);
+
+        assertEquals(List.of("sg_a", "sg_b", "group_i-0", "i-4"), reduced.nodes().stream().map(DiagramGraph.Node::id).toList());
+        assertEquals("4 instances", reduced.nodes().get(2).label());
+        assertEquals(List.of(
+            new DiagramGraph.Edge("sg_a", "group_i-0", null),
+            new DiagramGraph.Edge("sg_a", "i-4", null),
+            new DiagramGraph.Edge("sg_b", "i-4", null)), reduced.edges());
+    }
+
+    @Test
+    void shouldCapFanOutAndDropTargetsOnlyReachedThroughOverflow() {
+        var nodes = new ArrayList<DiagramGraph.Node>();
+        var edges = new ArrayList<DiagramGraph.Edge>();
+        nodes.add(new DiagramGraph.Node("cidr", "cidr", DiagramGraph.Kind.CIDR));
+        nodes.add(new DiagramGraph.Node("other", "other", DiagramGraph.Kind.CIDR));
+        for (int i = 0; i < 10; i++) {
+            nodes.add(new DiagramGraph.Node("sg" + i, "sg" + i, DiagramGraph.Kind.SECURITY_GROUP));
+            edges.add(rule("cidr", "sg" + i, "tcp", 443, 443));
+        }
+        edges.add(rule("other", "sg9", "tcp", 22, 22));
+
+        var reduced = GraphReducer.capFanOut(new DiagramGraph("test", nodes, edges), 4);
+
+        assertEquals(List.of("cidr", "other", "sg0", "sg1", "sg2", "sg9", "cidr_more"),
+            reduced.nodes().stream().map(DiagramGraph.Node::id).toList());
+        assertEquals("+7 more", reduced.nodes().get(6).label());
+        assertTrue(reduced.edges().contains(new DiagramGraph.Edge("cidr", "cidr_more", null)));
+        assertTrue(reduced.edges().contains(rule("other", "sg9", "tcp", 22, 22)));
+        assertFalse(reduced.edges().contains(rule("cidr", "sg9", "tcp", 443, 443)));
+    }
+
+    @Test
+    void shouldLeaveSmallGraphsUntouched() {
+        var graph = new DiagramGraph("test",
+            List.of(new DiagramGraph.Node("cidr", "cidr", DiagramGraph.Kind.CIDR),
+                    new DiagramGraph.Node("sg", "sg", DiagramGraph.Kind.SECURITY_GROUP)),
+            List.of(rule("cidr", "sg", "tcp", 443, 443)));
+
+        assertEquals(new GraphReducer.Reduction(graph, false), GraphReducer.reduce(graph, new GraphReducer.Limits(3, 25)));
+    }
+
+    @Test
+    void shouldNotCountSortingRangesAsAReduction() {
+        var graph = new DiagramGraph("test",
+            List.of(new DiagramGraph.Node("cidr", "cidr", DiagramGraph.Kind.CIDR),
+                    new DiagramGraph.Node("sg", "sg", DiagramGraph.Kind.SECURITY_GROUP)),
+            List.of(rule("cidr", "sg", "tcp", 443, 443), rule("cidr", "sg", "tcp", 22, 22)));
+
+        var reduction = GraphReducer.reduce(graph, new GraphReducer.Limits(3, 25));
+
+        assertFalse(reduction.reduced());
+        assertEquals(List.of(rule("cidr", "sg", "tcp", 22, 22), rule("cidr", "sg", "tcp", 443, 443)), reduction.graph().edges());
+    }
+
+    @Test
+    void shouldReportMergedRangesAsAReduction() {
+        var graph = new DiagramGraph("test",
+            List.of(new DiagramGraph.Node("cidr", "cidr", DiagramGraph.Kind.CIDR),
+                    new DiagramGraph.Node("sg", "sg", DiagramGraph.Kind.SECURITY_GROUP)),
+            List.of(rule("cidr", "sg", "tcp", 80, 80), rule("cidr", "sg", "tcp", 81, 81)));
+
+        assertTrue(GraphReducer.reduce(graph, new GraphReducer.Limits(3, 25)).reduced());
+    }
+}
@@ -0,0 +1,66 @@
+package com.sparrowlogic.networkdiagram.render;
+
+import com.sparrowlogic.networkdiagram.model.DiagramGraph;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LayeredLayoutTest {
+
+    private static DiagramGraph.Node node(String id) {
+        return new DiagramGraph.Node(id, id, DiagramGraph.Kind.SECURITY_GROUP);
+    }
+
+    @Test
+    void shouldPlaceEachNodeBelowItsDeepestPredecessor() {
+        var graph = new DiagramGraph("test",
+            List.of(node("cidr"), node("sg"), node("asg"), node("i-1")),
+            List.of(new DiagramGraph.Edge("cidr", "sg", new DiagramGraph.Ports("tcp", 443, 443)),
+                    new DiagramGraph.Edge("sg", "asg", null),
+                    new DiagramGraph.Edge("sg", "i-1", null),
+                    new DiagramGraph.Edge("cidr", "i-1", null)));
+
+        var layout = LayeredLayout.of(graph);
+
+        var y = layout.nodes().stream().mapToDouble(LayeredLayout.PlacedNode::y).toArray();
+        assertTrue(y[0] < y[1]);
+        assertTrue(y[1] < y[2]);
+        assertEquals(y[2], y[3]);
+        assertEquals(4, layout.edges().size());
+        layout.nodes().forEach(node -> {
+            assertTrue(node.x() >= 0 && node.x() + node.width() <= layout.width());
+            assertTrue(node.y() >= 0 && node.y() + node.height() <= layout.height());
+        });
+    }
+
+    @Test
+    void shouldMergeParallelEdgesAndSurviveCycles() {
+        var graph = new DiagramGraph("test",
+            List.of(node("a"), node("b")),
+            List.of(new DiagramGraph.Edge("a", "b", new DiagramGraph.Ports("tcp", 80, 80)),
+                    new DiagramGraph.Edge("a", "b", new DiagramGraph.Ports("tcp", 443, 443)),
+                    new DiagramGraph.Edge("b", "a", null),
+                    new DiagramGraph.Edge("a", "missing", null)));
+
+        var layout = LayeredLayout.of(graph);
+
+        assertEquals(2, layout.edges().size());
+        assertEquals(List.of("Port 80-80 (tcp)", "Port 443-443 (tcp)"), layout.edges().get(0).labels());
+        assertTrue(layout.nodes().get(0).y() < layout.nodes().get(1).y());
+    }
+
+    @Test
+    void shouldUncrossEdgesBetweenLayers() {
+        // Input order would cross a->y and b->x
+        var graph = new DiagramGraph("test",
+            List.of(node("a"), node("b"), node("x"), node("y")),
+            List.of(new DiagramGraph.Edge("a", "y", null), new DiagramGraph.Edge("b", "x", null)));
+
+        var layout = LayeredLayout.of(graph);
+
+        var nodes = layout.nodes();
+        assertTrue(nodes.get(3).x() < nodes.get(2).x());
+    }
+}
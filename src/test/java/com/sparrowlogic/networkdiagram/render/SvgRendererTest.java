@@ -0,0 +1,36 @@
+package com.sparrowlogic.networkdiagram.render;
+
+import com.sparrowlogic.networkdiagram.model.DiagramGraph;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SvgRendererTest {
+
+    @Test
+    void shouldWriteNodesEdgesAndEscapedLabels() {
+        var graph = new DiagramGraph("0.0.0.0/0",
+            List.of(new DiagramGraph.Node("CIDR_0_0_0_0_0", "0.0.0.0/0", DiagramGraph.Kind.CIDR),
+                    new DiagramGraph.Node("sg_web", "web <public> & \"edge\"", DiagramGraph.Kind.SECURITY_GROUP)),
+            List.of(new DiagramGraph.Edge("CIDR_0_0_0_0_0", "sg_web", new DiagramGraph.Ports("tcp", 443, 443))));
+
+        var svg = SvgRenderer.render(graph);
+
+        assertTrue(svg.startsWith("<svg xmlns=\"http://www.w3.org/2000/svg\""));
+        assertTrue(svg.endsWith("</svg>"));
+        assertTrue(svg.contains("fill=\"#ff6666\""));
+        assertTrue(svg.contains("fill=\"#99ccff\""));
+        assertTrue(svg.contains(">Port 443-443 (tcp)</tspan>"));
+        assertTrue(svg.contains("web &lt;public&gt; &amp; &quot;edge&quot;"));
+        assertEquals(1, svg.split("marker-end=", -1).length - 1);
+    }
+
+    @Test
+    void shouldDrawPlaceholderForEmptyGraph() {
+        var svg = SvgRenderer.render(new DiagramGraph("10.0.0.1/32", List.of(), List.of()));
+
+        assertTrue(svg.contains("No exposure from 10.0.0.1/32"));
+    }
+}
@@ -1,12 +1,36 @@
 package com.sparrowlogic.networkdiagram.service;
 
+import com.sparrowlogic.networkdiagram.aws.AdaptiveRateLimiter;
+import com.sparrowlogic.networkdiagram.aws.AwsClientRegistry;
+import com.sparrowlogic.networkdiagram.model.InfrastructureComponents;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.elasticloadbalancingv2.ElasticLoadBalancingV2Client;
+import software.amazon.awssdk.services.elasticloadbalancingv2.model.DescribeLoadBalancersRequest;
+import software.amazon.awssdk.services.elasticloadbalancingv2.model.DescribeLoadBalancersResponse;
+import software.amazon.awssdk.services.elasticloadbalancingv2.model.LoadBalancer;
+import software.amazon.awssdk.services.elasticloadbalancingv2.model.LoadBalancerNotFoundException;
+import software.amazon.awssdk.services.elasticloadbalancingv2.model.DescribeTargetHealthRequest;
+import software.amazon.awssdk.services.elasticloadbalancingv2.model.DescribeTargetHealthResponse;
+import software.amazon.awssdk.services.elasticloadbalancingv2.model.TargetDescription;
+import software.amazon.awssdk.services.elasticloadbalancingv2.model.TargetHealthDescription;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
 
 class AwsInfrastructureServiceTest {
 
-    private final AwsInfrastructureService service = new AwsInfrastructureService();
+    private final AwsInfrastructureService service = new AwsInfrastructureService(
+        new AwsClientRegistry(new SimpleMeterRegistry(),
+            new AdaptiveRateLimiter(new SimpleMeterRegistry(), true, 10, 0.5, 50, 1, 0.5),
+            4, Duration.ofMinutes(10), 10, Duration.ofMillis(200), Duration.ofSeconds(20)), new SimpleMeterRegistry(),
+        4, Duration.ofSeconds(30));
 
     @Test
     void shouldAcceptProfileRegionAndVpcParameters() {
@@ -19,4 +43,105 @@ class AwsInfrastructureServiceTest {
         // Test method signature exists - actual AWS calls would require credentials  
         assertNotNull(service);
     }
+
+    @Test
+    void shouldReadInstanceTargetsOfATargetGroup() {
+        var elb = mock(ElasticLoadBalancingV2Client.class);
+        when(elb.describeTargetHealth(DescribeTargetHealthRequest.builder().targetGroupArn("tg-web").build()))
+            .thenReturn(DescribeTargetHealthResponse.builder().targetHealthDescriptions(
+                TargetHealthDescription.builder().target(TargetDescription.builder().id("i-1").port(80).build()).build(),
+                TargetHealthDescription.builder().target(TargetDescription.builder().id("i-2").port(80).build()).build()).build());
+
+        assertEquals(List.of("i-1", "i-2"), AwsInfrastructureService.fetchTargetInstanceIds(elb, "tg-web"));
+    }
+
+    @Test
+    void shouldAttachTargetGroupsAndTheirInstancesToLoadBalancers() {
+        var elb = mock(ElasticLoadBalancingV2Client.class);
+        when(elb.describeTargetHealth(any(DescribeTargetHealthRequest.class))).thenAnswer(call -> {
+            var arn = call.<DescribeTargetHealthRequest>getArgument(0).targetGroupArn();
+            var ids = "tg-web".equals(arn) ? List.of("i-1", "i-2") : List.of("i-2", "i-3");
+            return DescribeTargetHealthResponse.builder().targetHealthDescriptions(ids.stream()
+                .map(id -> TargetHealthDescription.builder().target(TargetDescription.builder().id(id).build()).build())
+                .toList()).build();
+        });
+        var loadBalancers = List.of(
+            new InfrastructureComponents.LoadBalancer("lb-web", "web", "application", List.of()),
+            new InfrastructureComponents.LoadBalancer("lb-idle", "idle", "network", List.of()));
+        var targetGroups = List.of(
+            new AwsInfrastructureService.TargetGroupAttachment("tg-web", true, List.of("lb-web")),
+            new AwsInfrastructureService.TargetGroupAttachment("tg-api", true, List.of("lb-web")),
+            new AwsInfrastructureService.TargetGroupAttachment("tg-ip", false, List.of("lb-web")));
+
+        var executor = Executors.newVirtualThreadPerTaskExecutor();
+        try (var fanOut = new FanOut(executor, new Semaphore(2), Duration.ofSeconds(5))) {
+            var attached = service.attachTargets(fanOut, elb, "us-east-1", loadBalancers, targetGroups);
+
+            assertEquals(List.of("tg-web", "tg-api", "tg-ip"), attached.get(0).targetGroups());
+            assertEquals(List.of("i-1", "i-2", "i-3"), attached.get(0).targetInstanceIds());
+            assertEquals(List.of(), attached.get(1).targetGroups());
+            assertEquals(List.of(), attached.get(1).targetInstanceIds());
+        } finally {
+            executor.shutdownNow();
+        }
+        // IP targets are not instances, so their group is never looked up
+        verify(elb, times(2)).describeTargetHealth(any(DescribeTargetHealthRequest.class));
+    }
+
+    @Test
+    void shouldCorrelateAsgSecurityGroupsFromInstances() {
+        var asg = new InfrastructureComponents.AutoScalingGroup("web-asg", List.of("i-1", "i-2"), List.of());
+        var instances = List.of(
+            new InfrastructureComponents.Instance("i-1", "t3.micro", List.of("sg-web", "sg-ssh")),
+            new InfrastructureComponents.Instance("i-2", "t3.micro", List.of("sg-web")),
+            new InfrastructureComponents.Instance("i-3", "t3.micro", List.of("sg-db")));
+
+        var correlated = AwsInfrastructureService.correlateSecurityGroups(List.of(asg), instances);
+
+        assertEquals(List.of("sg-web", "sg-ssh"), correlated.get(0).securityGroups());
+        assertEquals(List.of("i-1", "i-2"), correlated.get(0).instanceIds());
+    }
+
+    @Test
+    void shouldKeepInstanceListOrderWhenCorrelating() {
+        var asg = new InfrastructureComponents.AutoScalingGroup("app-asg", List.of("i-3", "i-missing", "i-1", "i-3"), List.of());
+        var instances = List.of(
+            new InfrastructureComponents.Instance("i-1", "t3.micro", List.of("sg-app")),
+            new InfrastructureComponents.Instance("i-2", "t3.micro", List.of("sg-web")),
+            new InfrastructureComponents.Instance("i-3", "t3.micro", List.of("sg-db", "sg-app")));
+
+        var correlated = AwsInfrastructureService.correlateSecurityGroups(List.of(asg), instances);
+
+        // Instances outside the VPC are skipped, and security groups follow the instance list, not the ASG's
+        assertEquals(List.of("sg-app", "sg-db"), correlated.get(0).securityGroups());
+    }
+
+    @Test
+    void shouldSkipLoadBalancersDeletedSinceTheirInterfacesWereListed() {
+        var elb = mock(ElasticLoadBalancingV2Client.class);
+        when(elb.describeLoadBalancers(any(DescribeLoadBalancersRequest.class))).thenAnswer(call -> {
+            var names = call.getArgument(0, DescribeLoadBalancersRequest.class).names();
+            if (names.contains("gone")) {
+                throw LoadBalancerNotFoundException.builder().message("One or more load balancers not found").build();
+            }
+            return DescribeLoadBalancersResponse.builder()
+                .loadBalancers(names.stream().map(name -> LoadBalancer.builder().loadBalancerName(name).build()).toList())
+                .build();
+        });
+
+        var found = AwsInfrastructureService.describeLoadBalancers(elb, List.of("api", "gone", "web"));
+
+        assertEquals(List.of("api", "web"), found.stream().map(LoadBalancer::loadBalancerName).toList());
+        // The batch, then each name on its own
+        verify(elb, times(4)).describeLoadBalancers(any(DescribeLoadBalancersRequest.class));
+    }
+
+    @Test
+    void shouldNameLoadBalancersFromTheirNetworkInterfaces() {
+        assertEquals("my-alb", AwsInfrastructureService.loadBalancerName("ELB app/my-alb/50dc6c495c0c9188"));
+        assertEquals("my-nlb", AwsInfrastructureService.loadBalancerName("ELB net/my-nlb/a1b2c3d4e5f60708"));
+        assertNull(AwsInfrastructureService.loadBalancerName("ELB my-classic-elb"));
+        assertNull(AwsInfrastructureService.loadBalancerName("Primary network interface"));
+        assertNull(AwsInfrastructureService.loadBalancerName(null));
+    }
 }
@@ -0,0 +1,39 @@
+package com.sparrowlogic.networkdiagram.service;
+
+import com.sparrowlogic.networkdiagram.model.DiagramSection;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiagramRenderCacheTest {
+
+    @Test
+    void shouldEvictLeastRecentlyUsedPastTheByteBudget() {
+        // Each section below is counted as 2 * (1 + 1 + 100 + 1) + 128 = 334 bytes
+        var cache = new DiagramRenderCache(1000);
+        var text = "x".repeat(100);
+
+        cache.get("a", () -> new DiagramSection("a", "a", text, "", false, "a"));
+        cache.get("b", () -> new DiagramSection("b", "b", text, "", false, "b"));
+        cache.get("a", () -> fail("a should be cached"));
+        cache.get("c", () -> new DiagramSection("c", "c", text, "", false, "c"));
+
+        var stats = cache.stats();
+        assertEquals(2, stats.size());
+        assertEquals(1, stats.evictions());
+        assertEquals(668, stats.bytes());
+        cache.get("a", () -> fail("a was used recently and should have survived"));
+        assertSame(text, cache.get("b", () -> new DiagramSection("b", "b", text, "", false, "b")).text());
+        assertEquals(4, cache.stats().misses());
+    }
+
+    @Test
+    void shouldNotCacheSectionsLargerThanTheBudget() {
+        var cache = new DiagramRenderCache(100);
+
+        var section = cache.get("a", () -> new DiagramSection("a", "a", "x".repeat(100), "", false, "a"));
+
+        assertEquals("a", section.hash());
+        assertEquals(0, cache.stats().size());
+    }
+}
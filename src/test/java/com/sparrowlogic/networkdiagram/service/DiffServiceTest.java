@@ -0,0 +1,111 @@
+package com.sparrowlogic.networkdiagram.service;
+
+import com.sparrowlogic.networkdiagram.model.DiagramSection;
+import com.sparrowlogic.networkdiagram.model.InfrastructureComponents;
+import com.sparrowlogic.networkdiagram.model.InventoryDiff;
+import com.sparrowlogic.networkdiagram.model.InventoryKey;
+import com.sparrowlogic.networkdiagram.model.SecurityGroupRule;
+import com.sparrowlogic.networkdiagram.snapshot.SnapshotStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class DiffServiceTest {
+
+    private static final InventoryKey KEY = new InventoryKey("prod", "us-east-1", "vpc-123");
+    private static final Instant BEFORE = Instant.parse("2024-01-31T12:00:00Z");
+    private static final Instant AFTER = Instant.parse("2024-01-31T12:05:00Z");
+
+    private final InfrastructureSource source = mock(InfrastructureSource.class);
+    private final SnapshotStore snapshotStore = mock(SnapshotStore.class);
+    private final InfrastructureCache infrastructureCache =
+        new InfrastructureCache(source, snapshotStore, Duration.ofMinutes(1), Duration.ofMinutes(5), 10);
+    private final InventoryIndexes indexes = new InventoryIndexes(8);
+    private final MermaidDiagramService mermaidService =
+        new MermaidDiagramService(new DiagramRenderCache(1 << 20), indexes, new SimpleMeterRegistry(), 1, 3, 25);
+    private final DiffService service = new DiffService(infrastructureCache, indexes, mermaidService);
+
+    private static InfrastructureComponents inventory(SecurityGroupRule... webRules) {
+        return new InfrastructureComponents(
+            List.of(
+                new InfrastructureComponents.SecurityGroup("sg-web", "web", List.of(webRules)),
+                new InfrastructureComponents.SecurityGroup("sg-vpn", "vpn", List.of(
+                    new SecurityGroupRule("udp", 1194, 1194, "198.51.100.1/32", "ingress")))),
+            List.of(),
+            List.of(new InfrastructureComponents.Instance("i-web", "t3.micro", List.of("sg-web"))),
+            List.of(), "vpc-123", List.of());
+    }
+
+    private static InfrastructureComponents withLoadBalancer(InfrastructureComponents inventory, String... targets) {
+        var lb = new InfrastructureComponents.LoadBalancer("arn:lb/web", "web-lb", "application", List.of("tg-web"), List.of(targets));
+        return new InfrastructureComponents(inventory.securityGroups(), List.of(lb), inventory.instances(),
+            inventory.autoScalingGroups(), inventory.vpcId(), inventory.subnetIds());
+    }
+
+    private static SecurityGroupRule ingress(int port, String cidr) {
+        return new SecurityGroupRule("tcp", port, port, cidr, "ingress");
+    }
+
+    @Test
+    void shouldRedrawOnlyTheSectionsAChangeTouches() {
+        when(snapshotStore.load(KEY, BEFORE)).thenReturn(Optional.of(inventory(ingress(443, "0.0.0.0/0"), ingress(22, "203.0.113.7/32"))));
+        when(snapshotStore.load(KEY, AFTER)).thenReturn(Optional.of(inventory(ingress(443, "0.0.0.0/0"), ingress(8443, "0.0.0.0/0"),
+            ingress(22, "192.0.2.10/32"))));
+
+        var diff = service.diff("prod", "us-east-1", "vpc-123", BEFORE, AFTER, false);
+
+        assertEquals(1, diff.changes().size());
+        assertEquals(List.of("192.0.2.10/32"), diff.addedCidrs());
+        assertEquals(List.of("203.0.113.7/32"), diff.removedCidrs());
+        assertEquals(List.of("0.0.0.0/0"), diff.changedCidrs());
+        // 198.51.100.1/32 is untouched and not redrawn
+        assertEquals(List.of("192.0.2.10/32", "0.0.0.0/0"), diff.sections().stream().map(DiagramSection::cidr).toList());
+        assertTrue(diff.sections().get(1).text().contains("8443"));
+    }
+
+    @Test
+    void shouldRedrawTheSectionsOfARetargetedLoadBalancer() {
+        var rules = new SecurityGroupRule[] {ingress(443, "0.0.0.0/0")};
+        when(snapshotStore.load(KEY, BEFORE)).thenReturn(Optional.of(withLoadBalancer(inventory(rules))));
+        when(snapshotStore.load(KEY, AFTER)).thenReturn(Optional.of(withLoadBalancer(inventory(rules), "i-web")));
+
+        var diff = service.diff("prod", "us-east-1", "vpc-123", BEFORE, AFTER, false);
+
+        assertEquals(List.of(InventoryDiff.Kind.LOAD_BALANCER), diff.changes().stream().map(InventoryDiff.Change::kind).toList());
+        assertEquals(List.of("0.0.0.0/0"), diff.changedCidrs());
+        // The VPN section does not reach i-web and is not redrawn
+        assertEquals(List.of("0.0.0.0/0"), diff.sections().stream().map(DiagramSection::cidr).toList());
+        assertTrue(diff.sections().get(0).text().contains("web-lb"));
+    }
+
+    @Test
+    void shouldCompareWithTheCurrentInventoryAndReuseParsedSnapshots() {
+        var before = inventory(ingress(443, "0.0.0.0/0"));
+        when(snapshotStore.load(KEY, BEFORE)).thenReturn(Optional.of(before));
+        when(source.getInfrastructure("prod", "us-east-1", "vpc-123")).thenReturn(inventory(ingress(443, "0.0.0.0/0")));
+
+        var diff = service.diff("prod", "us-east-1", "vpc-123", BEFORE, null, false);
+        service.diff("prod", "us-east-1", "vpc-123", BEFORE, null, false);
+
+        assertNull(diff.to());
+        assertTrue(diff.changes().isEmpty());
+        assertTrue(diff.sections().isEmpty());
+        verify(snapshotStore, times(1)).load(KEY, BEFORE);
+    }
+
+    @Test
+    void shouldRejectUnknownSnapshots() {
+        when(snapshotStore.load(KEY, BEFORE)).thenReturn(Optional.empty());
+
+        var error = assertThrows(IllegalArgumentException.class,
+            () -> service.diff("prod", "us-east-1", "vpc-123", BEFORE, null, false));
+        assertTrue(error.getMessage().contains("No snapshot taken at"));
+    }
+}
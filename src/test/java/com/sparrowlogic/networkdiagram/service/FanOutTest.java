@@ -0,0 +1,77 @@
+package com.sparrowlogic.networkdiagram.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FanOutTest {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldRunCallsConcurrently() {
+        var started = new CountDownLatch(2);
+        try (var fanOut = new FanOut(executor, new Semaphore(2), Duration.ofSeconds(5))) {
+            var first = fanOut.fork("first", () -> {
+                started.countDown();
+                return started.await(5, TimeUnit.SECONDS);
+            });
+            var second = fanOut.fork("second", () -> {
+                started.countDown();
+                return started.await(5, TimeUnit.SECONDS);
+            });
+
+            assertTrue(fanOut.join(first));
+            assertTrue(fanOut.join(second));
+        }
+    }
+
+    @Test
+    void shouldCancelSiblingsAndReportFirstFailure() {
+        var interrupted = new CountDownLatch(1);
+        try (var fanOut = new FanOut(executor, new Semaphore(4), Duration.ofSeconds(5))) {
+            var slow = fanOut.fork("slow", () -> {
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw e;
+                }
+                return "done";
+            });
+            fanOut.fork("failing", () -> {
+                throw new IllegalArgumentException("boom");
+            });
+
+            var error = assertThrows(IllegalArgumentException.class, () -> fanOut.join(slow));
+            assertEquals("boom", error.getMessage());
+            assertDoesNotThrow(() -> assertTrue(interrupted.await(5, TimeUnit.SECONDS)));
+        }
+    }
+
+    @Test
+    void shouldTimeOutSlowCalls() {
+        try (var fanOut = new FanOut(executor, new Semaphore(1), Duration.ofMillis(50))) {
+            var slow = fanOut.fork("instances", () -> {
+                Thread.sleep(10_000);
+                return "done";
+            });
+
+            var error = assertThrows(IllegalStateException.class, () -> fanOut.join(slow));
+            assertTrue(error.getMessage().contains("instances"));
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.sparrowlogic.networkdiagram.service;
+
+import com.sparrowlogic.networkdiagram.model.InfrastructureComponents;
+import com.sparrowlogic.networkdiagram.model.InventoryKey;
+import com.sparrowlogic.networkdiagram.snapshot.SnapshotStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class InfrastructureCacheTest {
+
+    private final AwsInfrastructureService awsService = mock(AwsInfrastructureService.class);
+
+    @TempDir
+    Path snapshotDir;
+
+    private SnapshotStore snapshotStore;
+
+    @BeforeEach
+    void setUp() {
+        snapshotStore = new SnapshotStore(snapshotDir, false, 5);
+    }
+
+    private static InfrastructureComponents components(String vpcId) {
+        return new InfrastructureComponents(List.of(), List.of(), List.of(), List.of(), vpcId, List.of());
+    }
+
+    @Test
+    void shouldServeRepeatRequestsFromCache() {
+        var cache = new InfrastructureCache(awsService, snapshotStore, Duration.ofMinutes(1), Duration.ofMinutes(5), 10);
+        when(awsService.getInfrastructure("prod", "us-east-1", "vpc-1")).thenReturn(components("vpc-1"));
+
+        var first = cache.get("prod", "us-east-1", "vpc-1", false);
+        var second = cache.get("prod", "us-east-1", "vpc-1", false);
+
+        assertSame(first, second);
+        verify(awsService, times(1)).getInfrastructure("prod", "us-east-1", "vpc-1");
+        assertEquals(1, cache.stats().hits());
+        assertEquals(1, cache.stats().misses());
+    }
+
+    @Test
+    void shouldBypassCacheOnRefresh() {
+        var cache = new InfrastructureCache(awsService, snapshotStore, Duration.ofMinutes(1), Duration.ofMinutes(5), 10);
+        when(awsService.getInfrastructure("prod", "us-east-1", "vpc-1"))
+            .thenReturn(components("vpc-1"), components("vpc-1"));
+
+        cache.get("prod", "us-east-1", "vpc-1", false);
+        cache.get("prod", "us-east-1", "vpc-1", true);
+
+        verify(awsService, times(2)).getInfrastructure("prod", "us-east-1", "vpc-1");
+        assertEquals(1, cache.stats().bypasses());
+    }
+
+    @Test
+    void shouldServeStaleEntryWhileRevalidating() throws Exception {
+        var cache = new InfrastructureCache(awsService, snapshotStore, Duration.ZERO, Duration.ofMinutes(5), 10);
+        var stale = components("vpc-1");
+        var fresh = components("vpc-1");
+        var refreshed = new CountDownLatch(1);
+        when(awsService.getInfrastructure("prod", "us-east-1", "vpc-1")).thenReturn(stale).thenAnswer(invocation -> {
+            refreshed.countDown();
+            return fresh;
+        });
+
+        cache.get("prod", "us-east-1", "vpc-1", false);
+        assertSame(stale, cache.get("prod", "us-east-1", "vpc-1", false));
+
+        assertTrue(refreshed.await(5, TimeUnit.SECONDS));
+        assertEquals(1, cache.stats().staleHits());
+    }
+
+    @Test
+    void shouldCoalesceConcurrentLoads() throws Exception {
+        var cache = new InfrastructureCache(awsService, snapshotStore, Duration.ofMinutes(1), Duration.ofMinutes(5), 10);
+        var calls = new AtomicInteger();
+        var release = new CountDownLatch(1);
+        when(awsService.getInfrastructure("prod", "us-east-1", "vpc-1")).thenAnswer(invocation -> {
+            calls.incrementAndGet();
+            release.await(5, TimeUnit.SECONDS);
+            return components("vpc-1");
+        });
+
+        try (var executor = Executors.newFixedThreadPool(5)) {
+            var futures = new ArrayList<Future<InfrastructureComponents>>();
+            for (int i = 0; i < 5; i++) {
+                futures.add(executor.submit(() -> cache.get("prod", "us-east-1", "vpc-1", false)));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            var first = futures.get(0).get(5, TimeUnit.SECONDS);
+            for (var future : futures) {
+                assertSame(first, future.get(5, TimeUnit.SECONDS));
+            }
+        }
+
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    void shouldEvictOldestEntryWhenFull() {
+        var cache = new InfrastructureCache(awsService, snapshotStore, Duration.ofMinutes(1), Duration.ofMinutes(5), 1);
+        when(awsService.getInfrastructure(eq("prod"), eq("us-east-1"), anyString()))
+            .thenAnswer(invocation -> components(invocation.getArgument(2)));
+
+        cache.get("prod", "us-east-1", "vpc-1", false);
+        cache.get("prod", "us-east-1", "vpc-2", false);
+
+        assertEquals(1, cache.stats().size());
+        assertEquals(1, cache.stats().evictions());
+    }
+
+    @Test
+    void shouldPersistLoadedSnapshots() throws Exception {
+        snapshotStore = new SnapshotStore(snapshotDir, true, 5);
+        var cache = new InfrastructureCache(awsService, snapshotStore, Duration.ofMinutes(1), Duration.ofMinutes(5), 10);
+        when(awsService.getInfrastructure("prod", "us-east-1", "vpc-1")).thenReturn(components("vpc-1"));
+
+        cache.get("prod", "us-east-1", "vpc-1", false);
+
+        var key = new InventoryKey("prod", "us-east-1", "vpc-1");
+        for (int i = 0; i < 50 && snapshotStore.list(key).isEmpty(); i++) {
+            Thread.sleep(20);
+        }
+        assertEquals(1, snapshotStore.list(key).size());
+    }
+
+    @Test
+    void shouldWarmStartFromRecentSnapshot() {
+        snapshotStore = new SnapshotStore(snapshotDir, true, 5);
+        snapshotStore.save(new InventoryKey("prod", "us-east-1", "vpc-1"), components("vpc-1"));
+        var cache = new InfrastructureCache(awsService, snapshotStore, Duration.ofMinutes(1), Duration.ofMinutes(5), 10);
+
+        var loaded = cache.get("prod", "us-east-1", "vpc-1", false);
+
+        assertEquals("vpc-1", loaded.vpcId());
+        verify(awsService, never()).getInfrastructure(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void shouldNotDecodeSnapshotsOlderThanTheStaleWindow() {
+        var key = new InventoryKey("prod", "us-east-1", "vpc-1");
+        snapshotStore = spy(new SnapshotStore(snapshotDir, true, 5));
+        doReturn(List.of(Instant.now().minus(Duration.ofHours(1)))).when(snapshotStore).list(key);
+        when(awsService.getInfrastructure("prod", "us-east-1", "vpc-1")).thenReturn(components("vpc-1"));
+        var cache = new InfrastructureCache(awsService, snapshotStore, Duration.ofMinutes(1), Duration.ofMinutes(5), 10);
+
+        cache.get("prod", "us-east-1", "vpc-1", false);
+
+        verify(snapshotStore, never()).load(any(), any());
+        verify(awsService).getInfrastructure("prod", "us-east-1", "vpc-1");
+    }
+
+    @Test
+    void shouldRedrawSnapshotsWithoutCallingAws() {
+        snapshotStore = new SnapshotStore(snapshotDir, true, 5);
+        var takenAt = snapshotStore.save(new InventoryKey("prod", "us-east-1", "vpc-1"), components("vpc-1"));
+        var cache = new InfrastructureCache(awsService, snapshotStore, Duration.ofMinutes(1), Duration.ofMinutes(5), 10);
+
+        assertEquals("vpc-1", cache.get("prod", "us-east-1", "vpc-1", true, takenAt).vpcId());
+        assertThrows(IllegalArgumentException.class,
+            () -> cache.get("prod", "us-east-1", "vpc-1", false, takenAt.minusSeconds(60)));
+        verify(awsService, never()).getInfrastructure(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void shouldDecodeEachSnapshotOnce() {
+        var key = new InventoryKey("prod", "us-east-1", "vpc-1");
+        snapshotStore = spy(new SnapshotStore(snapshotDir, true, 5));
+        var takenAt = snapshotStore.save(key, components("vpc-1"));
+        var cache = new InfrastructureCache(awsService, snapshotStore, Duration.ofMinutes(1), Duration.ofMinutes(5), 10);
+
+        var first = cache.get("prod", "us-east-1", "vpc-1", false, takenAt);
+        var second = cache.get("prod", "us-east-1", "vpc-1", false, takenAt);
+
+        assertSame(first, second);
+        verify(snapshotStore, times(1)).load(key, takenAt);
+    }
+
+    @Test
+    void shouldPropagateLoadFailures() {
+        var cache = new InfrastructureCache(awsService, snapshotStore, Duration.ofMinutes(1), Duration.ofMinutes(5), 10);
+        when(awsService.getInfrastructure("prod", "us-east-1", "vpc-1")).thenThrow(new RuntimeException("AWS error"));
+
+        var error = assertThrows(RuntimeException.class, () -> cache.get("prod", "us-east-1", "vpc-1", false));
+        assertEquals("AWS error", error.getMessage());
+    }
+}
@@ -0,0 +1,63 @@
+package com.sparrowlogic.networkdiagram.service;
+
+import com.sparrowlogic.networkdiagram.model.InfrastructureComponents;
+import com.sparrowlogic.networkdiagram.model.SecurityGroupRule;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InventoryIndexesTest {
+
+    private static InfrastructureComponents inventory() {
+        var sg = new InfrastructureComponents.SecurityGroup("sg-web", "web", List.of(
+            new SecurityGroupRule("tcp", 443, 443, "0.0.0.0/0", "ingress")));
+        return new InfrastructureComponents(List.of(sg), List.of(), List.of(), List.of(), "vpc-123", List.of());
+    }
+
+    @Test
+    void shouldBuildEachIndexOncePerInventory() throws Exception {
+        var indexes = new InventoryIndexes(8);
+        var components = inventory();
+
+        var tasks = new ArrayList<Callable<Object>>();
+        for (int i = 0; i < 16; i++) {
+            tasks.add(() -> indexes.of(components).exposure());
+        }
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var first = executor.invokeAll(tasks).get(0).get();
+            for (var result : executor.invokeAll(tasks)) {
+                assertSame(first, result.get());
+            }
+        }
+        assertSame(indexes.of(components).fingerprint(), indexes.of(components).fingerprint());
+        assertSame(indexes.of(components).attackPaths(), indexes.of(components).attackPaths());
+    }
+
+    @Test
+    void shouldMatchInventoriesByIdentity() {
+        var indexes = new InventoryIndexes(8);
+
+        // Equal but separately decoded inventories are not assumed to be the same one
+        assertNotSame(indexes.of(inventory()), indexes.of(inventory()));
+    }
+
+    @Test
+    void shouldForgetTheLeastRecentlyUsedInventory() {
+        var indexes = new InventoryIndexes(2);
+        var first = inventory();
+        var second = inventory();
+        var firstIndexes = indexes.of(first);
+        var secondIndexes = indexes.of(second);
+
+        indexes.of(first);
+        indexes.of(inventory());
+
+        assertSame(firstIndexes, indexes.of(first));
+        assertNotSame(secondIndexes, indexes.of(second));
+    }
+}
@@ -0,0 +1,204 @@
+package com.sparrowlogic.networkdiagram.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JobServiceTest {
+
+    private JobService jobs = new JobService(1, 1, Duration.ofMinutes(5), 100);
+
+    @AfterEach
+    void tearDown() {
+        jobs.shutdown();
+    }
+
+    private JobService.Status awaitFinished(String id) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            var status = jobs.status(id).orElseThrow();
+            if (status.state().finished()) {
+                return status;
+            }
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        fail("Job " + id + " did not finish");
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Throwable> Object sneakyThrow(Throwable e) throws T {
+        throw (T) e;
+    }
+
+    @Test
+    void shouldRunJobsInTheBackgroundAndKeepTheirResult() throws Exception {
+        var submitted = jobs.submit("test", progress -> {
+            progress.report("crawl", "Fetched 3 security groups");
+            return "done";
+        });
+
+        var finished = awaitFinished(submitted.id());
+
+        assertEquals(JobService.State.SUCCEEDED, finished.state());
+        assertEquals("done", finished.result());
+        assertEquals(List.of("Started", "Fetched 3 security groups", "Succeeded"),
+            finished.events().stream().map(JobService.Event::message).toList());
+    }
+
+    @Test
+    void shouldReportFailuresWithoutAResult() throws Exception {
+        var submitted = jobs.submit("test", progress -> {
+            throw new IllegalStateException("access denied");
+        });
+
+        var finished = awaitFinished(submitted.id());
+
+        assertEquals(JobService.State.FAILED, finished.state());
+        assertEquals("access denied", finished.error());
+        assertNull(finished.result());
+    }
+
+    @Test
+    void shouldReplayMissedEventsThenFollowLiveOnes() throws Exception {
+        var release = new CountDownLatch(1);
+        var submitted = jobs.submit("test", progress -> {
+            progress.report("crawl", "first");
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            progress.report("render", "second");
+            return null;
+        });
+        while (jobs.status(submitted.id()).orElseThrow().events().size() < 2) {
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+
+        var received = Collections.synchronizedList(new ArrayList<String>());
+        var ended = new CountDownLatch(1);
+        // Skips "Started", which the client has already seen
+        assertTrue(jobs.subscribe(submitted.id(), 1, event -> {
+            if (event == null) {
+                ended.countDown();
+            } else {
+                received.add(event.message());
+            }
+        }));
+        release.countDown();
+
+        assertTrue(ended.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("first", "second", "Succeeded"), received);
+        assertFalse(jobs.subscribe("no-such-job", 0, event -> { }));
+    }
+
+    @Test
+    void shouldRejectWorkBeyondTheQueueAndCancelQueuedJobs() throws Exception {
+        var release = new CountDownLatch(1);
+        var running = jobs.submit("test", progress -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return null;
+        });
+        var queued = jobs.submit("test", progress -> "never");
+
+        assertThrows(JobService.JobRejectedException.class, () -> jobs.submit("test", progress -> null));
+
+        assertTrue(jobs.cancel(queued.id()));
+        assertEquals(JobService.State.CANCELLED, jobs.status(queued.id()).orElseThrow().state());
+        assertFalse(jobs.cancel(queued.id()));
+
+        assertTrue(jobs.cancel(running.id()));
+        assertEquals(JobService.State.CANCELLED, awaitFinished(running.id()).state());
+    }
+
+    @Test
+    void shouldForgetFinishedJobsAfterTheRetentionPeriod() throws Exception {
+        jobs.shutdown();
+        jobs = new JobService(1, 1, Duration.ZERO, 100);
+        var submitted = jobs.submit("test", progress -> "done");
+
+        for (int i = 0; i < 500 && jobs.status(submitted.id()).isPresent(); i++) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+
+        assertTrue(jobs.status(submitted.id()).isEmpty());
+    }
+
+    @Test
+    void shouldEvictTheOldestFinishedJobsBeyondTheCap() throws Exception {
+        jobs.shutdown();
+        jobs = new JobService(1, 1, Duration.ofMinutes(5), 2);
+        var ids = new ArrayList<String>();
+        for (int i = 0; i < 3; i++) {
+            var submitted = jobs.submit("test", progress -> "done");
+            awaitFinished(submitted.id());
+            ids.add(submitted.id());
+        }
+
+        jobs.submit("test", progress -> "done");
+
+        assertTrue(jobs.status(ids.get(0)).isEmpty());
+        assertTrue(jobs.status(ids.get(2)).isPresent());
+    }
+
+    @Test
+    void shouldFailJobsThatThrowErrorsOrCheckedExceptions() throws Exception {
+        var overflowed = jobs.submit("test", progress -> {
+            throw new StackOverflowError();
+        });
+        var failed = awaitFinished(overflowed.id());
+        assertEquals(JobService.State.FAILED, failed.state());
+        assertEquals("StackOverflowError", failed.error());
+
+        var received = new ArrayList<JobService.Event>();
+        var sneaky = jobs.submit("test", progress -> sneakyThrow(new IOException("disk full")));
+        awaitFinished(sneaky.id());
+        assertTrue(jobs.subscribe(sneaky.id(), 0, received::add));
+        assertEquals("Failed: disk full", received.get(1).message());
+        assertNull(received.get(2));
+    }
+
+    @Test
+    void shouldKeepTheFinalEventWithinTheEventCap() throws Exception {
+        var submitted = jobs.submit("test", progress -> {
+            for (int i = 0; i < 10_000; i++) {
+                progress.report("crawl", "Step " + i);
+            }
+            return "done";
+        });
+
+        var events = awaitFinished(submitted.id()).events();
+
+        assertEquals(10_000, events.size());
+        assertEquals("Step 1", events.get(0).message());
+        assertEquals("Succeeded", events.get(events.size() - 1).message());
+    }
+
+    @Test
+    void shouldDropListenersThatFailDuringReplay() throws Exception {
+        var submitted = jobs.submit("test", progress -> "done");
+        awaitFinished(submitted.id());
+
+        assertTrue(jobs.subscribe(submitted.id(), 0, event -> {
+            throw new IllegalStateException("Client disconnected");
+        }));
+
+        var received = new ArrayList<JobService.Event>();
+        assertTrue(jobs.subscribe(submitted.id(), 0, received::add));
+        assertEquals(3, received.size());
+        assertNull(received.get(2));
+    }
+}
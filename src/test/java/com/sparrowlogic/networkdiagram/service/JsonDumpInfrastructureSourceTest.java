@@ -0,0 +1,149 @@
+package com.sparrowlogic.networkdiagram.service;
+
+import com.sparrowlogic.networkdiagram.model.InfrastructureComponents;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonDumpInfrastructureSourceTest {
+
+    @TempDir
+    Path dumpDir;
+
+    private Path regionDir;
+    private JsonDumpInfrastructureSource source;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        regionDir = Files.createDirectories(dumpDir.resolve("prod").resolve("us-east-1"));
+        source = new JsonDumpInfrastructureSource(dumpDir);
+
+        write("describe-security-groups.json", """
+            {"SecurityGroups": [
+              {"GroupId": "sg-web", "GroupName": "web", "VpcId": "vpc-1",
+               "IpPermissions": [{"IpProtocol": "tcp", "FromPort": 443, "ToPort": 443,
+                                  "IpRanges": [{"CidrIp": "0.0.0.0/0"}], "Ipv6Ranges": [{"CidrIpv6": "::/0"}]}],
+               "IpPermissionsEgress": [{"IpProtocol": "tcp", "FromPort": 5432, "ToPort": 5432,
+                                        "UserIdGroupPairs": [{"GroupId": "sg-db"}]}]},
+              {"GroupId": "sg-other", "GroupName": "other", "VpcId": "vpc-2", "IpPermissions": []}
+            ]}""");
+        // Two pages, read in name order; unrelated fields and nested objects are skipped
+        write("describe-instances-001.json", """
+            {"Reservations": [
+              {"ReservationId": "r-1", "Groups": [],
+               "Instances": [{"InstanceId": "i-1", "InstanceType": "t3.micro", "VpcId": "vpc-1",
+                              "Tags": [{"Key": "Name", "Value": "web"}], "SecurityGroups": [{"GroupId": "sg-web"}]}]}
+            ], "NextToken": "abc"}""");
+        write("describe-instances-002.json", """
+            {"Reservations": [
+              {"Instances": [{"InstanceId": "i-2", "InstanceType": "t3.small", "VpcId": "vpc-1",
+                              "SecurityGroups": [{"GroupId": "sg-web"}]},
+                             {"InstanceId": "i-3", "InstanceType": "t3.small", "VpcId": "vpc-2",
+                              "SecurityGroups": [{"GroupId": "sg-other"}]}]}
+            ]}""");
+        write("describe-target-groups.json", """
+            {"TargetGroups": [{"TargetGroupArn": "tg-1", "LoadBalancerArns": ["lb-1"]}]}""");
+        write("describe-load-balancers.json", """
+            {"LoadBalancers": [
+              {"LoadBalancerArn": "lb-1", "LoadBalancerName": "public", "Type": "application", "VpcId": "vpc-1"},
+              {"LoadBalancerArn": "lb-2", "LoadBalancerName": "internal", "Type": "network", "VpcId": "vpc-2"}
+            ]}""");
+        write("describe-auto-scaling-groups.json", """
+            {"AutoScalingGroups": [
+              {"AutoScalingGroupName": "web-asg", "Instances": [{"InstanceId": "i-1"}, {"InstanceId": "i-2"}]},
+              {"AutoScalingGroupName": "other-asg", "Instances": [{"InstanceId": "i-3"}]}
+            ]}""");
+    }
+
+    private void write(String name, String json) throws IOException {
+        Files.writeString(regionDir.resolve(name), json);
+    }
+
+    @Test
+    void shouldReadEveryResourceTypeFilteredToTheVpc() {
+        var components = source.getInfrastructure("prod", "us-east-1", "vpc-1");
+
+        assertEquals("vpc-1", components.vpcId());
+        assertEquals(List.of("sg-web"), components.securityGroups().stream().map(InfrastructureComponents.SecurityGroup::id).toList());
+        assertEquals(List.of("i-1", "i-2"), components.instances().stream().map(InfrastructureComponents.Instance::id).toList());
+        assertEquals(List.of("sg-web"), components.instances().get(0).securityGroups());
+
+        assertEquals(1, components.loadBalancers().size());
+        var loadBalancer = components.loadBalancers().get(0);
+        assertEquals("public", loadBalancer.name());
+        assertEquals(List.of("tg-1"), loadBalancer.targetGroups());
+        assertTrue(loadBalancer.targetInstanceIds().isEmpty());
+
+        // other-asg only has instances in vpc-2
+        assertEquals(1, components.autoScalingGroups().size());
+        var asg = components.autoScalingGroups().get(0);
+        assertEquals("web-asg", asg.name());
+        assertEquals(List.of("sg-web"), asg.securityGroups());
+    }
+
+    @Test
+    void shouldExpandEveryRangeAndGroupPairIntoRules() {
+        var rules = source.getInfrastructure("prod", "us-east-1", "vpc-1").securityGroups().get(0).rules();
+
+        assertEquals(3, rules.size());
+        assertEquals(List.of("0.0.0.0/0", "::/0", "sg-db"), rules.stream().map(rule -> rule.source()).toList());
+        assertEquals(443, rules.get(0).fromPort());
+        assertEquals(5432, rules.get(2).toPort());
+        assertNotEquals(rules.get(0).direction(), rules.get(2).direction());
+    }
+
+    @Test
+    void shouldReadEveryVpcWhenNoneIsGiven() {
+        var components = source.getInfrastructure("prod", "us-east-1", null);
+
+        assertEquals(2, components.securityGroups().size());
+        assertEquals(3, components.instances().size());
+        assertEquals(2, components.loadBalancers().size());
+        assertEquals(2, components.autoScalingGroups().size());
+    }
+
+    @Test
+    void shouldListVpcsFromSecurityGroupsWithoutVpcDump() throws IOException {
+        assertEquals(List.of("vpc-1", "vpc-2"), source.vpcIds("prod", "us-east-1"));
+
+        write("describe-vpcs.json", """
+            {"Vpcs": [{"VpcId": "vpc-9"}, {"VpcId": "vpc-1"}]}""");
+        assertEquals(List.of("vpc-1", "vpc-9"), source.vpcIds("prod", "us-east-1"));
+    }
+
+    @Test
+    void shouldTreatMissingResourceTypesAsEmpty() throws IOException {
+        var empty = Files.createDirectories(dumpDir.resolve("default").resolve("eu-west-1"));
+        Files.writeString(empty.resolve("describe-security-groups.json"), "{\"SecurityGroups\": []}");
+
+        var components = source.getInfrastructure(null, "eu-west-1", "vpc-1");
+
+        assertTrue(components.securityGroups().isEmpty());
+        assertTrue(components.instances().isEmpty());
+        assertTrue(components.loadBalancers().isEmpty());
+        assertTrue(components.autoScalingGroups().isEmpty());
+    }
+
+    @Test
+    void shouldRejectMissingDumpDirectory() {
+        var error = assertThrows(IllegalArgumentException.class, () -> source.getInfrastructure("prod", "ap-south-1", "vpc-1"));
+        assertTrue(error.getMessage().contains("prod/ap-south-1"));
+    }
+
+    @Test
+    void shouldRejectProfilesAndRegionsThatLeaveTheDumpDirectory() {
+        // prod/us-east-1 exists, so these are only rejected for where they point
+        assertThrows(IllegalArgumentException.class, () -> source.getInfrastructure("x/../prod", "us-east-1", "vpc-1"));
+        assertThrows(IllegalArgumentException.class, () -> source.getInfrastructure("../outside", "us-east-1", "vpc-1"));
+        assertThrows(IllegalArgumentException.class, () -> source.getInfrastructure("..", "prod", "vpc-1"));
+        assertThrows(IllegalArgumentException.class, () -> source.vpcIds("prod", "../../etc"));
+        assertThrows(IllegalArgumentException.class, () -> source.vpcIds("prod", "."));
+    }
+}
@@ -1,16 +1,22 @@
 package com.sparrowlogic.networkdiagram.service;
 
+import com.sparrowlogic.networkdiagram.model.DiagramSection;
 import com.sparrowlogic.networkdiagram.model.InfrastructureComponents;
 import com.sparrowlogic.networkdiagram.model.SecurityGroupRule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class MermaidDiagramServiceTest {
 
-    private final MermaidDiagramService service = new MermaidDiagramService();
+    private final MermaidDiagramService service = new MermaidDiagramService(new DiagramRenderCache(1 << 20), new InventoryIndexes(8), new SimpleMeterRegistry(), 1, 3, 25);
 
     @Test
     void shouldGenerateDiagramWithSecurityGroups() {
@@ -25,6 +31,52 @@ class MermaidDiagramServiceTest {
         assertFalse(diagram.isEmpty());
     }
 
+    @Test
+    void shouldDrawAsgsAndStandaloneInstancesBehindExposedGroups() {
+        var sg = new InfrastructureComponents.SecurityGroup("sg-web", "web-sg", List.of(
+            new SecurityGroupRule("tcp", 443, 443, "0.0.0.0/0", "ingress"),
+            new SecurityGroupRule("tcp", 80, 80, "0.0.0.0/0", "ingress")));
+        var asgInstance = new InfrastructureComponents.Instance("i-asg", "t3.micro", List.of("sg-web"));
+        var bastion = new InfrastructureComponents.Instance("i-bastion", "t3.nano", List.of("sg-web"));
+        var asg = new InfrastructureComponents.AutoScalingGroup("web-asg", List.of("i-asg"), List.of("sg-web"));
+        var components = new InfrastructureComponents(List.of(sg), List.of(), List.of(asgInstance, bastion), List.of(asg), "vpc-123", List.of());
+
+        var diagram = service.generateDiagram(components);
+
+        assertTrue(diagram.contains("=== Attack Surface: 0.0.0.0/0 ==="));
+        assertTrue(diagram.contains("CIDR_0_0_0_0_0 -->|\"Port 443-443 (tcp)\"|sg_web"));
+        assertTrue(diagram.contains("CIDR_0_0_0_0_0 -->|\"Port 80-80 (tcp)\"|sg_web"));
+        assertTrue(diagram.contains("sg_web --> web_asg"));
+        assertTrue(diagram.contains("sg_web --> i-bastion"));
+        assertFalse(diagram.contains("sg_web --> i-asg"));
+        assertEquals(1, diagram.split("class web_asg asg", -1).length - 1);
+
+        var svg = service.generateSections(components).get(0).svg();
+        assertTrue(svg.contains(">ASG: web-asg</text>"));
+        assertTrue(svg.contains(">i-bastion (t3.nano)</text>"));
+        assertTrue(svg.contains(">Port 443-443 (tcp)</tspan>"));
+    }
+
+    @Test
+    void shouldDrawLoadBalancersInFrontOfTheirExposedTargets() {
+        var sg = new InfrastructureComponents.SecurityGroup("sg-web", "web-sg", List.of(
+            new SecurityGroupRule("tcp", 443, 443, "0.0.0.0/0", "ingress")));
+        var asgInstance = new InfrastructureComponents.Instance("i-asg", "t3.micro", List.of("sg-web"));
+        var bastion = new InfrastructureComponents.Instance("i-bastion", "t3.nano", List.of("sg-web"));
+        var asg = new InfrastructureComponents.AutoScalingGroup("web-asg", List.of("i-asg"), List.of("sg-web"));
+        var lb = new InfrastructureComponents.LoadBalancer("arn:aws:elasticloadbalancing:us-east-1:1:loadbalancer/app/web-lb/1",
+            "web-lb", "application", List.of("tg-web"), List.of("i-asg", "i-elsewhere"));
+        var components = new InfrastructureComponents(List.of(sg), List.of(lb), List.of(asgInstance, bastion), List.of(asg),
+            "vpc-123", List.of());
+
+        var section = service.generateSections(components).get(0);
+
+        assertTrue(section.text().contains("LB_web_lb[\"web-lb (application)\"]"));
+        assertTrue(section.text().contains("LB_web_lb --> web_asg"));
+        assertFalse(section.text().contains("LB_web_lb --> i-bastion"));
+        assertTrue(section.svg().contains(">web-lb (application)</text>"));
+    }
+
     @Test
     void shouldGenerateDiagramWithLoadBalancers() {
         var lb = new InfrastructureComponents.LoadBalancer("arn:aws:elasticloadbalancing::loadbalancer/app/test-lb", "test-lb", "application", List.of());
@@ -34,4 +86,125 @@ class MermaidDiagramServiceTest {
 
         assertTrue(diagram.contains("No external CIDR exposures found"));
     }
+
+    @Test
+    void shouldEmitSectionsInAddressOrderWhateverTheRuleOrder() {
+        var rules = new ArrayList<SecurityGroupRule>();
+        for (int i = 0; i < 40; i++) {
+            rules.add(new SecurityGroupRule("tcp", 22, 22, "203.0.113." + i + "/32", "ingress"));
+        }
+        rules.add(new SecurityGroupRule("tcp", 443, 443, "::/0", "ingress"));
+        rules.add(new SecurityGroupRule("tcp", 443, 443, "0.0.0.0/0", "ingress"));
+        Collections.shuffle(rules, new Random(7));
+        var sg = new InfrastructureComponents.SecurityGroup("sg-web", "web-sg", rules);
+        var components = new InfrastructureComponents(List.of(sg), List.of(), List.of(), List.of(), "vpc-123", List.of());
+
+        var parallel = new MermaidDiagramService(new DiagramRenderCache(1 << 20), new InventoryIndexes(8), new SimpleMeterRegistry(), 4, 3, 25);
+        try {
+            var sections = parallel.generateSections(components);
+
+            assertEquals(service.generateSections(components), sections);
+            assertEquals("0.0.0.0/0", sections.get(0).cidr());
+            assertEquals("203.0.113.0/32", sections.get(1).cidr());
+            assertEquals("203.0.113.2/32", sections.get(3).cidr());
+            assertEquals("203.0.113.10/32", sections.get(11).cidr());
+            assertEquals("::/0", sections.get(sections.size() - 1).cidr());
+            // The paginated page lists the same sections in the same order without drawing them
+            assertEquals(sections.stream().map(DiagramSection::cidr).toList(), service.sectionCidrs(components));
+        } finally {
+            parallel.shutdown();
+        }
+    }
+
+    @Test
+    void shouldReuseRenderedSectionsWhileTheirInputsAreUnchanged() {
+        var cache = new DiagramRenderCache(1 << 20);
+        var cached = new MermaidDiagramService(cache, new InventoryIndexes(8), new SimpleMeterRegistry(), 1, 3, 25);
+        var sg = new InfrastructureComponents.SecurityGroup("sg-web", "web-sg", List.of(
+            new SecurityGroupRule("tcp", 443, 443, "0.0.0.0/0", "ingress"),
+            new SecurityGroupRule("tcp", 22, 22, "203.0.113.7/32", "ingress")));
+        var components = new InfrastructureComponents(List.of(sg), List.of(), List.of(), List.of(), "vpc-123", List.of());
+
+        var first = cached.generateSections(components);
+        var second = cached.generateSections(components);
+
+        assertEquals(first, second);
+        assertEquals(2, cache.stats().misses());
+        assertEquals(2, cache.stats().hits());
+
+        // Opening SSH to a different host leaves the 0.0.0.0/0 section untouched
+        var changed = new InfrastructureComponents(List.of(new InfrastructureComponents.SecurityGroup("sg-web", "web-sg", List.of(
+            new SecurityGroupRule("tcp", 443, 443, "0.0.0.0/0", "ingress"),
+            new SecurityGroupRule("tcp", 22, 22, "203.0.113.8/32", "ingress")))), List.of(), List.of(), List.of(), "vpc-123", List.of());
+        var third = cached.generateSections(changed);
+
+        assertEquals(first.get(0).hash(), third.get(0).hash());
+        assertNotEquals(MermaidDiagramService.reportHash(first), MermaidDiagramService.reportHash(third));
+    }
+
+    @Test
+    void shouldPredictSectionHashesWithoutRendering() {
+        var sg = new InfrastructureComponents.SecurityGroup("sg-web", "web-sg", List.of(
+            new SecurityGroupRule("tcp", 443, 443, "0.0.0.0/0", "ingress")));
+        var components = new InfrastructureComponents(List.of(sg), List.of(), List.of(), List.of(), "vpc-123", List.of());
+
+        assertEquals(service.generateSection(components, "0.0.0.0/0", false).map(DiagramSection::hash),
+            service.sectionHash(components, "0.0.0.0/0", false));
+        assertEquals(service.generateSection(components, "0.0.0.0/0", true).map(DiagramSection::hash),
+            service.sectionHash(components, "0.0.0.0/0", true));
+        assertEquals(Optional.empty(), service.sectionHash(components, "198.51.100.0/24", false));
+    }
+
+    @Test
+    void shouldFoldWideExposuresUnlessDetailIsRequested() {
+        var rules = new ArrayList<SecurityGroupRule>();
+        for (int port = 8000; port < 8040; port++) {
+            rules.add(new SecurityGroupRule("tcp", port, port, "0.0.0.0/0", "ingress"));
+        }
+        var sg = new InfrastructureComponents.SecurityGroup("sg-web", "web-sg", rules);
+        var instances = new ArrayList<InfrastructureComponents.Instance>();
+        for (int i = 0; i < 200; i++) {
+            instances.add(new InfrastructureComponents.Instance("i-" + i, "t3.micro", List.of("sg-web")));
+        }
+        var components = new InfrastructureComponents(List.of(sg), List.of(), instances, List.of(), "vpc-123", List.of());
+
+        var reduced = service.generateSections(components, false).get(0);
+        var detailed = service.generateSections(components, true).get(0);
+
+        assertTrue(reduced.reduced());
+        assertTrue(reduced.text().contains("CIDR_0_0_0_0_0 -->|\"Port 8000-8039 (tcp)\"|sg_web"));
+        assertTrue(reduced.text().contains("group_i-0[\"200 instances\"]"));
+        assertFalse(reduced.text().contains("i-199"));
+        assertFalse(detailed.reduced());
+        assertTrue(detailed.text().contains("i-199"));
+        assertNotEquals(reduced.hash(), detailed.hash());
+    }
+
+    @Test
+    void shouldNotFlagSectionsWhoseRulesWereOnlyReordered() {
+        var sg = new InfrastructureComponents.SecurityGroup("sg-web", "web-sg", List.of(
+            new SecurityGroupRule("tcp", 443, 443, "0.0.0.0/0", "ingress"),
+            new SecurityGroupRule("tcp", 22, 22, "0.0.0.0/0", "ingress")));
+        var components = new InfrastructureComponents(List.of(sg), List.of(), List.of(), List.of(), "vpc-123", List.of());
+
+        assertFalse(service.generateSections(components, false).get(0).reduced());
+    }
+
+    @Test
+    void shouldRecordBuildTimeAndSizeForRenderedSections() {
+        var registry = new SimpleMeterRegistry();
+        var metered = new MermaidDiagramService(new DiagramRenderCache(1 << 20), new InventoryIndexes(8), registry, 1, 3, 25);
+        var sg = new InfrastructureComponents.SecurityGroup("sg-web", "web-sg", List.of(
+            new SecurityGroupRule("tcp", 443, 443, "0.0.0.0/0", "ingress")));
+        var components = new InfrastructureComponents(List.of(sg), List.of(), List.of(), List.of(), "vpc-123", List.of());
+
+        metered.generateSections(components);
+        metered.generateSections(components);
+
+        // The second report is served from the render cache, so only one build is recorded
+        assertEquals(1, registry.get("diagram.section.build").tag("view", "reduced").timer().count());
+        assertEquals(2, registry.get("diagram.section.nodes").summary().totalAmount());
+        assertEquals(1, registry.get("diagram.section.edges").summary().totalAmount());
+        assertTrue(registry.get("diagram.section.bytes").summary().max() > 0);
+    }
 }
@@ -0,0 +1,114 @@
+package com.sparrowlogic.networkdiagram.service;
+
+import com.sparrowlogic.networkdiagram.model.InfrastructureComponents;
+import com.sparrowlogic.networkdiagram.model.SecurityGroupRule;
+import com.sparrowlogic.networkdiagram.model.SweepReport;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SweepServiceTest {
+
+    private final AwsInfrastructureService awsService = mock(AwsInfrastructureService.class);
+    private final InfrastructureCache infrastructureCache = mock(InfrastructureCache.class);
+    private final MermaidDiagramService mermaidService =
+        new MermaidDiagramService(new DiagramRenderCache(1 << 20), new InventoryIndexes(8), new SimpleMeterRegistry(), 1, 3, 25);
+
+    private static InfrastructureComponents exposing(String vpcId, String... cidrs) {
+        var rules = new ArrayList<SecurityGroupRule>();
+        for (var cidr : cidrs) {
+            rules.add(new SecurityGroupRule("tcp", 443, 443, cidr, "ingress"));
+        }
+        var sg = new InfrastructureComponents.SecurityGroup("sg-" + vpcId, "web", rules);
+        return new InfrastructureComponents(List.of(sg), List.of(), List.of(), List.of(), vpcId, List.of());
+    }
+
+    @Test
+    void shouldCombineExposuresAcrossAccountsAndKeepGoingPastFailures() {
+        when(awsService.enabledRegions("prod", "us-east-1")).thenReturn(List.of("eu-west-1", "us-east-1"));
+        when(awsService.enabledRegions("staging", "us-east-1")).thenThrow(new IllegalStateException("expired token"));
+        when(awsService.vpcIds("prod", "us-east-1")).thenReturn(List.of("vpc-a", "vpc-b"));
+        when(awsService.vpcIds("prod", "eu-west-1")).thenThrow(new IllegalStateException("access denied"));
+        when(infrastructureCache.get("prod", "us-east-1", "vpc-a", false)).thenReturn(exposing("vpc-a", "0.0.0.0/0", "203.0.113.7/32"));
+        when(infrastructureCache.get("prod", "us-east-1", "vpc-b", false)).thenReturn(exposing("vpc-b", "0.0.0.0/0"));
+        var service = new SweepService(awsService, infrastructureCache, mermaidService, 4, 2, "us-east-1");
+
+        var progress = Collections.synchronizedList(new ArrayList<SweepReport.Progress>());
+        var report = service.sweep(List.of("prod", "staging"), List.of(), false, progress::add);
+
+        assertEquals(List.of("prod/us-east-1/vpc-a", "prod/us-east-1/vpc-b"),
+            report.vpcs().stream().map(SweepReport.Vpc::location).toList());
+        assertEquals(List.of(
+                new SweepReport.Exposure("0.0.0.0/0", List.of("prod/us-east-1/vpc-a", "prod/us-east-1/vpc-b")),
+                new SweepReport.Exposure("203.0.113.7/32", List.of("prod/us-east-1/vpc-a"))),
+            report.exposures());
+        assertEquals(2, report.failures().size());
+        assertTrue(report.failures().contains(new SweepReport.Failure("staging", null, null, "Region discovery failed: expired token")));
+        assertTrue(report.failures().contains(new SweepReport.Failure("prod", "eu-west-1", null, "access denied")));
+
+        var last = progress.get(progress.size() - 1);
+        assertEquals(2, last.regionsTotal());
+        assertEquals(2, last.regionsDone());
+        assertEquals(2, last.vpcsDone());
+        assertEquals(2, last.failures());
+        service.shutdown();
+    }
+
+    @Test
+    void shouldNotCountEgressOnlyCidrsAsExposures() {
+        var sg = new InfrastructureComponents.SecurityGroup("sg-app", "app", List.of(
+            new SecurityGroupRule("tcp", 443, 443, "203.0.113.7/32", "ingress"),
+            new SecurityGroupRule("-1", 0, 0, "0.0.0.0/0", "egress")));
+        when(awsService.vpcIds("prod", "us-east-1")).thenReturn(List.of("vpc-a"));
+        when(infrastructureCache.get("prod", "us-east-1", "vpc-a", false))
+            .thenReturn(new InfrastructureComponents(List.of(sg), List.of(), List.of(), List.of(), "vpc-a", List.of()));
+        var service = new SweepService(awsService, infrastructureCache, mermaidService, 4, 2, "us-east-1");
+
+        var report = service.sweep(List.of("prod"), List.of("us-east-1"), false, null);
+
+        assertEquals(List.of(new SweepReport.Exposure("203.0.113.7/32", List.of("prod/us-east-1/vpc-a"))), report.exposures());
+        service.shutdown();
+    }
+
+    @Test
+    void shouldBoundRegionsInFlightPerProfile() throws Exception {
+        var inFlight = new AtomicInteger();
+        var peak = new AtomicInteger();
+        var started = new CountDownLatch(1);
+        when(awsService.vpcIds(eq("prod"), anyString())).thenAnswer(invocation -> {
+            peak.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            started.countDown();
+            TimeUnit.MILLISECONDS.sleep(20);
+            inFlight.decrementAndGet();
+            return List.of();
+        });
+        var service = new SweepService(awsService, infrastructureCache, mermaidService, 8, 2, "us-east-1");
+
+        var report = service.sweep(List.of("prod"), List.of("us-east-1", "us-east-2", "us-west-1", "us-west-2", "eu-west-1"),
+            false, progress -> { });
+
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        assertTrue(peak.get() <= 2, "at most two regions of one profile at a time, saw " + peak.get());
+        assertTrue(report.failures().isEmpty());
+        verify(infrastructureCache, never()).get(any(), any(), any(), anyBoolean());
+        service.shutdown();
+    }
+
+    @Test
+    void shouldRequireAProfile() {
+        var service = new SweepService(awsService, infrastructureCache, mermaidService, 4, 2, "us-east-1");
+
+        assertThrows(IllegalArgumentException.class, () -> service.sweep(List.of(), List.of("us-east-1"), false, progress -> { }));
+        service.shutdown();
+    }
+}
@@ -0,0 +1,122 @@
+package com.sparrowlogic.networkdiagram.snapshot;
+
+import com.sparrowlogic.networkdiagram.model.CompactRuleList;
+import com.sparrowlogic.networkdiagram.model.InfrastructureComponents;
+import com.sparrowlogic.networkdiagram.model.InventoryKey;
+import com.sparrowlogic.networkdiagram.model.RuleDirection;
+import com.sparrowlogic.networkdiagram.model.SecurityGroupRule;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotStoreTest {
+
+    @TempDir
+    Path root;
+
+    private final InventoryKey key = new InventoryKey("prod", "us-east-1", "vpc-123");
+
+    private static InfrastructureComponents sample() {
+        var rules = List.of(
+            new SecurityGroupRule("tcp", 443, 443, "0.0.0.0/0", "ingress"),
+            new SecurityGroupRule("-1", 0, 0, "sg-app", "egress"));
+        return new InfrastructureComponents(
+            List.of(new InfrastructureComponents.SecurityGroup("sg-web", "web-sg", rules)),
+            List.of(new InfrastructureComponents.LoadBalancer("arn:lb/app/web", "web", "application",
+                List.of("arn:tg/web"), List.of("i-1"))),
+            List.of(new InfrastructureComponents.Instance("i-1", "t3.micro", List.of("sg-web"))),
+            List.of(new InfrastructureComponents.AutoScalingGroup("web-asg", List.of("i-1"), List.of("sg-web"))),
+            "vpc-123",
+            List.of("subnet-1"));
+    }
+
+    @Test
+    void shouldRoundTripSnapshot() {
+        var store = new SnapshotStore(root, true, 10);
+        var takenAt = store.save(key, sample());
+
+        var loaded = store.load(key, takenAt).orElseThrow();
+
+        assertEquals(sample(), loaded);
+    }
+
+    @Test
+    void shouldReadRulesInPlaceFromTheMappedFile() {
+        var store = new SnapshotStore(root, true, 10);
+        var takenAt = store.save(key, sample());
+
+        var rules = store.load(key, takenAt).orElseThrow().securityGroups().get(0).rules();
+
+        var compact = assertInstanceOf(CompactRuleList.class, rules);
+        assertEquals("0.0.0.0/0", compact.pool().source(compact.sourceId(0)));
+        assertEquals(RuleDirection.EGRESS, compact.direction(1));
+        assertEquals(sample().securityGroups().get(0).rules(), rules);
+    }
+
+    @Test
+    void shouldReadVersionOneSnapshots() throws Exception {
+        // sample()'s single group in the version 1 layout: every rule field an int string index
+        var strings = List.of("vpc-123", "sg-web", "web-sg", "tcp", "0.0.0.0/0", "ingress");
+        var bytes = new ByteArrayOutputStream();
+        var out = new DataOutputStream(bytes);
+        out.write("NDSNAP".getBytes(StandardCharsets.US_ASCII));
+        out.writeShort(1);
+        out.writeInt(strings.size());
+        for (var value : strings) {
+            out.writeInt(value.length());
+            out.write(value.getBytes(StandardCharsets.US_ASCII));
+        }
+        for (var value : new int[] {0, 0, 1, 1, 2, 1, 3, 443, 443, 4, 5, 0, 0, 0}) {
+            out.writeInt(value);
+        }
+
+        var components = SnapshotCodec.read(ByteBuffer.wrap(bytes.toByteArray()));
+
+        assertEquals(List.of(new SecurityGroupRule("tcp", 443, 443, "0.0.0.0/0", "ingress")),
+            components.securityGroups().get(0).rules());
+        assertEquals("web-sg", components.securityGroups().get(0).name());
+        assertEquals("vpc-123", components.vpcId());
+    }
+
+    @Test
+    void shouldListSnapshotsNewestFirstAndPrune() throws Exception {
+        var store = new SnapshotStore(root, true, 2);
+        var first = store.save(key, sample());
+        Thread.sleep(5);
+        var second = store.save(key, sample());
+        Thread.sleep(5);
+        var third = store.save(key, sample());
+
+        assertEquals(List.of(third, second), store.list(key));
+        assertTrue(store.load(key, first).isEmpty());
+        assertEquals(third, store.latest(key).orElseThrow().takenAt());
+    }
+
+    @Test
+    void shouldKeepKeysInsideStoreDirectory() {
+        var store = new SnapshotStore(root, true, 10);
+        var hostile = new InventoryKey("..", "../..", "vpc/../../x");
+
+        store.save(hostile, sample());
+
+        assertEquals(1, store.list(hostile).size());
+        assertTrue(root.resolve("__").toFile().isDirectory());
+    }
+
+    @Test
+    void shouldDoNothingWhenDisabled() {
+        var store = new SnapshotStore(root, false, 10);
+        store.save(key, sample());
+
+        assertTrue(store.list(key).isEmpty());
+        assertTrue(store.latest(key).isEmpty());
+    }
+}